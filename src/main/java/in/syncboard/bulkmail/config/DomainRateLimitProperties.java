@@ -0,0 +1,44 @@
+package in.syncboard.bulkmail.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "mail.domain-limits")
+public class DomainRateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Applied to every domain without its own entry
+    private Limit defaultLimit = new Limit(10.0, 20);
+
+    // Keyed by lower-case domain, e.g. mail.domain-limits.domains[gmail.com].rate-per-second=20
+    private Map<String, Limit> domains = new HashMap<>();
+
+    // Messages one schedule() call holds while waiting for their domain's turn, in total and per domain
+    private int maxQueued = 1000;
+    private int maxQueuedPerDomain = 200;
+
+    // A domain's bucket is dropped after this long unused; keep it above burst / rate so no burst is regained early
+    private Duration bucketIdleTimeout = Duration.ofMinutes(10);
+
+    public Limit limitFor(String domain) {
+        return domains.getOrDefault(domain, defaultLimit);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private double ratePerSecond;
+        private int burst;
+    }
+}
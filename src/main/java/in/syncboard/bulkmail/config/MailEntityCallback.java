@@ -0,0 +1,34 @@
+package in.syncboard.bulkmail.config;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Stamps {@code sent_at}, and {@code sent_date} from it, on {@code sent_emails} rows saved through the
+ * repository, and {@code accepted_at} on rows created without one. Rows batched by the status writer are
+ * stamped there.
+ */
+@Component
+public class MailEntityCallback implements BeforeConvertCallback<MailEntity> {
+
+    @Override
+    public Publisher<MailEntity> onBeforeConvert(MailEntity mail, SqlIdentifier table) {
+        if (mail.getSentAt() == null) {
+            mail.setSentAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        }
+        if (mail.getSentDate() == null) {
+            mail.setSentDate(mail.getSentAt().toLocalDate());
+        }
+        if (mail.getAcceptedAt() == null) {
+            mail.setAcceptedAt(mail.getSentAt());
+        }
+        return Mono.just(mail);
+    }
+}
@@ -0,0 +1,49 @@
+package in.syncboard.bulkmail.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "mail.routing")
+public class SmtpRelayProperties {
+
+    // When empty, spring.mail.* is used as a single relay named "default"
+    private List<Relay> relays = new ArrayList<>();
+
+    private Breaker circuitBreaker = new Breaker();
+
+    // Latency at which a relay's health score halves
+    private Duration latencyReference = Duration.ofMillis(250);
+
+    @Data
+    public static class Relay {
+        private String name;
+        private String host;
+        private int port = 587;
+        private String username;
+        private String password;
+        private int weight = 1;
+        private double ratePerSecond; // 0 = unlimited
+        private int burst = 1;
+        private Integer maxConnections; // Defaults to mail.pool.max-size
+
+        // Overrides on top of spring.mail.properties.*, e.g. mail.smtp.starttls.enable
+        private Map<String, String> properties = new HashMap<>();
+    }
+
+    @Data
+    public static class Breaker {
+        private int windowSize = 50;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+}
@@ -24,6 +24,7 @@ public class WebSecurityConfig {
 
     private static final String[] PUBLIC_ROUTES = {
             "/api/v1/auth/**",
+            "/api/v1/unsubscribe",
             "/v3/api-docs/**",
             "/swagger-ui/**",
             "/swagger-ui.html",
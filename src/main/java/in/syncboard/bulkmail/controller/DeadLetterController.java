@@ -0,0 +1,57 @@
+package in.syncboard.bulkmail.controller;
+
+import in.syncboard.bulkmail.dto.APIResponse;
+import in.syncboard.bulkmail.dto.DeadLetterDTO;
+import in.syncboard.bulkmail.dto.DeadLetterRequeueRequestDTO;
+import in.syncboard.bulkmail.service.DeadLetterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/mail/dead-letters")
+@RequiredArgsConstructor
+@Tag(name = "Dead Letter API", description = "APIs for emails that failed after exhausting their retries")
+public class DeadLetterController {
+
+    private final DeadLetterService deadLetterService;
+
+    @GetMapping
+    @Operation(summary = "List dead letters", description = "Retrieves the oldest emails that failed after all retries")
+    public Mono<ResponseEntity<APIResponse<List<DeadLetterDTO>>>> getDeadLetters(
+            @RequestParam(defaultValue = "100") int limit) {
+
+        return deadLetterService.getDeadLetters(Math.max(1, Math.min(limit, 1000)))
+                .collectList()
+                .map(deadLetters -> ResponseEntity.ok(
+                        APIResponse.<List<DeadLetterDTO>>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Dead letters retrieved successfully")
+                                .data(deadLetters)
+                                .build()
+                ));
+    }
+
+    @PostMapping("/requeue")
+    @Operation(summary = "Requeue dead letters", description = "Puts the given dead letters, or all of them if none are given, back on the send queue")
+    public Mono<ResponseEntity<APIResponse<Long>>> requeue(
+            @RequestBody(required = false) DeadLetterRequeueRequestDTO request) {
+
+        return deadLetterService.requeue(request != null ? request.getDeadLetterIds() : null)
+                .map(count -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(APIResponse.<Long>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.ACCEPTED.value())
+                                .message("Requeued " + count + " emails")
+                                .data(count)
+                                .build()
+                        ));
+    }
+}
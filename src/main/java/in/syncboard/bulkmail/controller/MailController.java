@@ -1,22 +1,33 @@
 package in.syncboard.bulkmail.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import in.syncboard.bulkmail.dto.APIResponse;
+import in.syncboard.bulkmail.dto.BulkSendEventDTO;
+import in.syncboard.bulkmail.dto.BulkSendSummaryDTO;
+import in.syncboard.bulkmail.dto.EmailValidationDTO;
+import in.syncboard.bulkmail.dto.MailHistoryPageDTO;
 import in.syncboard.bulkmail.dto.MailRequestDTO;
 import in.syncboard.bulkmail.dto.MailResponseDTO;
+import in.syncboard.bulkmail.exception.ProfileException;
 import in.syncboard.bulkmail.service.MailService;
+import in.syncboard.bulkmail.utils.EmailUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequestMapping("/api/v1/mail")
@@ -27,17 +38,17 @@ public class MailController {
     private final MailService mailService;
 
     @PostMapping("/send")
-    @Operation(summary = "Send email", description = "Sends an email using a template")
+    @Operation(summary = "Send email", description = "Queues an email using a template for background delivery")
     public Mono<ResponseEntity<APIResponse<MailResponseDTO>>> sendEmail(@Valid @RequestBody MailRequestDTO mailRequest) {
         return mailService.sendTemplateEmail(mailRequest)
-                .map(response -> ResponseEntity.ok(
-                        APIResponse.<MailResponseDTO>builder()
+                .map(response -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(APIResponse.<MailResponseDTO>builder()
                                 .success(true)
-                                .statusCode(HttpStatus.OK.value())
-                                .message("Email sent successfully")
+                                .statusCode(HttpStatus.ACCEPTED.value())
+                                .message("Email queued for delivery")
                                 .data(response)
                                 .build()
-                ));
+                        ));
     }
 
     @PostMapping("/send/bulk")
@@ -59,37 +70,88 @@ public class MailController {
                 ));
     }
 
+    @PostMapping(value = "/send/bulk/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(summary = "Send bulk emails with streamed results",
+            description = "Sends emails to multiple recipients and streams each result as it completes, followed by a summary; " +
+                    "each event's type is RESULT or SUMMARY")
+    public Flux<BulkSendEventDTO> streamBulkEmail(
+            @RequestParam List<String> recipients,
+            @RequestParam Long templateId,
+            @RequestBody(required = false) Map<String, Object> variables) {
+
+        // Reject bad input with a plain 400 before the stream is opened, not as an error midway through it
+        for (String recipient : recipients) {
+            if (!EmailUtils.isValidEmail(recipient)) {
+                throw ProfileException.badRequest("Invalid email address: " + recipient);
+            }
+        }
+
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong succeeded = new AtomicLong();
+            AtomicLong failed = new AtomicLong();
+            AtomicLong retrying = new AtomicLong();
+            AtomicLong suppressed = new AtomicLong();
+
+            return mailService.sendBulkTemplateEmail(recipients, templateId, variables)
+                    .doOnNext(response -> {
+                        if ("SUCCESS".equals(response.getStatus())) {
+                            succeeded.incrementAndGet();
+                        } else if ("RETRYING".equals(response.getStatus())) {
+                            retrying.incrementAndGet();
+                        } else if ("SUPPRESSED".equals(response.getStatus())) {
+                            suppressed.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    })
+                    .map(BulkSendEventDTO::result)
+                    .concatWith(Mono.fromSupplier(() -> BulkSendEventDTO.summary(BulkSendSummaryDTO.builder()
+                            .total(succeeded.get() + failed.get() + retrying.get() + suppressed.get())
+                            .succeeded(succeeded.get())
+                            .failed(failed.get())
+                            .retrying(retrying.get())
+                            .suppressed(suppressed.get())
+                            .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                            .build())));
+        });
+    }
+
     @GetMapping("/history/recipient/{recipient}")
-    @Operation(summary = "Get mail history by recipient", description = "Retrieves the email history for a specific recipient")
-    public Mono<ResponseEntity<APIResponse<List<MailResponseDTO>>>> getMailHistoryByRecipient(
-            @PathVariable String recipient) {
+    @Operation(summary = "Get mail history by recipient",
+            description = "Retrieves a page of the email history for a specific recipient, oldest first; pass nextCursor back as cursor for the next page")
+    public Mono<ResponseEntity<APIResponse<MailHistoryPageDTO>>> getMailHistoryByRecipient(
+            @PathVariable String recipient,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
 
-        return mailService.getMailHistoryByRecipient(recipient)
-                .collectList()
-                .map(history -> ResponseEntity.ok(
-                        APIResponse.<List<MailResponseDTO>>builder()
+        return mailService.getMailHistoryByRecipient(recipient, cursor, size)
+                .map(page -> ResponseEntity.ok(
+                        APIResponse.<MailHistoryPageDTO>builder()
                                 .success(true)
                                 .statusCode(HttpStatus.OK.value())
                                 .message("Mail history retrieved successfully")
-                                .data(history)
+                                .data(page)
                                 .build()
                 ));
     }
 
     @GetMapping("/history/date-range")
-    @Operation(summary = "Get mail history by date range", description = "Retrieves email history within a date range")
-    public Mono<ResponseEntity<APIResponse<List<MailResponseDTO>>>> getMailHistoryByDateRange(
+    @Operation(summary = "Get mail history by date range",
+            description = "Retrieves a page of email history within a date range, oldest first; pass nextCursor back as cursor for the next page")
+    public Mono<ResponseEntity<APIResponse<MailHistoryPageDTO>>> getMailHistoryByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
 
-        return mailService.getMailHistoryByDateRange(startDate, endDate)
-                .collectList()
-                .map(history -> ResponseEntity.ok(
-                        APIResponse.<List<MailResponseDTO>>builder()
+        return mailService.getMailHistoryByDateRange(startDate, endDate, cursor, size)
+                .map(page -> ResponseEntity.ok(
+                        APIResponse.<MailHistoryPageDTO>builder()
                                 .success(true)
                                 .statusCode(HttpStatus.OK.value())
                                 .message("Mail history retrieved successfully")
-                                .data(history)
+                                .data(page)
                                 .build()
                 ));
     }
@@ -107,4 +169,26 @@ public class MailController {
                                 .build()
                 ));
     }
+
+    @PostMapping(value = "/validate/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Validate emails in bulk",
+            description = "Validates a streamed list of email addresses and streams back validity and normalized domain for each")
+    public Flux<EmailValidationDTO> validateEmails(@RequestBody Flux<JsonNode> emails) {
+        return mailService.validateEmails(emailValues(emails));
+    }
+
+    /**
+     * Bound as JSON rather than {@code Flux<String>}, which the line-splitting string decoder would take:
+     * a JSON array then arrives as one element. Jackson streams array elements and NDJSON lines alike.
+     */
+    private static Flux<String> emailValues(Flux<JsonNode> emails) {
+        return emails.map(node -> {
+            if (!node.isTextual()) {
+                throw ProfileException.badRequest("Expected a string email address but got: " + node);
+            }
+            return node.textValue();
+        });
+    }
 }
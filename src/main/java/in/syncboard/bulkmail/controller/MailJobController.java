@@ -0,0 +1,76 @@
+package in.syncboard.bulkmail.controller;
+
+import in.syncboard.bulkmail.dto.APIResponse;
+import in.syncboard.bulkmail.dto.MailJobDTO;
+import in.syncboard.bulkmail.dto.MailJobRequestDTO;
+import in.syncboard.bulkmail.service.MailJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/mail/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Bulk Mail Job API", description = "APIs for running bulk sends as background jobs")
+public class MailJobController {
+
+    private final MailJobService mailJobService;
+
+    @PostMapping
+    @Operation(summary = "Create bulk job", description = "Starts a bulk send in the background and returns its job ID")
+    public Mono<ResponseEntity<APIResponse<MailJobDTO>>> createJob(@Valid @RequestBody MailJobRequestDTO request) {
+        return mailJobService.createJob(request)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(APIResponse.<MailJobDTO>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.ACCEPTED.value())
+                                .message("Mail job started")
+                                .data(job)
+                                .build()
+                        ));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get bulk job", description = "Retrieves a bulk job with its live progress counters")
+    public Mono<ResponseEntity<APIResponse<MailJobDTO>>> getJob(@PathVariable Long id) {
+        return mailJobService.getJob(id)
+                .map(job -> ok(job, "Mail job retrieved successfully"));
+    }
+
+    @PostMapping("/{id}/pause")
+    @Operation(summary = "Pause bulk job", description = "Stops a running job from starting new sends")
+    public Mono<ResponseEntity<APIResponse<MailJobDTO>>> pauseJob(@PathVariable Long id) {
+        return mailJobService.pauseJob(id)
+                .map(job -> ok(job, "Mail job paused"));
+    }
+
+    @PostMapping("/{id}/resume")
+    @Operation(summary = "Resume bulk job", description = "Resumes a paused job")
+    public Mono<ResponseEntity<APIResponse<MailJobDTO>>> resumeJob(@PathVariable Long id) {
+        return mailJobService.resumeJob(id)
+                .map(job -> ok(job, "Mail job resumed"));
+    }
+
+    @PostMapping("/{id}/cancel")
+    @Operation(summary = "Cancel bulk job", description = "Cancels a running or paused job")
+    public Mono<ResponseEntity<APIResponse<MailJobDTO>>> cancelJob(@PathVariable Long id) {
+        return mailJobService.cancelJob(id)
+                .map(job -> ok(job, "Mail job cancelled"));
+    }
+
+    private ResponseEntity<APIResponse<MailJobDTO>> ok(MailJobDTO job, String message) {
+        return ResponseEntity.ok(
+                APIResponse.<MailJobDTO>builder()
+                        .success(true)
+                        .statusCode(HttpStatus.OK.value())
+                        .message(message)
+                        .data(job)
+                        .build()
+        );
+    }
+}
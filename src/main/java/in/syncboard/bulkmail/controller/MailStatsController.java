@@ -0,0 +1,86 @@
+package in.syncboard.bulkmail.controller;
+
+import in.syncboard.bulkmail.dto.APIResponse;
+import in.syncboard.bulkmail.dto.LatencyStatsDTO;
+import in.syncboard.bulkmail.dto.MailStatsDTO;
+import in.syncboard.bulkmail.exception.ProfileException;
+import in.syncboard.bulkmail.service.MailStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/mail/stats")
+@RequiredArgsConstructor
+@Tag(name = "Mail Stats API", description = "APIs for delivery statistics")
+public class MailStatsController {
+
+    private final MailStatsService mailStatsService;
+
+    @GetMapping
+    @Operation(summary = "Get delivery stats",
+            description = "Counts sent, failed, retried and suppressed emails per day, template, sender domain and status")
+    public Mono<ResponseEntity<APIResponse<List<MailStatsDTO>>>> getStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) List<String> groupBy,
+            @RequestParam(required = false) Long templateId,
+            @RequestParam(required = false) String senderDomain,
+            @RequestParam(required = false) String status) {
+
+        return mailStatsService.getStats(startDate, endDate, groupBy, templateId, senderDomain, status)
+                .collectList()
+                .map(stats -> ResponseEntity.ok(
+                        APIResponse.<List<MailStatsDTO>>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Mail stats retrieved successfully")
+                                .data(stats)
+                                .build()
+                ));
+    }
+
+    @GetMapping("/latency")
+    @Operation(summary = "Get delivery latency percentiles",
+            description = "Queueing (accepted to SMTP handoff) and send (handoff to SMTP reply) latency percentiles in " +
+                    "milliseconds per time window, optionally per template")
+    public Mono<ResponseEntity<APIResponse<List<LatencyStatsDTO>>>> getLatency(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "1h") String window,
+            @RequestParam(required = false) Long templateId,
+            @RequestParam(defaultValue = "false") boolean byTemplate,
+            @RequestParam(required = false) List<Double> quantiles) {
+
+        return Mono.fromCallable(() -> parseWindow(window))
+                .flatMapMany(duration -> mailStatsService.getLatency(from, to, duration, templateId, byTemplate, quantiles))
+                .collectList()
+                .map(stats -> ResponseEntity.ok(
+                        APIResponse.<List<LatencyStatsDTO>>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Latency stats retrieved successfully")
+                                .data(stats)
+                                .build()
+                ));
+    }
+
+    private static Duration parseWindow(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw ProfileException.badRequest("Invalid window: " + window);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package in.syncboard.bulkmail.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import in.syncboard.bulkmail.dto.APIResponse;
+import in.syncboard.bulkmail.dto.SuppressionDTO;
+import in.syncboard.bulkmail.dto.SuppressionImportResultDTO;
+import in.syncboard.bulkmail.dto.SuppressionRequestDTO;
+import in.syncboard.bulkmail.exception.ProfileException;
+import in.syncboard.bulkmail.service.SuppressionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/mail/suppressions")
+@RequiredArgsConstructor
+@Tag(name = "Suppression List API", description = "APIs for addresses that must not be mailed")
+public class SuppressionController {
+
+    private final SuppressionService suppressionService;
+
+    @PostMapping
+    @Operation(summary = "Suppress email", description = "Adds an email to the suppression list")
+    public Mono<ResponseEntity<APIResponse<SuppressionDTO>>> suppress(@Valid @RequestBody SuppressionRequestDTO request) {
+        return suppressionService.suppress(request.getEmail(), request.getReason())
+                .map(suppression -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(APIResponse.<SuppressionDTO>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.CREATED.value())
+                                .message("Email suppressed")
+                                .data(suppression)
+                                .build()
+                        ));
+    }
+
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Import suppressions",
+            description = "Adds a streamed list of emails to the suppression list; emails already on it are skipped")
+    public Mono<ResponseEntity<APIResponse<SuppressionImportResultDTO>>> importSuppressions(
+            @RequestParam(defaultValue = "MANUAL") String reason,
+            @RequestBody Flux<JsonNode> emails) {
+
+        return suppressionService.importSuppressions(emailValues(emails), reason)
+                .map(result -> ResponseEntity.ok(
+                        APIResponse.<SuppressionImportResultDTO>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Imported " + result.getImported() + " suppressions")
+                                .data(result)
+                                .build()
+                ));
+    }
+
+    @GetMapping("/{email}")
+    @Operation(summary = "Get suppression", description = "Retrieves the suppression for an email, if it is suppressed")
+    public Mono<ResponseEntity<APIResponse<SuppressionDTO>>> getSuppression(@PathVariable String email) {
+        return suppressionService.getSuppression(email)
+                .map(suppression -> ResponseEntity.ok(
+                        APIResponse.<SuppressionDTO>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Suppression retrieved successfully")
+                                .data(suppression)
+                                .build()
+                ));
+    }
+
+    @DeleteMapping("/{email}")
+    @Operation(summary = "Remove suppression", description = "Removes an email from the suppression list so it can be mailed again")
+    public Mono<ResponseEntity<APIResponse<Void>>> removeSuppression(@PathVariable String email) {
+        return suppressionService.removeSuppression(email)
+                .then(Mono.fromSupplier(() -> ResponseEntity.ok(
+                        APIResponse.<Void>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Suppression removed")
+                                .build()
+                )));
+    }
+
+    /**
+     * Bound as JSON rather than {@code Flux<String>}, which the line-splitting string decoder would take:
+     * a JSON array then arrives as one element. Jackson streams array elements and NDJSON lines alike.
+     */
+    private static Flux<String> emailValues(Flux<JsonNode> emails) {
+        return emails.map(node -> {
+            if (!node.isTextual()) {
+                throw ProfileException.badRequest("Expected a string email address but got: " + node);
+            }
+            return node.textValue();
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package in.syncboard.bulkmail.controller;
+
+import in.syncboard.bulkmail.dto.APIResponse;
+import in.syncboard.bulkmail.exception.ProfileException;
+import in.syncboard.bulkmail.service.SuppressionService;
+import in.syncboard.bulkmail.utils.UnsubscribeTokens;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Target of the {@code List-Unsubscribe} links added to outgoing mail. Public, since recipients have no
+ * account; the signed token is the credential.
+ */
+@RestController
+@RequestMapping("/api/v1/unsubscribe")
+@RequiredArgsConstructor
+@Tag(name = "Unsubscribe API", description = "One-click unsubscribe for recipients")
+public class UnsubscribeController {
+
+    private final SuppressionService suppressionService;
+    private final UnsubscribeTokens unsubscribeTokens;
+
+    @PostMapping
+    @Operation(summary = "Unsubscribe", description = "One-click unsubscribe (RFC 8058) for the recipient the token was issued to")
+    public Mono<ResponseEntity<APIResponse<Void>>> unsubscribe(@RequestParam String token) {
+        return suppressionService.unsubscribe(token)
+                .map(email -> ResponseEntity.ok(
+                        APIResponse.<Void>builder()
+                                .success(true)
+                                .statusCode(HttpStatus.OK.value())
+                                .message("Unsubscribed")
+                                .build()
+                ));
+    }
+
+    @GetMapping(produces = MediaType.TEXT_HTML_VALUE)
+    @Operation(summary = "Unsubscribe page",
+            description = "Confirmation page for recipients who open the link in a browser; unsubscribing takes a POST so link scanners cannot trigger it")
+    public Mono<String> unsubscribePage(@RequestParam String token) {
+        if (unsubscribeTokens.verify(token) == null) {
+            return Mono.error(ProfileException.badRequest("Invalid unsubscribe link"));
+        }
+        // The token was just verified to be base64url and '.', so it is safe to embed as is
+        return Mono.just("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Unsubscribe</title></head><body>"
+                + "<form method=\"post\" action=\"?token=" + token + "\">"
+                + "<p>Stop receiving these emails?</p><button type=\"submit\">Unsubscribe</button>"
+                + "</form></body></html>");
+    }
+}
@@ -0,0 +1,26 @@
+package in.syncboard.bulkmail.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkSendEventDTO {
+    private String type; // RESULT for each recipient, then one SUMMARY
+    private MailResponseDTO result;
+    private BulkSendSummaryDTO summary;
+
+    public static BulkSendEventDTO result(MailResponseDTO result) {
+        return BulkSendEventDTO.builder().type("RESULT").result(result).build();
+    }
+
+    public static BulkSendEventDTO summary(BulkSendSummaryDTO summary) {
+        return BulkSendEventDTO.builder().type("SUMMARY").summary(summary).build();
+    }
+}
@@ -0,0 +1,19 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSendSummaryDTO {
+    private long total;
+    private long succeeded;
+    private long failed;
+    private long retrying; // Transient failures scheduled for another attempt
+    private long suppressed; // On the suppression list, not sent
+    private long elapsedMillis;
+}
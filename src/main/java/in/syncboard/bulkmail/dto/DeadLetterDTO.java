@@ -0,0 +1,22 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterDTO {
+    private Long deadLetterId;
+    private Long mailId;
+    private String recipient;
+    private Long templateId;
+    private Integer attempts;
+    private String lastError;
+    private LocalDate createdDate;
+}
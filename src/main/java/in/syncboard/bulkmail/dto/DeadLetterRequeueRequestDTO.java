@@ -0,0 +1,17 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterRequeueRequestDTO {
+
+    private List<Long> deadLetterIds; // Empty or missing requeues every dead letter
+}
@@ -0,0 +1,16 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailValidationDTO {
+    private String email;
+    private boolean valid;
+    private String domain; // Lower-cased, null when invalid
+}
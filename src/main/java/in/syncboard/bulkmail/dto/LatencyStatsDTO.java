@@ -0,0 +1,26 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Latency percentiles in milliseconds for one window and metric ({@code queue} or {@code send}), and one
+ * template when grouped by template.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyStatsDTO {
+    private LocalDateTime windowStart;
+    private Long templateId;
+    private String metric;
+    private long count;
+    private Map<String, Double> percentiles; // e.g. p50, p99
+    private long max;
+}
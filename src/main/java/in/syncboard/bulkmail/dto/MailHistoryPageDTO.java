@@ -0,0 +1,17 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailHistoryPageDTO {
+    private List<MailResponseDTO> items;
+    private String nextCursor; // Pass back as cursor for the next page; null on the last page
+}
@@ -0,0 +1,26 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailJobDTO {
+    private Long jobId;
+    private Long templateId;
+    private String status;
+    private long total;
+    private long queued;
+    private long sent;
+    private long failed;
+    private double throughputPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+}
@@ -0,0 +1,26 @@
+package in.syncboard.bulkmail.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailJobRequestDTO {
+
+    @NotNull(message = "Template ID is required")
+    private Long templateId;
+
+    @NotEmpty(message = "At least one recipient is required")
+    private List<String> recipients;
+
+    private Map<String, Object> variables;
+}
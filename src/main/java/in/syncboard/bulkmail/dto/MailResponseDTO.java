@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @Builder
@@ -17,5 +18,10 @@ public class MailResponseDTO {
     private String subject;
     private String status;
     private LocalDate sentDate;
+    private LocalDateTime sentAt;
     private String errorMessage;
+    private LocalDateTime acceptedAt;
+    private LocalDateTime renderedAt;
+    private LocalDateTime smtpHandoffAt;
+    private LocalDateTime completedAt;
 }
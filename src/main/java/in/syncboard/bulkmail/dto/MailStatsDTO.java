@@ -0,0 +1,23 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * One group of the stats rollup; dimensions that were not grouped by are null.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailStatsDTO {
+    private LocalDate date;
+    private Long templateId;
+    private String senderDomain;
+    private String status;
+    private long count;
+}
@@ -0,0 +1,19 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuppressionDTO {
+    private Long suppressionId;
+    private String email;
+    private String reason;
+    private LocalDate createdDate;
+}
@@ -0,0 +1,16 @@
+package in.syncboard.bulkmail.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuppressionImportResultDTO {
+    private long received;
+    private long imported; // Newly suppressed; addresses already on the list are not counted
+    private long invalid;
+}
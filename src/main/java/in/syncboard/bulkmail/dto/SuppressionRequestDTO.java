@@ -0,0 +1,21 @@
+package in.syncboard.bulkmail.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuppressionRequestDTO {
+
+    @NotBlank(message = "Email is required")
+    @Email(message = "Valid email is required")
+    private String email;
+
+    private String reason; // UNSUBSCRIBED, HARD_BOUNCE, COMPLAINT or MANUAL (default)
+}
@@ -0,0 +1,34 @@
+package in.syncboard.bulkmail.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("mail_campaigns")
+public class CampaignEntity {
+
+    @Id
+    @Column("campaign_id")
+    private Long campaignId;
+
+    @Column("template_id")
+    private Long templateId;
+
+    @Column("variables")
+    private String variables; // JSON string of variables shared by every recipient
+
+    @CreatedDate
+    @Column("created_date")
+    private LocalDate createdDate;
+}
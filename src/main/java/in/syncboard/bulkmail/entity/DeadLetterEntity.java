@@ -0,0 +1,43 @@
+package in.syncboard.bulkmail.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("mail_dead_letters")
+public class DeadLetterEntity {
+
+    @Id
+    @Column("dead_letter_id")
+    private Long deadLetterId;
+
+    @Column("mail_id")
+    private Long mailId; // The FAILED sent_emails row
+
+    @Column("recipient")
+    private String recipient;
+
+    @Column("template_id")
+    private Long templateId;
+
+    @Column("attempts")
+    private Integer attempts;
+
+    @Column("last_error")
+    private String lastError;
+
+    @CreatedDate
+    @Column("created_date")
+    private LocalDate createdDate;
+}
@@ -4,13 +4,14 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @Builder
@@ -36,17 +37,50 @@ public class MailEntity {
     private String sender;
 
     @Column("status")
-    private String status; // SUCCESS, FAILED
+    private String status; // QUEUED, SENDING, SUCCESS, RETRYING, FAILED, SUPPRESSED
 
     @Column("error_message")
     private String errorMessage;
 
+    @Column("attempts")
+    private Integer attempts; // Send attempts made so far
+
+    @Column("next_attempt_at")
+    private LocalDateTime nextAttemptAt; // When a RETRYING row becomes due
+
+    @Column("campaign_id")
+    private Long campaignId; // Bulk send whose shared variables this row was rendered with
+
     @Column("variables")
-    private String variables; // JSON string of variables used
+    private String variables; // JSON string of variables used, or only this recipient's overrides if part of a campaign
+
+    @Column("claim_token")
+    private String claimToken; // Dispatcher claim
+
+    @Column("claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Transient
+    private boolean retriesExhausted; // Failed for good after transient errors; not persisted
+
+    @Column("sent_at")
+    private LocalDateTime sentAt; // When the row was created; partition key of sent_emails, never changes
 
-    @CreatedDate
     @Column("sent_date")
-    private LocalDate sentDate;
+    private LocalDate sentDate; // Date of sent_at, kept for older readers
+
+    // Pipeline timestamps; the last three are overwritten by every attempt
+    @Column("accepted_at")
+    private LocalDateTime acceptedAt; // Request accepted, before any queueing
+
+    @Column("rendered_at")
+    private LocalDateTime renderedAt; // Message rendered and MIME-encoded
+
+    @Column("smtp_handoff_at")
+    private LocalDateTime smtpHandoffAt; // Handed to the SMTP relay
+
+    @Column("completed_at")
+    private LocalDateTime completedAt; // Outcome of the attempt known
 
     @LastModifiedDate
     @Column("last_modified_date")
@@ -0,0 +1,54 @@
+package in.syncboard.bulkmail.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.relational.core.mapping.Column;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a {@code sent_emails} row that history queries return; leaves out {@code variables}
+ * and the dispatcher bookkeeping.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailHistoryView {
+
+    @Column("mail_id")
+    private Long mailId;
+
+    @Column("recipient")
+    private String recipient;
+
+    @Column("subject")
+    private String subject;
+
+    @Column("status")
+    private String status;
+
+    @Column("error_message")
+    private String errorMessage;
+
+    @Column("sent_at")
+    private LocalDateTime sentAt;
+
+    @Column("sent_date")
+    private LocalDate sentDate;
+
+    @Column("accepted_at")
+    private LocalDateTime acceptedAt;
+
+    @Column("rendered_at")
+    private LocalDateTime renderedAt;
+
+    @Column("smtp_handoff_at")
+    private LocalDateTime smtpHandoffAt;
+
+    @Column("completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,83 @@
+package in.syncboard.bulkmail.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("mail_jobs")
+public class MailJobEntity {
+
+    @Id
+    @Column("job_id")
+    private Long jobId;
+
+    @Column("template_id")
+    private Long templateId;
+
+    @Column("campaign_id")
+    private Long campaignId;
+
+    @Column("status")
+    private String status; // RUNNING, PAUSED, CANCELLED, COMPLETED, FAILED
+
+    @Column("recipients")
+    private String recipients; // JSON array of recipient addresses
+
+    @Column("variables")
+    private String variables; // JSON variables of jobs created before campaigns; newer jobs keep them on the campaign
+
+    @Column("total_recipients")
+    private Integer totalRecipients;
+
+    @Column("next_index")
+    private Integer nextIndex; // First recipient of the next unsent chunk
+
+    @Column("sent_count")
+    private Long sentCount;
+
+    @Column("failed_count")
+    private Long failedCount;
+
+    // sent_count and failed_count as of next_index, written together with it; a resumed job starts from these
+    @Column("checkpoint_sent_count")
+    private Long checkpointSentCount;
+
+    @Column("checkpoint_failed_count")
+    private Long checkpointFailedCount;
+
+    @Column("error_message")
+    private String errorMessage;
+
+    @Column("started_at")
+    private LocalDateTime startedAt;
+
+    @Column("finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column("owner_id")
+    private String ownerId; // Node running the job, see MailJobServiceImpl
+
+    @Column("heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @CreatedDate
+    @Column("created_date")
+    private LocalDate createdDate;
+
+    @LastModifiedDate
+    @Column("last_modified_date")
+    private LocalDate lastModifiedDate;
+}
@@ -0,0 +1,34 @@
+package in.syncboard.bulkmail.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("mail_suppressions")
+public class SuppressionEntity {
+
+    @Id
+    @Column("suppression_id")
+    private Long suppressionId;
+
+    @Column("email")
+    private String email; // Normalized (trimmed, lower case), unique
+
+    @Column("reason")
+    private String reason; // UNSUBSCRIBED, HARD_BOUNCE, COMPLAINT, MANUAL
+
+    @CreatedDate
+    @Column("created_date")
+    private LocalDate createdDate;
+}
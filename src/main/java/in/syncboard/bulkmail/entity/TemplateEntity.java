@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -38,6 +39,10 @@ public class TemplateEntity {
     @Column("is_active")
     private Boolean isActive;
 
+    @Version
+    @Column("version")
+    private Long version; // Bumped by every save, guarded by the old value, so cached copies on other nodes can be revalidated
+
     @CreatedDate
     @Column("created_date")
     private LocalDate createdDate;
@@ -0,0 +1,9 @@
+package in.syncboard.bulkmail.repository;
+
+import in.syncboard.bulkmail.entity.CampaignEntity;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CampaignRepository extends ReactiveCrudRepository<CampaignEntity, Long> {
+}
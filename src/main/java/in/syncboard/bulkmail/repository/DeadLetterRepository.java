@@ -0,0 +1,36 @@
+package in.syncboard.bulkmail.repository;
+
+import in.syncboard.bulkmail.entity.DeadLetterEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Repository
+public interface DeadLetterRepository extends ReactiveCrudRepository<DeadLetterEntity, Long> {
+
+    @Query("SELECT * FROM mail_dead_letters ORDER BY dead_letter_id LIMIT :limit")
+    Flux<DeadLetterEntity> findOldest(int limit);
+
+    @Query("SELECT dead_letter_id FROM mail_dead_letters WHERE dead_letter_id > :afterId ORDER BY dead_letter_id LIMIT :limit")
+    Flux<Long> findIdsAfter(long afterId, int limit);
+
+    // Entries whose mail is still FAILED and so can be requeued, locked until the requeue commits
+    @Query("SELECT d.dead_letter_id FROM mail_dead_letters d JOIN sent_emails s ON s.mail_id = d.mail_id " +
+            "WHERE d.dead_letter_id IN (:deadLetterIds) AND s.status = 'FAILED' FOR UPDATE")
+    Flux<Long> lockRequeueable(List<Long> deadLetterIds);
+
+    @Modifying
+    @Query("UPDATE sent_emails SET status = 'QUEUED', attempts = 0, next_attempt_at = NULL, error_message = NULL, " +
+            "claim_token = NULL, claimed_at = NULL " +
+            "WHERE status = 'FAILED' AND mail_id IN (SELECT mail_id FROM mail_dead_letters WHERE dead_letter_id IN (:deadLetterIds))")
+    Mono<Integer> requeueMails(List<Long> deadLetterIds);
+
+    @Modifying
+    @Query("DELETE FROM mail_dead_letters WHERE dead_letter_id IN (:deadLetterIds)")
+    Mono<Integer> deleteByDeadLetterIdIn(List<Long> deadLetterIds);
+}
@@ -0,0 +1,59 @@
+package in.syncboard.bulkmail.repository;
+
+import in.syncboard.bulkmail.entity.MailJobEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface MailJobRepository extends ReactiveCrudRepository<MailJobEntity, Long> {
+
+    Flux<MailJobEntity> findByOwnerIdAndStatusIn(String ownerId, Collection<String> statuses);
+
+    // Writes by the node running a job name it as owner, so a node that lost the job cannot overwrite it
+
+    @Modifying
+    @Query("UPDATE mail_jobs SET sent_count = :sentCount, failed_count = :failedCount WHERE job_id = :jobId AND owner_id = :ownerId")
+    Mono<Integer> updateCounters(Long jobId, String ownerId, long sentCount, long failedCount);
+
+    @Modifying
+    @Query("UPDATE mail_jobs SET next_index = :nextIndex, sent_count = :sentCount, failed_count = :failedCount, " +
+            "checkpoint_sent_count = :sentCount, checkpoint_failed_count = :failedCount " +
+            "WHERE job_id = :jobId AND owner_id = :ownerId")
+    Mono<Integer> checkpoint(Long jobId, String ownerId, int nextIndex, long sentCount, long failedCount);
+
+    @Modifying
+    @Query("UPDATE mail_jobs SET status = :status, error_message = :errorMessage, next_index = COALESCE(:nextIndex, next_index), " +
+            "sent_count = :sentCount, failed_count = :failedCount, finished_at = :finishedAt " +
+            "WHERE job_id = :jobId AND owner_id = :ownerId AND status IN ('RUNNING', 'PAUSED')")
+    Mono<Integer> finish(Long jobId, String ownerId, String status, String errorMessage, Integer nextIndex,
+                         long sentCount, long failedCount, LocalDateTime finishedAt);
+
+    // Control operations go through the row, so they work on any node; the owner applies them on its next heartbeat
+
+    @Modifying
+    @Query("UPDATE mail_jobs SET status = :status WHERE job_id = :jobId AND status = :expectedStatus")
+    Mono<Integer> transition(Long jobId, String expectedStatus, String status);
+
+    @Modifying
+    @Query("UPDATE mail_jobs SET status = 'CANCELLED', finished_at = :finishedAt WHERE job_id = :jobId AND status IN ('RUNNING', 'PAUSED')")
+    Mono<Integer> cancel(Long jobId, LocalDateTime finishedAt);
+
+    @Modifying
+    @Query("UPDATE mail_jobs SET heartbeat_at = :now WHERE owner_id = :ownerId AND status IN ('RUNNING', 'PAUSED')")
+    Mono<Integer> heartbeat(String ownerId, LocalDateTime now);
+
+    /**
+     * Take over one active job whose owner stopped sending heartbeats, or that has no owner.
+     */
+    @Modifying
+    @Query("UPDATE mail_jobs SET owner_id = :ownerId, heartbeat_at = :now WHERE status IN ('RUNNING', 'PAUSED') " +
+            "AND (owner_id IS NULL OR heartbeat_at IS NULL OR heartbeat_at < :staleBefore) ORDER BY job_id LIMIT 1")
+    Mono<Integer> claimOrphaned(String ownerId, LocalDateTime now, LocalDateTime staleBefore);
+}
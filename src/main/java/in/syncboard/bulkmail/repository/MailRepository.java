@@ -1,23 +1,84 @@
 package in.syncboard.bulkmail.repository;
 
 import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.entity.MailHistoryView;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
 @Repository
 public interface MailRepository extends ReactiveCrudRepository<MailEntity, Long> {
 
-    Flux<MailEntity> findByRecipient(String recipient);
+    String HISTORY_COLUMNS = "mail_id, recipient, subject, status, error_message, sent_at, sent_date, " +
+            "accepted_at, rendered_at, smtp_handoff_at, completed_at";
+
+    // History pages are keyset-paginated on (sent_at, mail_id); each query has a first-page and a next-page form.
+    // Date ranges are half-open on sent_at so MySQL can prune to the partitions of the months they cover
+
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM sent_emails WHERE recipient = :recipient " +
+            "ORDER BY sent_at, mail_id LIMIT :limit")
+    Flux<MailHistoryView> findHistoryByRecipient(String recipient, int limit);
+
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM sent_emails WHERE recipient = :recipient " +
+            "AND (sent_at > :afterSentAt OR (sent_at = :afterSentAt AND mail_id > :afterId)) " +
+            "ORDER BY sent_at, mail_id LIMIT :limit")
+    Flux<MailHistoryView> findHistoryByRecipientAfter(String recipient, LocalDateTime afterSentAt, long afterId, int limit);
+
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM sent_emails WHERE sent_at >= :from AND sent_at < :to " +
+            "ORDER BY sent_at, mail_id LIMIT :limit")
+    Flux<MailHistoryView> findHistoryBySentAtBetween(LocalDateTime from, LocalDateTime to, int limit);
 
-    Flux<MailEntity> findByTemplateId(Long templateId);
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM sent_emails WHERE sent_at >= :from AND sent_at < :to " +
+            "AND (sent_at > :afterSentAt OR (sent_at = :afterSentAt AND mail_id > :afterId)) " +
+            "ORDER BY sent_at, mail_id LIMIT :limit")
+    Flux<MailHistoryView> findHistoryBySentAtBetweenAfter(LocalDateTime from, LocalDateTime to,
+                                                          LocalDateTime afterSentAt, long afterId, int limit);
 
-    @Query("SELECT * FROM sent_emails WHERE sent_date >= :startDate AND sent_date <= :endDate")
-    Flux<MailEntity> findBySentDateBetween(String startDate, String endDate);
+    // Oldest rows past the archive age whose delivery is settled, in archive segment order
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM sent_emails WHERE sent_at < :before " +
+            "AND status NOT IN ('QUEUED', 'SENDING', 'RETRYING') ORDER BY sent_at, mail_id LIMIT :limit")
+    Flux<MailHistoryView> findArchivable(LocalDateTime before, int limit);
 
-    Flux<MailEntity> findByStatus(String status);
+    // The next archivable rows after the last key of the previous segment
+    @Query("SELECT " + HISTORY_COLUMNS + " FROM sent_emails WHERE sent_at < :before " +
+            "AND (sent_at > :afterSentAt OR (sent_at = :afterSentAt AND mail_id > :afterId)) " +
+            "AND status NOT IN ('QUEUED', 'SENDING', 'RETRYING') ORDER BY sent_at, mail_id LIMIT :limit")
+    Flux<MailHistoryView> findArchivableAfter(LocalDateTime before, LocalDateTime afterSentAt, long afterId, int limit);
 
     Mono<MailEntity> save(MailEntity mailEntity);
+
+    // Outcome of a delivery attempt on an existing row. sent_at is part of the primary key and lets MySQL
+    // prune to the row's partition; save() would match on mail_id alone and probe every partition
+    @Modifying
+    @Query("UPDATE sent_emails SET status = :status, error_message = :errorMessage, attempts = :attempts, " +
+            "next_attempt_at = :nextAttemptAt, rendered_at = :renderedAt, smtp_handoff_at = :smtpHandoffAt, " +
+            "completed_at = :completedAt, last_modified_date = :lastModifiedDate " +
+            "WHERE mail_id = :mailId AND sent_at = :sentAt")
+    Mono<Integer> updateDelivery(Long mailId, LocalDateTime sentAt, String status, String errorMessage, Integer attempts,
+                                 LocalDateTime nextAttemptAt, LocalDateTime renderedAt, LocalDateTime smtpHandoffAt,
+                                 LocalDateTime completedAt, LocalDate lastModifiedDate);
+
+    @Modifying
+    @Query("UPDATE sent_emails SET status = 'SENDING', claim_token = :claimToken, claimed_at = :now " +
+            "WHERE status = 'QUEUED' OR (status = 'RETRYING' AND next_attempt_at <= :now) ORDER BY mail_id LIMIT :limit")
+    Mono<Integer> claimQueued(String claimToken, LocalDateTime now, int limit);
+
+    Flux<MailEntity> findByClaimTokenAndStatus(String claimToken, String status);
+
+    // Renews a claim before its row is sent; 0 if the claim was re-queued as stale or taken by another node
+    @Modifying
+    @Query("UPDATE sent_emails SET claimed_at = :now WHERE mail_id = :mailId AND sent_at = :sentAt " +
+            "AND status = 'SENDING' AND claim_token = :claimToken")
+    Mono<Integer> renewClaim(Long mailId, LocalDateTime sentAt, String claimToken, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE sent_emails SET status = 'QUEUED', claim_token = NULL, claimed_at = NULL " +
+            "WHERE status = 'SENDING' AND claimed_at < :claimedBefore")
+    Mono<Integer> requeueStaleClaims(LocalDateTime claimedBefore);
 }
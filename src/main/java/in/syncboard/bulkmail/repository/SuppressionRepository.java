@@ -0,0 +1,28 @@
+package in.syncboard.bulkmail.repository;
+
+import in.syncboard.bulkmail.entity.SuppressionEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@Repository
+public interface SuppressionRepository extends ReactiveCrudRepository<SuppressionEntity, Long> {
+
+    Mono<SuppressionEntity> findByEmail(String email);
+
+    @Query("SELECT * FROM mail_suppressions WHERE suppression_id > :afterId ORDER BY suppression_id LIMIT :limit")
+    Flux<SuppressionEntity> findAfter(long afterId, int limit);
+
+    @Modifying
+    @Query("INSERT IGNORE INTO mail_suppressions (email, reason, created_date) VALUES (:email, :reason, :createdDate)")
+    Mono<Integer> insertIgnore(String email, String reason, LocalDate createdDate);
+
+    @Modifying
+    @Query("DELETE FROM mail_suppressions WHERE email = :email")
+    Mono<Integer> deleteByEmail(String email);
+}
@@ -14,4 +14,7 @@ public interface TemplateRepository extends ReactiveCrudRepository<TemplateEntit
 
     @Query("SELECT * FROM email_templates WHERE is_active = true")
     Flux<TemplateEntity> findAllActive();
+
+    @Query("SELECT COALESCE(version, 0) FROM email_templates WHERE template_id = :templateId")
+    Mono<Long> findVersionById(Long templateId);
 }
@@ -0,0 +1,26 @@
+package in.syncboard.bulkmail.service;
+
+import in.syncboard.bulkmail.dto.DeadLetterDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface DeadLetterService {
+
+    /**
+     * Get the oldest dead letters
+     *
+     * @param limit Maximum number to return
+     * @return Flux<DeadLetterDTO> of emails that failed after exhausting their retries
+     */
+    Flux<DeadLetterDTO> getDeadLetters(int limit);
+
+    /**
+     * Put dead-lettered emails back on the send queue with a fresh attempt count
+     *
+     * @param deadLetterIds Dead letters to requeue; null or empty requeues all of them
+     * @return Mono<Long> with the number of dead letters requeued
+     */
+    Mono<Long> requeue(List<Long> deadLetterIds);
+}
@@ -0,0 +1,33 @@
+package in.syncboard.bulkmail.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Looks up whether a domain can receive mail. The production implementation queries DNS; tests can
+ * register their own as a {@code @Primary} bean.
+ */
+public interface DomainResolver {
+
+    enum DomainStatus {
+        /**
+         * Has an MX record, or no MX but an address record to fall back to
+         */
+        DELIVERABLE,
+        /**
+         * Does not exist, has no MX or address records, or publishes a null MX
+         */
+        UNDELIVERABLE,
+        /**
+         * The lookup failed or timed out, so nothing is known either way
+         */
+        UNKNOWN
+    }
+
+    /**
+     * Resolve a domain
+     *
+     * @param domain Lower-case domain name
+     * @return Mono<DomainStatus> for the domain
+     */
+    Mono<DomainStatus> resolve(String domain);
+}
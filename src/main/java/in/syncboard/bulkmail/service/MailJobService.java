@@ -0,0 +1,30 @@
+package in.syncboard.bulkmail.service;
+
+import in.syncboard.bulkmail.dto.MailJobDTO;
+import in.syncboard.bulkmail.dto.MailJobRequestDTO;
+import reactor.core.publisher.Mono;
+
+public interface MailJobService {
+
+    /**
+     * Create a bulk send job and start it in the background
+     *
+     * @param request Template, recipients and variables for the job
+     * @return Mono<MailJobDTO> with the new job's ID and initial counters
+     */
+    Mono<MailJobDTO> createJob(MailJobRequestDTO request);
+
+    /**
+     * Get a job with its live counters
+     *
+     * @param jobId Job ID
+     * @return Mono<MailJobDTO> with the job status
+     */
+    Mono<MailJobDTO> getJob(Long jobId);
+
+    Mono<MailJobDTO> pauseJob(Long jobId);
+
+    Mono<MailJobDTO> resumeJob(Long jobId);
+
+    Mono<MailJobDTO> cancelJob(Long jobId);
+}
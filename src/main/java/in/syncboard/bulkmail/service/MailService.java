@@ -1,5 +1,7 @@
 package in.syncboard.bulkmail.service;
 
+import in.syncboard.bulkmail.dto.EmailValidationDTO;
+import in.syncboard.bulkmail.dto.MailHistoryPageDTO;
 import in.syncboard.bulkmail.dto.MailRequestDTO;
 import in.syncboard.bulkmail.dto.MailResponseDTO;
 import reactor.core.publisher.Flux;
@@ -12,10 +14,10 @@ import java.util.Map;
 public interface MailService {
 
     /**
-     * Send an email using a template from the database
+     * Queue an email using a template from the database. The email is delivered by the background dispatcher.
      *
      * @param mailRequest Email request containing recipient, templateId and variables
-     * @return Mono<MailResponseDTO> with the result of the operation
+     * @return Mono<MailResponseDTO> with the QUEUED record
      */
     Mono<MailResponseDTO> sendTemplateEmail(MailRequestDTO mailRequest);
 
@@ -30,21 +32,25 @@ public interface MailService {
     Flux<MailResponseDTO> sendBulkTemplateEmail(List<String> recipients, Long templateId, Map<String, Object> variables);
 
     /**
-     * Get mail history for a recipient
+     * Get a page of mail history for a recipient, oldest first
      *
      * @param recipient Email address of recipient
-     * @return Flux<MailResponseDTO> with mail history
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param size Page size, or null for the default
+     * @return Mono<MailHistoryPageDTO> with the page and the cursor of the next one
      */
-    Flux<MailResponseDTO> getMailHistoryByRecipient(String recipient);
+    Mono<MailHistoryPageDTO> getMailHistoryByRecipient(String recipient, String cursor, Integer size);
 
     /**
-     * Get mail history for a date range
+     * Get a page of mail history for a date range, oldest first
      *
      * @param startDate Start date
      * @param endDate End date
-     * @return Flux<MailResponseDTO> with mail history
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param size Page size, or null for the default
+     * @return Mono<MailHistoryPageDTO> with the page and the cursor of the next one
      */
-    Flux<MailResponseDTO> getMailHistoryByDateRange(LocalDate startDate, LocalDate endDate);
+    Mono<MailHistoryPageDTO> getMailHistoryByDateRange(LocalDate startDate, LocalDate endDate, String cursor, Integer size);
 
     /**
      * Validate email format and domain
@@ -53,4 +59,12 @@ public interface MailService {
      * @return Mono<Boolean> true if valid
      */
     Mono<Boolean> validateEmail(String email);
+
+    /**
+     * Validate a stream of email addresses
+     *
+     * @param emails Emails to validate
+     * @return Flux<EmailValidationDTO> with one result per email, in input order
+     */
+    Flux<EmailValidationDTO> validateEmails(Flux<String> emails);
 }
@@ -0,0 +1,41 @@
+package in.syncboard.bulkmail.service;
+
+import in.syncboard.bulkmail.dto.LatencyStatsDTO;
+import in.syncboard.bulkmail.dto.MailStatsDTO;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MailStatsService {
+
+    /**
+     * Get delivery counts from the daily rollup
+     *
+     * @param startDate First day, inclusive
+     * @param endDate Last day, inclusive
+     * @param groupBy Dimensions to group by: day, template, domain and/or status; empty means day and status
+     * @param templateId Only count this template, or null for all
+     * @param senderDomain Only count this sender domain, or null for all
+     * @param status Only count this status (SUCCESS, FAILED, RETRYING or SUPPRESSED), or null for all
+     * @return Flux<MailStatsDTO> with one count per group, ordered by the grouped dimensions
+     */
+    Flux<MailStatsDTO> getStats(LocalDate startDate, LocalDate endDate, List<String> groupBy,
+                                Long templateId, String senderDomain, String status);
+
+    /**
+     * Get queueing and send latency percentiles from the hourly latency sketches
+     *
+     * @param from Start of the first window, inclusive; truncated to the hour
+     * @param to End of the last window, exclusive
+     * @param window Window length, a whole number of hours
+     * @param templateId Only include this template, or null for all
+     * @param byTemplate Report each template separately instead of all together
+     * @param quantiles Quantiles to report, each in [0, 1]; empty means 0.5, 0.9, 0.95 and 0.99
+     * @return Flux<LatencyStatsDTO> with one entry per window, metric and (if grouped) template that has data
+     */
+    Flux<LatencyStatsDTO> getLatency(LocalDateTime from, LocalDateTime to, Duration window, Long templateId,
+                                     boolean byTemplate, List<Double> quantiles);
+}
@@ -0,0 +1,51 @@
+package in.syncboard.bulkmail.service;
+
+import in.syncboard.bulkmail.dto.SuppressionDTO;
+import in.syncboard.bulkmail.dto.SuppressionImportResultDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface SuppressionService {
+
+    /**
+     * Add an email to the suppression list
+     *
+     * @param email Email to suppress
+     * @param reason UNSUBSCRIBED, HARD_BOUNCE, COMPLAINT or MANUAL; null means MANUAL
+     * @return Mono<SuppressionDTO> with the suppression, the existing one if already suppressed
+     */
+    Mono<SuppressionDTO> suppress(String email, String reason);
+
+    /**
+     * Add a stream of emails to the suppression list
+     *
+     * @param emails Emails to suppress
+     * @param reason Reason recorded for every email
+     * @return Mono<SuppressionImportResultDTO> with counts of received, newly suppressed and invalid emails
+     */
+    Mono<SuppressionImportResultDTO> importSuppressions(Flux<String> emails, String reason);
+
+    /**
+     * Get the suppression for an email
+     *
+     * @param email Email to look up
+     * @return Mono<SuppressionDTO> with the suppression
+     */
+    Mono<SuppressionDTO> getSuppression(String email);
+
+    /**
+     * Remove an email from the suppression list
+     *
+     * @param email Email to remove
+     * @return Mono<Void> when removed
+     */
+    Mono<Void> removeSuppression(String email);
+
+    /**
+     * Unsubscribe the email a signed unsubscribe token was issued for
+     *
+     * @param token Token from a List-Unsubscribe link
+     * @return Mono<String> with the unsubscribed email
+     */
+    Mono<String> unsubscribe(String token);
+}
@@ -0,0 +1,422 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailHistoryView;
+import in.syncboard.bulkmail.utils.BloomFilter;
+import in.syncboard.bulkmail.utils.EmailUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable file of archived {@code sent_emails} history rows, sorted by (sent_at, mail_id).
+ * <p>
+ * Rows are stored in blocks of {@code blockRows}, each deflate-compressed on its own. After the blocks comes
+ * a sparse index with one entry per block: its file offset, its first and last key, and a Bloom filter of
+ * the normalized recipients in it. The file ends in a fixed-size footer pointing at the index. Readers map
+ * the file and inflate only the blocks the index cannot rule out: a date range query seeks straight to the
+ * first block that can overlap it, a recipient query skips every block whose filter rejects the address.
+ * <p>
+ * Version 2 adds the pipeline timestamps to every row; version 1 files are still read, without them.
+ */
+public final class ArchiveSegment {
+
+    public static final Comparator<MailHistoryView> KEY_ORDER =
+            Comparator.comparing(MailHistoryView::getSentAt).thenComparing(MailHistoryView::getMailId);
+
+    private static final int MAGIC = 0x4D41524B; // "MARK"
+    private static final int VERSION = 2;
+    private static final int MIN_VERSION = 1;
+    private static final int FOOTER_BYTES = 24;
+    private static final double RECIPIENT_FPP = 0.01;
+
+    private final Path path;
+    private final int version;
+    private final MappedByteBuffer data;
+    private final Block[] blocks;
+    private final long rowCount;
+
+    private ArchiveSegment(Path path, int version, MappedByteBuffer data, Block[] blocks) {
+        this.path = path;
+        this.version = version;
+        this.data = data;
+        this.blocks = blocks;
+        long rows = 0;
+        for (Block block : blocks) {
+            rows += block.rows;
+        }
+        this.rowCount = rows;
+    }
+
+    /**
+     * Writes {@code rows}, which must be non-empty and sorted by {@link #KEY_ORDER}, to a new file at
+     * {@code path} and forces it to disk.
+     */
+    public static void write(Path path, List<MailHistoryView> rows, int blockRows) throws IOException {
+        write(path, rows.iterator(), blockRows);
+    }
+
+    /**
+     * Streaming form of {@link #write(Path, List, int)}: holds one block of rows in memory at a time, so
+     * segments larger than the heap can be written from a merge of others.
+     */
+    public static void write(Path path, Iterator<MailHistoryView> rows, int blockRows) throws IOException {
+        List<byte[]> index = new ArrayList<>();
+        long offset = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                List<MailHistoryView> blockRowList = new ArrayList<>(blockRows);
+                while (rows.hasNext()) {
+                    blockRowList.add(rows.next());
+                    if (blockRowList.size() == blockRows || !rows.hasNext()) {
+                        byte[] compressed = compress(blockRowList, deflater);
+                        file.write(compressed);
+                        index.add(indexEntry(blockRowList, offset, compressed.length));
+                        offset += compressed.length;
+                        blockRowList.clear();
+                    }
+                }
+            } finally {
+                deflater.end();
+            }
+            if (index.isEmpty()) {
+                throw new IOException("Archive segment " + path + " would be empty");
+            }
+
+            long indexOffset = offset;
+            int indexLength = 0;
+            for (byte[] entry : index) {
+                file.write(entry);
+                indexLength += entry.length;
+            }
+            DataOutputStream footer = new DataOutputStream(file);
+            footer.writeLong(indexOffset);
+            footer.writeInt(indexLength);
+            footer.writeInt(index.size());
+            footer.writeInt(MAGIC);
+            footer.writeInt(VERSION);
+            footer.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Maps an existing segment file. The mapping outlives the channel and is released with the segment.
+     */
+    public static ArchiveSegment open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < FOOTER_BYTES) {
+                throw new IOException("Archive segment " + path + " is truncated");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int footer = data.capacity() - FOOTER_BYTES;
+        long indexOffset = data.getLong(footer);
+        int indexLength = data.getInt(footer + 8);
+        int blockCount = data.getInt(footer + 12);
+        int version = data.getInt(footer + 20);
+        if (data.getInt(footer + 16) != MAGIC || version < MIN_VERSION || version > VERSION
+                || indexOffset < 0 || indexOffset + indexLength != footer || blockCount <= 0) {
+            throw new IOException("Archive segment " + path + " has an invalid footer");
+        }
+
+        byte[] indexBytes = new byte[indexLength];
+        data.get((int) indexOffset, indexBytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(indexBytes));
+        Block[] blocks = new Block[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i] = new Block(in.readLong(), in.readInt(), in.readInt(),
+                    toDateTime(in.readLong()), in.readLong(), toDateTime(in.readLong()), in.readLong(),
+                    BloomFilter.readFrom(in));
+        }
+        return new ArchiveSegment(path, version, data, blocks);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime firstSentAt() {
+        return blocks[0].firstSentAt;
+    }
+
+    public LocalDateTime lastSentAt() {
+        return blocks[blocks.length - 1].lastSentAt;
+    }
+
+    /**
+     * Up to {@code limit} rows in key order that are after ({@code afterSentAt}, {@code afterId}) when
+     * {@code afterSentAt} is set, sent in [{@code from}, {@code to}) when those are set, and to
+     * {@code recipient} when it is set.
+     */
+    public List<MailHistoryView> find(String recipient, LocalDateTime from, LocalDateTime to,
+                                      LocalDateTime afterSentAt, long afterId, int limit) throws IOException {
+        String normalized = recipient != null ? EmailUtils.normalizeAddress(recipient) : null;
+        List<MailHistoryView> found = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        try {
+            for (int i = firstCandidate(from, afterSentAt, afterId); i < blocks.length && found.size() < limit; i++) {
+                Block block = blocks[i];
+                if (to != null && !block.firstSentAt.isBefore(to)) {
+                    break;
+                }
+                if (normalized != null && !block.recipients.mightContain(normalized)) {
+                    continue;
+                }
+                for (MailHistoryView row : decompress(block, inflater)) {
+                    if (afterSentAt != null && compare(row.getSentAt(), row.getMailId(), afterSentAt, afterId) <= 0
+                            || from != null && row.getSentAt().isBefore(from)
+                            || normalized != null && !normalized.equals(EmailUtils.normalizeAddress(row.getRecipient()))) {
+                        continue;
+                    }
+                    if (to != null && !row.getSentAt().isBefore(to)) {
+                        break;
+                    }
+                    found.add(row);
+                    if (found.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return found;
+    }
+
+    /**
+     * Every row sent in [{@code from}, {@code to}) in key order, inflated one block at a time as the iterator
+     * advances.
+     */
+    public Iterator<MailHistoryView> rows(LocalDateTime from, LocalDateTime to) {
+        return new Iterator<>() {
+            private final Inflater inflater = new Inflater();
+            private int nextBlock = firstCandidate(from, null, 0);
+            private List<MailHistoryView> block = List.of();
+            private int position;
+            private MailHistoryView next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public MailHistoryView next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                MailHistoryView row = next;
+                next = advance();
+                return row;
+            }
+
+            private MailHistoryView advance() {
+                while (true) {
+                    while (position < block.size()) {
+                        MailHistoryView row = block.get(position++);
+                        if (!row.getSentAt().isBefore(to)) {
+                            return finish();
+                        }
+                        if (!row.getSentAt().isBefore(from)) {
+                            return row;
+                        }
+                    }
+                    if (nextBlock == blocks.length || !blocks[nextBlock].firstSentAt.isBefore(to)) {
+                        return finish();
+                    }
+                    try {
+                        block = decompress(blocks[nextBlock++], inflater);
+                    } catch (IOException e) {
+                        inflater.end();
+                        throw new UncheckedIOException(e);
+                    }
+                    position = 0;
+                }
+            }
+
+            private MailHistoryView finish() {
+                inflater.end();
+                nextBlock = blocks.length;
+                block = List.of();
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Index of the first block whose last key is at or after both lower bounds.
+     */
+    private int firstCandidate(LocalDateTime from, LocalDateTime afterSentAt, long afterId) {
+        int low = 0;
+        int high = blocks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Block block = blocks[mid];
+            boolean before = from != null && block.lastSentAt.isBefore(from)
+                    || afterSentAt != null && compare(block.lastSentAt, block.lastMailId, afterSentAt, afterId) <= 0;
+            if (before) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(LocalDateTime sentAt, long mailId, LocalDateTime otherSentAt, long otherId) {
+        int bySentAt = sentAt.compareTo(otherSentAt);
+        return bySentAt != 0 ? bySentAt : Long.compare(mailId, otherId);
+    }
+
+    private static byte[] compress(List<MailHistoryView> rows, Deflater deflater) throws IOException {
+        deflater.reset();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192))) {
+            out.writeInt(rows.size());
+            for (MailHistoryView row : rows) {
+                out.writeLong(row.getMailId());
+                out.writeLong(toMillis(row.getSentAt()));
+                out.writeUTF(row.getRecipient());
+                writeNullable(out, row.getSubject());
+                writeNullable(out, row.getStatus());
+                writeNullable(out, row.getErrorMessage());
+                writeNullable(out, row.getAcceptedAt());
+                writeNullable(out, row.getRenderedAt());
+                writeNullable(out, row.getSmtpHandoffAt());
+                writeNullable(out, row.getCompletedAt());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<MailHistoryView> decompress(Block block, Inflater inflater) throws IOException {
+        inflater.reset();
+        inflater.setInput(data.slice((int) block.offset, block.length));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Archive segment " + path + " has a truncated block at " + block.offset);
+                }
+                bytes.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Archive segment " + path + " has a corrupt block at " + block.offset, e);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        int count = in.readInt();
+        List<MailHistoryView> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long mailId = in.readLong();
+            LocalDateTime sentAt = toDateTime(in.readLong());
+            MailHistoryView row = MailHistoryView.builder()
+                    .mailId(mailId)
+                    .sentAt(sentAt)
+                    .sentDate(sentAt.toLocalDate())
+                    .recipient(in.readUTF())
+                    .subject(readNullable(in))
+                    .status(readNullable(in))
+                    .errorMessage(readNullable(in))
+                    .build();
+            if (version >= 2) {
+                row.setAcceptedAt(readNullableDateTime(in));
+                row.setRenderedAt(readNullableDateTime(in));
+                row.setSmtpHandoffAt(readNullableDateTime(in));
+                row.setCompletedAt(readNullableDateTime(in));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static byte[] indexEntry(List<MailHistoryView> rows, long offset, int length) throws IOException {
+        BloomFilter recipients = new BloomFilter(rows.size(), RECIPIENT_FPP);
+        for (MailHistoryView row : rows) {
+            recipients.put(EmailUtils.normalizeAddress(row.getRecipient()));
+        }
+        MailHistoryView first = rows.get(0);
+        MailHistoryView last = rows.get(rows.size() - 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(offset);
+        out.writeInt(length);
+        out.writeInt(rows.size());
+        out.writeLong(toMillis(first.getSentAt()));
+        out.writeLong(first.getMailId());
+        out.writeLong(toMillis(last.getSentAt()));
+        out.writeLong(last.getMailId());
+        recipients.writeTo(out);
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(toMillis(value));
+        }
+    }
+
+    private static LocalDateTime readNullableDateTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? toDateTime(in.readLong()) : null;
+    }
+
+    // sent_at is a zoneless DATETIME; UTC here only fixes an epoch to count from
+    private static long toMillis(LocalDateTime sentAt) {
+        return sentAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private record Block(long offset, int length, int rows,
+                         LocalDateTime firstSentAt, long firstMailId,
+                         LocalDateTime lastSentAt, long lastMailId,
+                         BloomFilter recipients) {
+    }
+}
@@ -0,0 +1,105 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.entity.TemplateEntity;
+import in.syncboard.bulkmail.repository.MailRepository;
+import in.syncboard.bulkmail.utils.SharedMimeBody;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Backpressured pipeline for bulk sends.
+ * <p>
+ * Each recipient passes through three stages - insert the SENDING row, send over SMTP, persist the final
+ * status - and every stage has its own concurrency limit. DB stages are capped well below the R2DBC pool
+ * size and the SMTP stage below the transport pool size, so a large list queues inside the pipeline
+ * instead of exhausting connections and timing out. Recipients enter the pipeline in the per-domain
+ * round-robin order produced by {@link DomainScheduler}.
+ * <p>
+ * With write-behind status writes enabled the up-front insert is skipped and the final row is written
+ * in a batch by {@link MailStatusWriter}, trading a record of in-flight sends for far fewer round trips.
+ * Since all recipients share the same variables, the body is rendered and MIME-encoded once per run as a
+ * {@link SharedMimeBody} and each message only adds its own recipient header.
+ */
+@Component
+@Slf4j
+public class BulkSendEngine {
+
+    private final MailRepository mailRepository;
+    private final MailDelivery mailDelivery;
+    private final DomainScheduler domainScheduler;
+    private final MailStatusWriter statusWriter;
+    private final int dbConcurrency;
+    private final int smtpConcurrency;
+    private final int prefetch;
+    private final boolean sharedBodyEnabled;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    public BulkSendEngine(MailRepository mailRepository,
+                          MailDelivery mailDelivery,
+                          DomainScheduler domainScheduler,
+                          MailStatusWriter statusWriter,
+                          @Value("${mail.bulk.db-concurrency:4}") int dbConcurrency,
+                          @Value("${mail.bulk.smtp-concurrency:8}") int smtpConcurrency,
+                          @Value("${mail.bulk.prefetch:32}") int prefetch,
+                          @Value("${mail.bulk.shared-body:true}") boolean sharedBodyEnabled) {
+        this.mailRepository = mailRepository;
+        this.mailDelivery = mailDelivery;
+        this.domainScheduler = domainScheduler;
+        this.statusWriter = statusWriter;
+        this.dbConcurrency = dbConcurrency;
+        this.smtpConcurrency = smtpConcurrency;
+        this.prefetch = prefetch;
+        this.sharedBodyEnabled = sharedBodyEnabled;
+    }
+
+    public Flux<MailEntity> send(Flux<MailEntity> mails, TemplateEntity template, Map<String, Object> variables) {
+        log.debug("Starting bulk send for template {} (db={}, smtp={}, prefetch={})",
+                template.getTemplateId(), dbConcurrency, smtpConcurrency, prefetch);
+
+        // Every recipient gets the same variables, so render and encode the body once for the whole run
+        Mono<SharedMimeBody> sharedBody = sharedBodyEnabled
+                ? mailDelivery.prepareSharedBody(template, variables, template.getSubject(), fromEmail)
+                        .onErrorResume(e -> {
+                            log.debug("Falling back to per-recipient MIME for template {}: {}", template.getTemplateId(), e.getMessage());
+                            return Mono.empty();
+                        })
+                        .cache()
+                : Mono.empty();
+
+        Flux<MailEntity> scheduled = domainScheduler.schedule(mails)
+                .limitRate(prefetch);
+
+        if (statusWriter.isWriteBehind()) {
+            // No SENDING row up front: send, then insert the final row in a batch
+            return scheduled
+                    .flatMap(mail -> sendOne(mail, template, variables, sharedBody), smtpConcurrency)
+                    .flatMap(mailDelivery::record, statusWriter.maxPending());
+        }
+
+        return scheduled
+                // Save initial record to get an ID
+                .flatMap(mailRepository::save, dbConcurrency)
+                .flatMap(savedMail -> sendOne(savedMail, template, variables, sharedBody), smtpConcurrency)
+                // Update the mail record with the final status
+                .flatMap(mailDelivery::record, dbConcurrency);
+    }
+
+    private Mono<MailEntity> sendOne(MailEntity mail, TemplateEntity template, Map<String, Object> variables,
+                                     Mono<SharedMimeBody> sharedBody) {
+        if (!Objects.equals(template.getSubject(), mail.getSubject()) || !Objects.equals(fromEmail, mail.getSender())) {
+            return mailDelivery.send(mail, template, variables);
+        }
+        return sharedBody
+                .flatMap(body -> mailDelivery.send(mail, body))
+                .switchIfEmpty(Mono.defer(() -> mailDelivery.send(mail, template, variables)));
+    }
+}
@@ -0,0 +1,109 @@
+package in.syncboard.bulkmail.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.syncboard.bulkmail.entity.CampaignEntity;
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.repository.CampaignRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores the variables of a bulk send once in {@code mail_campaigns} instead of on every
+ * {@code sent_emails} row. Rows reference their campaign and keep only the variables that differ for
+ * that recipient. Sends without variables need no campaign; their rows have no {@code campaign_id}.
+ */
+@Component
+@Slf4j
+public class CampaignStore {
+
+    private static final TypeReference<Map<String, Object>> VARIABLES_TYPE = new TypeReference<>() {};
+
+    private final CampaignRepository campaignRepository;
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<Long, Map<String, Object>> campaignVariables = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .buildAsync();
+
+    public CampaignStore(CampaignRepository campaignRepository, ObjectMapper objectMapper) {
+        this.campaignRepository = campaignRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public Mono<CampaignEntity> create(Long templateId, Map<String, Object> variables) {
+        return Mono.fromCallable(() -> CampaignEntity.builder()
+                        .templateId(templateId)
+                        .variables(writeVariables(variables))
+                        .build())
+                .flatMap(campaignRepository::save)
+                .doOnNext(campaign -> campaignVariables.put(campaign.getCampaignId(),
+                        CompletableFuture.completedFuture(nonNull(variables))));
+    }
+
+    /**
+     * The variables a row was rendered with: its campaign's variables overlaid with its own.
+     */
+    public Mono<Map<String, Object>> variablesFor(MailEntity mail) {
+        Map<String, Object> own = readVariables(mail.getVariables());
+        if (mail.getCampaignId() == null) {
+            return Mono.just(nonNull(own));
+        }
+        return variables(mail.getCampaignId())
+                .map(shared -> {
+                    if (own == null || own.isEmpty()) {
+                        return shared;
+                    }
+                    Map<String, Object> merged = new HashMap<>(shared);
+                    merged.putAll(own);
+                    return merged;
+                });
+    }
+
+    /**
+     * The variables stored on a campaign, empty if it has none.
+     */
+    public Mono<Map<String, Object>> variables(Long campaignId) {
+        return Mono.fromFuture(() -> campaignVariables.get(campaignId, (id, executor) ->
+                campaignRepository.findById(id)
+                        .map(campaign -> nonNull(readVariables(campaign.getVariables())))
+                        .defaultIfEmpty(Collections.emptyMap())
+                        .toFuture()));
+    }
+
+    private String writeVariables(Map<String, Object> variables) {
+        if (variables == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing variables: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Object> readVariables(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, VARIABLES_TYPE);
+        } catch (JsonProcessingException e) {
+            log.error("Error deserializing variables: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<String, Object> nonNull(Map<String, Object> variables) {
+        return variables != null ? variables : Collections.emptyMap();
+    }
+}
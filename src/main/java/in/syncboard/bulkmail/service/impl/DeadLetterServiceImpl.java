@@ -0,0 +1,97 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.dto.DeadLetterDTO;
+import in.syncboard.bulkmail.entity.DeadLetterEntity;
+import in.syncboard.bulkmail.repository.DeadLetterRepository;
+import in.syncboard.bulkmail.service.DeadLetterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterServiceImpl implements DeadLetterService {
+
+    // Requeue in bounded batches so a large backlog never becomes one huge statement or transaction
+    private static final int REQUEUE_BATCH_SIZE = 500;
+
+    private final DeadLetterRepository deadLetterRepository;
+    private final MailDispatcher mailDispatcher;
+    private final TransactionalOperator transactionalOperator;
+
+    @Override
+    public Flux<DeadLetterDTO> getDeadLetters(int limit) {
+        return deadLetterRepository.findOldest(limit)
+                .map(this::toDTO);
+    }
+
+    @Override
+    public Mono<Long> requeue(List<Long> deadLetterIds) {
+        Mono<Long> requeued = deadLetterIds == null || deadLetterIds.isEmpty()
+                ? requeueAll()
+                : Flux.fromIterable(deadLetterIds)
+                        .distinct()
+                        .buffer(REQUEUE_BATCH_SIZE)
+                        .concatMap(this::requeueBatch)
+                        .reduce(0L, Long::sum);
+
+        return requeued.doOnNext(count -> {
+            if (count > 0) {
+                log.info("Requeued {} dead-lettered emails", count);
+                mailDispatcher.wakeUp();
+            }
+        });
+    }
+
+    private Mono<Long> requeueAll() {
+        // Pages by dead_letter_id, since entries that cannot be requeued stay behind and would come back first
+        return requeuePage(0L)
+                .expand(page -> page.scanned() == REQUEUE_BATCH_SIZE ? requeuePage(page.lastId()) : Mono.empty())
+                .map(RequeuePage::requeued)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<RequeuePage> requeuePage(long afterId) {
+        return deadLetterRepository.findIdsAfter(afterId, REQUEUE_BATCH_SIZE)
+                .collectList()
+                .filter(ids -> !ids.isEmpty())
+                .flatMap(ids -> requeueBatch(ids)
+                        .map(requeued -> new RequeuePage(ids.size(), ids.get(ids.size() - 1), requeued)));
+    }
+
+    /**
+     * Requeues the mails of those entries whose mail is still FAILED and deletes just those entries; the
+     * rest (mail already requeued, resent or archived) are left for inspection. Returns the mails requeued.
+     */
+    private Mono<Long> requeueBatch(List<Long> deadLetterIds) {
+        return deadLetterRepository.lockRequeueable(deadLetterIds)
+                .collectList()
+                .flatMap(requeueable -> requeueable.isEmpty()
+                        ? Mono.just(0L)
+                        : deadLetterRepository.requeueMails(requeueable)
+                                .flatMap(requeued -> deadLetterRepository.deleteByDeadLetterIdIn(requeueable)
+                                        .thenReturn(requeued.longValue())))
+                .as(transactionalOperator::transactional);
+    }
+
+    private DeadLetterDTO toDTO(DeadLetterEntity entity) {
+        return DeadLetterDTO.builder()
+                .deadLetterId(entity.getDeadLetterId())
+                .mailId(entity.getMailId())
+                .recipient(entity.getRecipient())
+                .templateId(entity.getTemplateId())
+                .attempts(entity.getAttempts())
+                .lastError(entity.getLastError())
+                .createdDate(entity.getCreatedDate())
+                .build();
+    }
+
+    private record RequeuePage(int scanned, long lastId, long requeued) {
+    }
+}
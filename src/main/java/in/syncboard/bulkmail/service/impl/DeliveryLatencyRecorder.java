@@ -0,0 +1,169 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.utils.LatencySketch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects per-attempt delivery latencies into {@link LatencySketch}es, one per hour, template and metric,
+ * and stores them in {@code mail_latency_sketches} for the latency endpoint to merge.
+ * <p>
+ * {@code queue} is the time from acceptance to SMTP handoff - dispatch, rendering and, for retried
+ * messages, the backoff - and {@code send} the time from handoff to the relay's answer. Each instance
+ * writes its own rows under a random node ID, replacing them with its cumulative sketch on every
+ * {@code mail.latency.flush-interval}, so flushes never read or add to another instance's counts. An hour
+ * is dropped from memory once it has been flushed after closing; values that still arrive for it are
+ * discarded rather than overwriting its stored sketch.
+ */
+@Component
+@Slf4j
+public class DeliveryLatencyRecorder {
+
+    public static final String QUEUE = "queue";
+    public static final String SEND = "send";
+
+    private static final String UPSERT = "INSERT INTO mail_latency_sketches " +
+            "(window_start, template_id, metric, node_id, value_count, sketch) VALUES ";
+
+    // Late results are still counted in the hour they belong to for this long after it closes
+    private static final Duration CLOSE_GRACE = Duration.ofMinutes(1);
+    private static final long NO_TEMPLATE = 0;
+
+    private final DatabaseClient databaseClient;
+    private final Duration flushInterval;
+    private final int flushRows;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Key, LatencySketch> sketches = new ConcurrentHashMap<>();
+    private volatile LocalDateTime retiredBefore = LocalDateTime.MIN;
+
+    private Disposable flusher;
+
+    public DeliveryLatencyRecorder(DatabaseClient databaseClient,
+                                   @Value("${mail.latency.flush-interval:30s}") Duration flushInterval,
+                                   @Value("${mail.latency.flush-rows:200}") int flushRows) {
+        this.databaseClient = databaseClient;
+        this.flushInterval = flushInterval;
+        this.flushRows = Math.max(1, flushRows);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flusher = Flux.interval(flushInterval, flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Adds the latencies of the attempt just completed on {@code mail}. Timestamps that are missing, such
+     * as the acceptance time of rows queued before it was recorded, skip the affected metric.
+     */
+    public void record(MailEntity mail) {
+        LocalDateTime completedAt = mail.getCompletedAt();
+        LocalDateTime handoffAt = mail.getSmtpHandoffAt();
+        if (completedAt == null || handoffAt == null) {
+            return;
+        }
+        LocalDateTime window = completedAt.truncatedTo(ChronoUnit.HOURS);
+        if (window.isBefore(retiredBefore)) {
+            return;
+        }
+        long templateId = mail.getTemplateId() != null ? mail.getTemplateId() : NO_TEMPLATE;
+        if (mail.getAcceptedAt() != null) {
+            sketch(window, templateId, QUEUE).add(Math.max(0, Duration.between(mail.getAcceptedAt(), handoffAt).toMillis()));
+        }
+        sketch(window, templateId, SEND).add(Math.max(0, Duration.between(handoffAt, completedAt).toMillis()));
+    }
+
+    /**
+     * Stores the current sketch of every open hour, and of hours that closed since the last flush.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            if (sketches.isEmpty()) {
+                return Mono.empty();
+            }
+            LocalDateTime closedBefore = LocalDateTime.now().minus(CLOSE_GRACE).truncatedTo(ChronoUnit.HOURS);
+            List<Map.Entry<Key, LatencySketch>> pending = new ArrayList<>(sketches.entrySet());
+            return Flux.fromIterable(pending)
+                    .buffer(flushRows)
+                    .concatMap(this::upsert)
+                    .then(Mono.fromRunnable(() -> retire(closedBefore)))
+                    .onErrorResume(e -> {
+                        // Sketches are cumulative, so the next flush writes everything this one missed
+                        log.error("Flushing {} latency sketches failed: {}", pending.size(), e.getMessage());
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    private Mono<Long> upsert(List<Map.Entry<Key, LatencySketch>> batch) {
+        StringBuilder sql = new StringBuilder(UPSERT);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i > 0 ? ", " : "")
+                    .append("(:window").append(i).append(", :template").append(i).append(", :metric").append(i)
+                    .append(", :node, :count").append(i).append(", :sketch").append(i).append(")");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE value_count = VALUES(value_count), sketch = VALUES(sketch)");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("node", nodeId);
+        for (int i = 0; i < batch.size(); i++) {
+            Key key = batch.get(i).getKey();
+            LatencySketch sketch = batch.get(i).getValue();
+            // Serialized under the sketch's lock, so count and buckets agree
+            byte[] bytes;
+            long count;
+            synchronized (sketch) {
+                bytes = sketch.toBytes();
+                count = sketch.count();
+            }
+            spec = spec.bind("window" + i, key.window())
+                    .bind("template" + i, key.templateId())
+                    .bind("metric" + i, key.metric())
+                    .bind("count" + i, count)
+                    .bind("sketch" + i, bytes);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private void retire(LocalDateTime closedBefore) {
+        // Values for these hours arriving from now on are dropped, so their stored sketches stay final
+        retiredBefore = closedBefore;
+        sketches.keySet().removeIf(key -> key.window().isBefore(closedBefore));
+    }
+
+    private LatencySketch sketch(LocalDateTime window, long templateId, String metric) {
+        return sketches.computeIfAbsent(new Key(window, templateId, metric), key -> new LatencySketch());
+    }
+
+    private record Key(LocalDateTime window, long templateId, String metric) {
+    }
+}
@@ -0,0 +1,95 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.service.DomainResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.time.Duration;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DomainResolver} backed by the JDK's DNS provider.
+ * <p>
+ * A domain is deliverable if it has MX records, or failing that A/AAAA records (the implicit MX of
+ * RFC 5321). A missing domain, one with neither, or one publishing the RFC 7505 null MX ({@code 0 .})
+ * is undeliverable. Any other DNS failure is UNKNOWN so that an unreachable resolver never blocks sends.
+ * Lookups block, so they run on the bounded-elastic pool; {@link DomainVerifier} caches the results.
+ */
+@Component
+@Slf4j
+public class DnsDomainResolver implements DomainResolver {
+
+    private static final String[] MX = {"MX"};
+    private static final String[] ADDRESS = {"A", "AAAA"};
+
+    private final Hashtable<String, String> environment = new Hashtable<>();
+
+    public DnsDomainResolver(@Value("${mail.domain-check.dns-servers:}") List<String> dnsServers,
+                             @Value("${mail.domain-check.dns-timeout:2s}") Duration timeout,
+                             @Value("${mail.domain-check.dns-retries:1}") int retries) {
+        environment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+        // "dns:" alone uses the servers the operating system is configured with
+        String servers = dnsServers.stream()
+                .filter(server -> !server.isBlank())
+                .map(server -> "dns://" + server.trim())
+                .collect(Collectors.joining(" "));
+        environment.put(Context.PROVIDER_URL, servers.isEmpty() ? "dns:" : servers);
+        environment.put("com.sun.jndi.dns.timeout.initial", String.valueOf(timeout.toMillis()));
+        environment.put("com.sun.jndi.dns.timeout.retries", String.valueOf(retries));
+    }
+
+    @Override
+    public Mono<DomainStatus> resolve(String domain) {
+        return Mono.fromCallable(() -> lookup(domain))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    DomainStatus lookup(String domain) {
+        // Fully qualified, so no search domain is ever appended
+        String name = domain.endsWith(".") ? domain : domain + ".";
+        DirContext context = null;
+        try {
+            context = new InitialDirContext(environment);
+            Attribute mx = context.getAttributes(name, MX).get("MX");
+            if (mx != null && mx.size() > 0) {
+                return isNullMx(mx) ? DomainStatus.UNDELIVERABLE : DomainStatus.DELIVERABLE;
+            }
+            Attributes addresses = context.getAttributes(name, ADDRESS);
+            return addresses.size() > 0 ? DomainStatus.DELIVERABLE : DomainStatus.UNDELIVERABLE;
+        } catch (NameNotFoundException e) {
+            return DomainStatus.UNDELIVERABLE;
+        } catch (NamingException e) {
+            log.debug("DNS lookup for {} failed: {}", domain, e.getMessage());
+            return DomainStatus.UNKNOWN;
+        } finally {
+            if (context != null) {
+                try {
+                    context.close();
+                } catch (NamingException e) {
+                    log.debug("Error closing DNS context: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isNullMx(Attribute mx) throws NamingException {
+        if (mx.size() != 1) {
+            return false;
+        }
+        // Records come back as "<preference> <exchange>"
+        String[] parts = String.valueOf(mx.get(0)).trim().split("\\s+");
+        return parts.length == 2 && ".".equals(parts[1]) && "0".equals(parts[0]);
+    }
+}
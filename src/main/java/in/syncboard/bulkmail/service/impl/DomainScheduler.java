@@ -0,0 +1,315 @@
+package in.syncboard.bulkmail.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.syncboard.bulkmail.config.DomainRateLimitProperties;
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.utils.EmailUtils;
+import in.syncboard.bulkmail.utils.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orders outgoing mail so no single destination domain is flooded.
+ * <p>
+ * Recipients are read from the stream as it is consumed, queued by domain and released round-robin, one
+ * per domain per turn, each release taking a token from that domain's {@link TokenBucket}. A domain that
+ * is out of tokens is skipped for the turn rather than holding up the others. At most
+ * {@code mail.domain-limits.max-queued} messages are held at once; once any domain holds
+ * {@code max-queued-per-domain}, reading pauses until it drains, so one large domain cannot fill the
+ * buffer and starve the rest. Buckets are shared by every send on this node and dropped after
+ * {@code bucket-idle-timeout} unused.
+ * <p>
+ * Metrics are tagged by domain only for domains with an explicit limit; everything else is reported
+ * under {@code domain=default} to keep tag cardinality bounded.
+ */
+@Component
+@Slf4j
+public class DomainScheduler {
+
+    private static final String DEFAULT_TAG = "default";
+
+    private final DomainRateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<String, AtomicInteger> queueDepths = new ConcurrentHashMap<>();
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+
+    public DomainScheduler(DomainRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getBucketIdleTimeout())
+                .build();
+    }
+
+    public Flux<MailEntity> schedule(Flux<MailEntity> mails) {
+        if (!properties.isEnabled()) {
+            return mails;
+        }
+        return Flux.create(sink -> new RoundRobin(sink).start(mails));
+    }
+
+    private TokenBucket bucketFor(String domain) {
+        return buckets.get(domain, d -> {
+            DomainRateLimitProperties.Limit limit = properties.limitFor(d);
+            return new TokenBucket(limit.getRatePerSecond(), limit.getBurst());
+        });
+    }
+
+    private String metricTag(String domain) {
+        return properties.getDomains().containsKey(domain) ? domain : DEFAULT_TAG;
+    }
+
+    private AtomicInteger queueDepth(String tag) {
+        return queueDepths.computeIfAbsent(tag, t ->
+                meterRegistry.gauge("mail.domain.queue.depth", Tags.of("domain", t), new AtomicInteger()));
+    }
+
+    private Timer waitTimer(String tag) {
+        return waitTimers.computeIfAbsent(tag, t -> Timer.builder("mail.domain.wait")
+                .description("Time a message waited for its destination domain's rate limit")
+                .tag("domain", t)
+                .register(meterRegistry));
+    }
+
+    private static String domainOf(MailEntity mail) {
+        String domain = EmailUtils.normalizedDomain(mail.getRecipient());
+        return domain != null ? domain : "";
+    }
+
+    /**
+     * State of one {@link #schedule} call. Upstream signals, downstream requests and throttle timers all
+     * end in {@link #drain}; state is guarded by this object's monitor and a reentrant call only marks that
+     * another pass is needed.
+     */
+    private final class RoundRobin extends BaseSubscriber<MailEntity> {
+        private final FluxSink<MailEntity> sink;
+        private final int maxQueued = Math.max(1, properties.getMaxQueued());
+        private final int maxQueuedPerDomain = Math.max(1, properties.getMaxQueuedPerDomain());
+        private final Map<String, DomainQueue> byDomain = new HashMap<>();
+        private final List<DomainQueue> queues = new ArrayList<>();
+        private int cursor;
+        private int queued;
+        private int requested;
+        private int fullQueues;
+        private boolean upstreamDone;
+        private boolean draining;
+        private boolean missed;
+        private boolean finished;
+        private Disposable timer;
+
+        private RoundRobin(FluxSink<MailEntity> sink) {
+            this.sink = sink;
+        }
+
+        private void start(Flux<MailEntity> mails) {
+            sink.onRequest(n -> drain());
+            sink.onDispose(this::abandon);
+            mails.subscribe(this);
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            drain();
+        }
+
+        @Override
+        protected void hookOnNext(MailEntity mail) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                requested--;
+                String domain = domainOf(mail);
+                DomainQueue queue = byDomain.get(domain);
+                if (queue == null) {
+                    queue = new DomainQueue(domain);
+                    byDomain.put(domain, queue);
+                    queues.add(queue);
+                }
+                queue.add(mail);
+                queued++;
+                if (queue.pending.size() == maxQueuedPerDomain) {
+                    fullQueues++;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            synchronized (this) {
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable error) {
+            synchronized (this) {
+                upstreamDone = true;
+                finished = true;
+            }
+            sink.error(error);
+        }
+
+        private synchronized void drain() {
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+            try {
+                do {
+                    missed = false;
+                    drainOnce();
+                } while (missed);
+            } finally {
+                draining = false;
+            }
+        }
+
+        private void drainOnce() {
+            if (finished) {
+                return;
+            }
+            long minWait = Long.MAX_VALUE;
+            while (queued > 0 && sink.requestedFromDownstream() > 0) {
+                long wait = releaseNext();
+                if (wait > 0) {
+                    minWait = wait;
+                    break;
+                }
+            }
+            if (upstreamDone && queued == 0) {
+                finished = true;
+                sink.complete();
+                return;
+            }
+            if (minWait != Long.MAX_VALUE && timer == null) {
+                // Every domain with pending mail is throttled; come back when the soonest token is due
+                timer = Mono.delay(Duration.ofNanos(minWait)).subscribe(tick -> {
+                    synchronized (this) {
+                        timer = null;
+                    }
+                    drain();
+                });
+            }
+            int wanted = maxQueued - queued - requested;
+            // Requests made before the upstream subscription exists would be lost
+            if (upstream() != null && !upstreamDone && fullQueues == 0 && wanted > 0) {
+                requested += wanted;
+                request(wanted);
+            }
+        }
+
+        /**
+         * Releases one message from the next domain with a token.
+         *
+         * @return 0 if one was released, otherwise the nanoseconds until the soonest token
+         */
+        private long releaseNext() {
+            long minWait = Long.MAX_VALUE;
+            for (int i = 0; i < queues.size(); i++) {
+                DomainQueue queue = queues.get(cursor);
+                long wait = queue.tryAcquire();
+                if (wait == 0) {
+                    if (queue.pending.size() == maxQueuedPerDomain) {
+                        fullQueues--;
+                    }
+                    MailEntity mail = queue.release();
+                    queued--;
+                    if (queue.pending.isEmpty()) {
+                        // Drop drained domains so a long stream over many domains does not keep them all
+                        byDomain.remove(queue.domain);
+                        queues.remove(cursor);
+                    } else {
+                        cursor++;
+                    }
+                    if (cursor >= queues.size()) {
+                        cursor = 0;
+                    }
+                    sink.next(mail);
+                    return 0;
+                }
+                minWait = Math.min(minWait, wait);
+                cursor = (cursor + 1) % queues.size();
+            }
+            return minWait;
+        }
+
+        private void abandon() {
+            // Cancelled or failed downstream; stop reading and drop whatever is still queued from the gauges
+            dispose();
+            synchronized (this) {
+                finished = true;
+                if (timer != null) {
+                    timer.dispose();
+                }
+                queues.forEach(DomainQueue::clear);
+                queues.clear();
+                byDomain.clear();
+                queued = 0;
+            }
+        }
+    }
+
+    private final class DomainQueue {
+        private final String domain;
+        private final AtomicInteger depth;
+        private final Timer waitTimer;
+        private final ArrayDeque<MailEntity> pending = new ArrayDeque<>();
+        private final ArrayDeque<Long> enqueuedAt = new ArrayDeque<>();
+
+        private DomainQueue(String domain) {
+            String tag = metricTag(domain);
+            this.domain = domain;
+            this.depth = queueDepth(tag);
+            this.waitTimer = waitTimer(tag);
+        }
+
+        private long tryAcquire() {
+            // Looked up on every use so an active domain's bucket never idles out of the cache
+            return bucketFor(domain).tryAcquire();
+        }
+
+        private void add(MailEntity mail) {
+            pending.addLast(mail);
+            enqueuedAt.addLast(System.nanoTime());
+            depth.incrementAndGet();
+        }
+
+        private MailEntity release() {
+            waitTimer.record(System.nanoTime() - enqueuedAt.removeFirst(), TimeUnit.NANOSECONDS);
+            depth.decrementAndGet();
+            return pending.removeFirst();
+        }
+
+        private void clear() {
+            depth.addAndGet(-pending.size());
+            pending.clear();
+            enqueuedAt.clear();
+        }
+    }
+}
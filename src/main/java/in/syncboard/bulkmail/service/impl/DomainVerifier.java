@@ -0,0 +1,104 @@
+package in.syncboard.bulkmail.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import in.syncboard.bulkmail.service.DomainResolver;
+import in.syncboard.bulkmail.service.DomainResolver.DomainStatus;
+import in.syncboard.bulkmail.utils.EmailUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Size-bounded cache in front of {@link DomainResolver}, so each recipient domain is looked up once per TTL
+ * rather than once per email.
+ * <p>
+ * Deliverable domains are kept for {@code mail.domain-check.ttl}. Undeliverable ones are cached too, for the
+ * shorter {@code negative-ttl}, so a list full of addresses at a dead domain costs one lookup. UNKNOWN
+ * results (DNS timeouts and errors) are only kept for {@code unknown-ttl} and never block a send.
+ * Concurrent lookups for the same domain share one resolver call. Hit, miss and eviction counts are
+ * published as {@code cache.*{cache=domains}}.
+ */
+@Component
+@Slf4j
+public class DomainVerifier {
+
+    private final DomainResolver resolver;
+    private final boolean enabled;
+    private final Duration lookupTimeout;
+    private final AsyncCache<String, DomainStatus> cache;
+
+    public DomainVerifier(DomainResolver resolver,
+                          MeterRegistry meterRegistry,
+                          @Value("${mail.domain-check.enabled:true}") boolean enabled,
+                          @Value("${mail.domain-check.cache-size:10000}") long maxSize,
+                          @Value("${mail.domain-check.ttl:1h}") Duration ttl,
+                          @Value("${mail.domain-check.negative-ttl:10m}") Duration negativeTtl,
+                          @Value("${mail.domain-check.unknown-ttl:30s}") Duration unknownTtl,
+                          @Value("${mail.domain-check.lookup-timeout:5s}") Duration lookupTimeout) {
+        this.resolver = resolver;
+        this.enabled = enabled;
+        this.lookupTimeout = lookupTimeout;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, DomainStatus>creating((domain, status) -> switch (status) {
+                    case DELIVERABLE -> ttl;
+                    case UNDELIVERABLE -> negativeTtl;
+                    case UNKNOWN -> unknownTtl;
+                }))
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), "domains", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Status of a lower-case domain; UNKNOWN when checks are disabled.
+     */
+    public Mono<DomainStatus> check(String domain) {
+        if (!enabled) {
+            return Mono.just(DomainStatus.UNKNOWN);
+        }
+        // Suppress cancellation: the future is shared with every other caller waiting on this domain
+        return Mono.fromFuture(() -> cache.get(domain, (key, executor) -> resolve(key).toFuture()), true);
+    }
+
+    /**
+     * Status of the domain of {@code email}; UNKNOWN when the address is not valid.
+     */
+    public Mono<DomainStatus> checkRecipient(String email) {
+        int offset = EmailUtils.domainOffset(email);
+        if (offset < 0) {
+            return Mono.just(DomainStatus.UNKNOWN);
+        }
+        return check(EmailUtils.normalizeDomain(email, offset));
+    }
+
+    /**
+     * Whether {@code email} is well formed and its domain is not known to reject mail.
+     */
+    public Mono<Boolean> isDeliverable(String email) {
+        if (!EmailUtils.isValidEmail(email)) {
+            return Mono.just(false);
+        }
+        return checkRecipient(email)
+                .map(status -> status != DomainStatus.UNDELIVERABLE);
+    }
+
+    private Mono<DomainStatus> resolve(String domain) {
+        return resolver.resolve(domain)
+                .timeout(lookupTimeout)
+                .defaultIfEmpty(DomainStatus.UNKNOWN)
+                .doOnNext(status -> log.debug("Domain {} resolved as {}", domain, status))
+                .onErrorResume(e -> {
+                    log.debug("Error resolving domain {}: {}", domain, e.getMessage());
+                    return Mono.just(DomainStatus.UNKNOWN);
+                });
+    }
+}
@@ -0,0 +1,57 @@
+package in.syncboard.bulkmail.service.impl;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Named leases in {@code mail_leases} that elect one node for work that must not run on several at once.
+ * <p>
+ * A lease is held by one node until it expires; the holder extends it by acquiring it again before then,
+ * and any node may take it over once it has expired. Holders renew at least once per unit of work that
+ * takes less than the lease duration, and stop when renewing fails. Expiry is compared with each node's
+ * own clock, so node clocks must be kept in sync.
+ */
+@Component
+public class LeaderLease {
+
+    private final DatabaseClient databaseClient;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public LeaderLease(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Takes or renews the lease {@code name} for {@code duration}.
+     *
+     * @return true if this node holds the lease now
+     */
+    public Mono<Boolean> acquire(String name, Duration duration) {
+        return Mono.defer(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plus(duration);
+            return databaseClient.sql("INSERT IGNORE INTO mail_leases (lease_name, owner_id, expires_at) VALUES (:name, :owner, :expiresAt)")
+                    .bind("name", name)
+                    .bind("owner", nodeId)
+                    .bind("expiresAt", expiresAt)
+                    .fetch()
+                    .rowsUpdated()
+                    .flatMap(inserted -> inserted > 0
+                            ? Mono.just(1L)
+                            : databaseClient.sql("UPDATE mail_leases SET owner_id = :owner, expires_at = :expiresAt " +
+                                            "WHERE lease_name = :name AND (owner_id = :owner OR expires_at < :now)")
+                                    .bind("name", name)
+                                    .bind("owner", nodeId)
+                                    .bind("expiresAt", expiresAt)
+                                    .bind("now", now)
+                                    .fetch()
+                                    .rowsUpdated())
+                    .map(updated -> updated > 0);
+        });
+    }
+}
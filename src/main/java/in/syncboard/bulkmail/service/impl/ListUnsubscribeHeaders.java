@@ -0,0 +1,56 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.utils.UnsubscribeTokens;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds {@code List-Unsubscribe} to outgoing messages, and {@code List-Unsubscribe-Post} for one-click
+ * unsubscribe (RFC 8058) when there is an HTTPS link. The link points at {@code POST /api/v1/unsubscribe}
+ * with a signed token for the recipient; nothing is added unless {@code mail.unsubscribe.base-url} or
+ * {@code mail.unsubscribe.mailto} is set.
+ */
+@Component
+public class ListUnsubscribeHeaders {
+
+    private final UnsubscribeTokens unsubscribeTokens;
+    private final String linkPrefix;
+    private final String mailto;
+    private final boolean oneClick;
+
+    public ListUnsubscribeHeaders(UnsubscribeTokens unsubscribeTokens,
+                                  @Value("${mail.unsubscribe.base-url:}") String baseUrl,
+                                  @Value("${mail.unsubscribe.mailto:}") String mailto) {
+        this.unsubscribeTokens = unsubscribeTokens;
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.linkPrefix = base.isBlank() ? null : base + "/api/v1/unsubscribe?token=";
+        this.mailto = mailto.isBlank() ? null : mailto.trim();
+        this.oneClick = base.startsWith("https://");
+    }
+
+    public boolean isEnabled() {
+        return linkPrefix != null || mailto != null;
+    }
+
+    public void apply(MimeMessage message, String recipient) throws MessagingException {
+        if (!isEnabled()) {
+            return;
+        }
+        StringBuilder value = new StringBuilder();
+        if (linkPrefix != null) {
+            value.append('<').append(linkPrefix).append(unsubscribeTokens.create(recipient)).append('>');
+        }
+        if (mailto != null) {
+            if (!value.isEmpty()) {
+                value.append(", ");
+            }
+            value.append("<mailto:").append(mailto).append("?subject=unsubscribe>");
+        }
+        message.setHeader("List-Unsubscribe", value.toString());
+        if (oneClick && linkPrefix != null) {
+            message.setHeader("List-Unsubscribe-Post", "List-Unsubscribe=One-Click");
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailHistoryView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * The cold tier of mail history: {@link ArchiveSegment} files under {@code mail.archive.directory}, written
+ * by {@link MailArchiver} and read by {@link MailHistoryReader} alongside {@code sent_emails}.
+ * <p>
+ * The directory must be storage shared by every node, since rows leave the shared {@code sent_emails} table
+ * once archived. Only the node holding the archiver lease writes to it; every node rescans it each
+ * {@code mail.archive.refresh-interval}, opening new or rewritten files and dropping removed ones.
+ * <p>
+ * Segments are immutable. Each is written to a temporary file, forced to disk and renamed into place, so
+ * a crash leaves either a complete segment or none. The archiver appends {@code history-*} segments and
+ * compacts them into one {@code day-YYYY-MM-DD} segment per completed day, keeping the number of files (and
+ * of memory mappings, which {@code vm.max_map_count} caps) proportional to days rather than runs. The set of
+ * open segments is an immutable list replaced on every change; a reader may briefly see a day file beside
+ * the segments it replaced, so queries drop repeated keys. Queries run on {@code boundedElastic} because
+ * inflating blocks and faulting in mapped pages may block.
+ */
+@Component
+@Slf4j
+public class MailArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String HISTORY_PREFIX = "history-";
+    private static final String DAY_PREFIX = "day-";
+
+    private final Path directory;
+    private final int blockRows;
+    private final Duration refreshInterval;
+
+    private final Map<Path, OpenSegment> opened = new HashMap<>();
+    private volatile List<ArchiveSegment> segments = List.of();
+    private Disposable refresher;
+
+    public MailArchive(@Value("${mail.archive.directory:data/mail-archive}") String directory,
+                       @Value("${mail.archive.block-rows:256}") int blockRows,
+                       @Value("${mail.archive.refresh-interval:1m}") Duration refreshInterval,
+                       MeterRegistry meterRegistry) {
+        this.directory = Paths.get(directory);
+        this.blockRows = Math.max(1, blockRows);
+        this.refreshInterval = refreshInterval;
+        Gauge.builder("mail.archive.segments", this, archive -> archive.segments.size())
+                .description("Mail history segment files in the archive")
+                .register(meterRegistry);
+        Gauge.builder("mail.archive.rows", this, MailArchive::rowCount)
+                .description("Mail history rows in the archive")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        refresh();
+        log.info("Opened {} mail archive segments with {} rows from {}", segments.size(), rowCount(), directory.toAbsolutePath());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher = Flux.interval(refreshInterval, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(() -> {
+                                    refresh();
+                                    return tick;
+                                })
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .onErrorResume(e -> {
+                                    log.error("Mail archive refresh failed, retrying next run: {}", e.getMessage());
+                                    return Mono.empty();
+                                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Rescans the directory: opens segments that are new or were rewritten since the last scan and drops
+     * those that are gone. A file that cannot be opened is logged and left out rather than hiding the rest.
+     */
+    public synchronized void refresh() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Map<Path, OpenSegment> current = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    OpenSegment known = opened.get(file);
+                    if (known != null && known.modified().equals(attributes.lastModifiedTime()) && known.size() == attributes.size()) {
+                        current.put(file, known);
+                    } else {
+                        current.put(file, new OpenSegment(ArchiveSegment.open(file), attributes.lastModifiedTime(), attributes.size()));
+                    }
+                } catch (NoSuchFileException e) {
+                    // Replaced by compaction since the listing
+                } catch (IOException e) {
+                    log.error("Skipping unreadable mail archive segment {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        opened.clear();
+        opened.putAll(current);
+        List<ArchiveSegment> updated = new ArrayList<>(current.size());
+        for (OpenSegment segment : current.values()) {
+            updated.add(segment.segment());
+        }
+        updated.sort(Comparator.comparing(ArchiveSegment::firstSentAt));
+        segments = List.copyOf(updated);
+    }
+
+    /**
+     * Writes {@code rows}, sorted by {@link ArchiveSegment#KEY_ORDER}, as a new segment. Once this returns
+     * the rows are durable and visible to queries on this node, and to other nodes after their next refresh.
+     */
+    public synchronized void append(List<MailHistoryView> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        MailHistoryView first = rows.get(0);
+        // Named by the first key so rewriting the same rows after a crash replaces the segment rather than adding one
+        String name = HISTORY_PREFIX + first.getSentAt().toInstant(ZoneOffset.UTC).toEpochMilli() + "-" + first.getMailId();
+        publish(name, temp -> ArchiveSegment.write(temp, rows, blockRows));
+        refresh();
+    }
+
+    /**
+     * Merges the oldest run of {@code history-*} segments into the day segments of the days they cover,
+     * provided those days are complete, i.e. before the day of the newest archived row, then deletes them.
+     * Rows already in a day segment are merged in again and repeated keys are dropped, so a crash part way
+     * through is repaired by the next call.
+     *
+     * @return false when there is nothing to compact
+     */
+    public synchronized boolean compactOldest() throws IOException {
+        refresh();
+        LocalDateTime newest = newestSentAt();
+        if (newest == null) {
+            return false;
+        }
+        List<ArchiveSegment> merged = new ArrayList<>();
+        LocalDate firstDay = null;
+        LocalDate lastDay = null;
+        for (ArchiveSegment segment : segments) {
+            if (!isHistory(segment)) {
+                continue;
+            }
+            if (lastDay != null && segment.firstSentAt().toLocalDate().isAfter(lastDay)) {
+                break;
+            }
+            if (firstDay == null) {
+                firstDay = segment.firstSentAt().toLocalDate();
+            }
+            if (lastDay == null || segment.lastSentAt().toLocalDate().isAfter(lastDay)) {
+                lastDay = segment.lastSentAt().toLocalDate();
+            }
+            merged.add(segment);
+        }
+        // The newest day can still gain segments
+        if (merged.isEmpty() || !lastDay.isBefore(newest.toLocalDate())) {
+            return false;
+        }
+
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            LocalDateTime from = day.atStartOfDay();
+            LocalDateTime to = day.plusDays(1).atStartOfDay();
+            List<Iterator<MailHistoryView>> sources = new ArrayList<>();
+            for (ArchiveSegment segment : segments) {
+                boolean input = isHistory(segment)
+                        ? merged.contains(segment)
+                        : segment.path().getFileName().toString().equals(dayName(day) + SEGMENT_SUFFIX);
+                if (input && segment.firstSentAt().isBefore(to) && !segment.lastSentAt().isBefore(from)) {
+                    sources.add(segment.rows(from, to));
+                }
+            }
+            Iterator<MailHistoryView> rows = new MergedRows(sources);
+            if (rows.hasNext()) {
+                publish(dayName(day), temp -> ArchiveSegment.write(temp, rows, blockRows));
+            }
+        }
+        for (ArchiveSegment segment : merged) {
+            Files.deleteIfExists(segment.path());
+        }
+        refresh();
+        log.info("Compacted {} mail archive segments into day segments {} to {}", merged.size(), firstDay, lastDay);
+        return true;
+    }
+
+    /**
+     * Deletes temporary files older than {@code age}, left by writes that never completed; their rows are
+     * still in {@code sent_emails}. Only the lease holder may call this, so no live write is removed.
+     */
+    public synchronized void deleteStaleTemp(Duration age) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        FileTime before = FileTime.from(Instant.now().minus(age));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).compareTo(before) < 0) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (NoSuchFileException e) {
+                    // Already gone
+                }
+            }
+        }
+    }
+
+    /**
+     * Sent time of the newest archived row, null while the archive is empty. Anything after it can only be
+     * in {@code sent_emails}.
+     */
+    public LocalDateTime newestSentAt() {
+        LocalDateTime newest = null;
+        for (ArchiveSegment segment : segments) {
+            if (newest == null || segment.lastSentAt().isAfter(newest)) {
+                newest = segment.lastSentAt();
+            }
+        }
+        return newest;
+    }
+
+    public long rowCount() {
+        long rows = 0;
+        for (ArchiveSegment segment : segments) {
+            rows += segment.rowCount();
+        }
+        return rows;
+    }
+
+    /**
+     * The first {@code limit} archived rows in key order matching the same filters as
+     * {@link ArchiveSegment#find}.
+     */
+    public Mono<List<MailHistoryView>> find(String recipient, LocalDateTime from, LocalDateTime to,
+                                            LocalDateTime afterSentAt, long afterId, int limit) {
+        List<ArchiveSegment> current = segments;
+        if (current.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return Mono.fromCallable(() -> {
+                    List<MailHistoryView> found = new ArrayList<>();
+                    for (ArchiveSegment segment : current) {
+                        // Segments are ordered by first key; once the page is full no later one can improve it
+                        if (found.size() >= limit && found.get(limit - 1).getSentAt().isBefore(segment.firstSentAt())) {
+                            break;
+                        }
+                        if (to != null && !segment.firstSentAt().isBefore(to)
+                                || from != null && segment.lastSentAt().isBefore(from)
+                                || afterSentAt != null && segment.lastSentAt().isBefore(afterSentAt)) {
+                            continue;
+                        }
+                        found.addAll(segment.find(recipient, from, to, afterSentAt, afterId, limit));
+                        found.sort(ArchiveSegment.KEY_ORDER);
+                        dropRepeatedKeys(found);
+                        if (found.size() > limit) {
+                            found = new ArrayList<>(found.subList(0, limit));
+                        }
+                    }
+                    return found;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Writes a segment to a temporary file of its own, then renames it to {@code name}, replacing any
+     * segment of that name.
+     */
+    private void publish(String name, SegmentWriter writer) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(name + SEGMENT_SUFFIX);
+        Path temp = directory.resolve(name + "-" + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            writer.write(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean isHistory(ArchiveSegment segment) {
+        return segment.path().getFileName().toString().startsWith(HISTORY_PREFIX);
+    }
+
+    private static String dayName(LocalDate day) {
+        return DAY_PREFIX + day;
+    }
+
+    private static void dropRepeatedKeys(List<MailHistoryView> sorted) {
+        int kept = 0;
+        for (MailHistoryView row : sorted) {
+            if (kept == 0 || ArchiveSegment.KEY_ORDER.compare(sorted.get(kept - 1), row) != 0) {
+                sorted.set(kept++, row);
+            }
+        }
+        sorted.subList(kept, sorted.size()).clear();
+    }
+
+    @FunctionalInterface
+    private interface SegmentWriter {
+        void write(Path temp) throws IOException;
+    }
+
+    private record OpenSegment(ArchiveSegment segment, FileTime modified, long size) {
+    }
+
+    /**
+     * Key-ordered merge of key-ordered iterators that yields each key once.
+     */
+    private static final class MergedRows implements Iterator<MailHistoryView> {
+
+        private final PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> ArchiveSegment.KEY_ORDER.compare(a.head, b.head));
+        private MailHistoryView last;
+
+        MergedRows(List<Iterator<MailHistoryView>> sources) {
+            for (Iterator<MailHistoryView> source : sources) {
+                if (source.hasNext()) {
+                    queue.add(new Source(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public MailHistoryView next() {
+            Source source = queue.poll();
+            if (source == null) {
+                throw new NoSuchElementException();
+            }
+            last = source.head;
+            advance(source);
+            skipRepeats();
+            return last;
+        }
+
+        private void skipRepeats() {
+            while (last != null && !queue.isEmpty() && ArchiveSegment.KEY_ORDER.compare(queue.peek().head, last) == 0) {
+                advance(queue.poll());
+            }
+        }
+
+        private void advance(Source source) {
+            if (source.rows.hasNext()) {
+                source.head = source.rows.next();
+                queue.add(source);
+            }
+        }
+
+        private static final class Source {
+            private MailHistoryView head;
+            private final Iterator<MailHistoryView> rows;
+
+            Source(MailHistoryView head, Iterator<MailHistoryView> rows) {
+                this.head = head;
+                this.rows = rows;
+            }
+        }
+    }
+}
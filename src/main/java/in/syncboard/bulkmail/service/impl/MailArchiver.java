@@ -0,0 +1,185 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailHistoryView;
+import in.syncboard.bulkmail.repository.MailRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves settled {@code sent_emails} rows older than {@code mail.archive.after} into the {@link MailArchive}.
+ * <p>
+ * Every {@code mail.archive.check-interval} each node tries to take the {@code mail-archiver} lease; only the
+ * holder archives, renewing the lease before every segment and compaction step and stopping as soon as it
+ * loses it. The holder writes archivable rows in key order as segments of {@code mail.archive.segment-rows},
+ * paging by the last key written. Each segment's rows are deleted from {@code sent_emails}, in batches of
+ * {@code mail.archive.delete-batch-size}, only after {@code mail.archive.publish-delay}, long enough for
+ * every node's archive refresh to have picked the segment up. It then compacts the new segments into day
+ * segments. A crash before the delete leaves rows in both tiers; the history reader drops such duplicates
+ * and the next run archives them again under the same segment name.
+ * <p>
+ * Keep {@code mail.retention.months} well above {@code mail.archive.after}, or retention removes rows from
+ * {@code sent_emails} before they are archived.
+ */
+@Component
+@Slf4j
+public class MailArchiver {
+
+    private static final String LEASE = "mail-archiver";
+
+    private final MailRepository mailRepository;
+    private final DatabaseClient databaseClient;
+    private final MailArchive archive;
+    private final LeaderLease leaderLease;
+    private final boolean enabled;
+    private final Duration archiveAfter;
+    private final Duration checkInterval;
+    private final Duration leaseDuration;
+    private final Duration publishDelay;
+    private final int segmentRows;
+    private final int deleteBatchSize;
+
+    private Disposable loop;
+
+    public MailArchiver(MailRepository mailRepository,
+                        DatabaseClient databaseClient,
+                        MailArchive archive,
+                        LeaderLease leaderLease,
+                        @Value("${mail.archive.enabled:true}") boolean enabled,
+                        @Value("${mail.archive.after:90d}") Duration archiveAfter,
+                        @Value("${mail.archive.check-interval:1h}") Duration checkInterval,
+                        @Value("${mail.archive.lease:10m}") Duration leaseDuration,
+                        @Value("${mail.archive.publish-delay:2m}") Duration publishDelay,
+                        @Value("${mail.archive.segment-rows:50000}") int segmentRows,
+                        @Value("${mail.archive.delete-batch-size:1000}") int deleteBatchSize) {
+        this.mailRepository = mailRepository;
+        this.databaseClient = databaseClient;
+        this.archive = archive;
+        this.leaderLease = leaderLease;
+        this.enabled = enabled;
+        this.archiveAfter = archiveAfter;
+        this.checkInterval = checkInterval;
+        this.leaseDuration = leaseDuration;
+        this.publishDelay = publishDelay;
+        this.segmentRows = Math.max(1, segmentRows);
+        this.deleteBatchSize = Math.max(1, deleteBatchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Mail history archiving is disabled");
+            return;
+        }
+        loop = Flux.interval(Duration.ZERO, checkInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> runOnce())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loop != null) {
+            loop.dispose();
+        }
+    }
+
+    /**
+     * Archives everything currently past the archive age and compacts the result, if this node holds or
+     * can take the archiver lease.
+     */
+    public Mono<Void> runOnce() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAfter);
+        return whileLeader(Mono.fromCallable(() -> {
+                    archive.deleteStaleTemp(leaseDuration);
+                    return true;
+                })
+                .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(leader -> archiveAll(cutoff).then(compactAll()))
+                .onErrorResume(e -> {
+                    log.error("Mail history archiving failed, retrying next run: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Long> archiveAll(LocalDateTime cutoff) {
+        return whileLeader(archiveSegment(mailRepository.findArchivable(cutoff, segmentRows)))
+                .expand(segment -> segment.rows() >= segmentRows
+                        ? whileLeader(archiveSegment(mailRepository.findArchivableAfter(
+                                cutoff, segment.lastSentAt(), segment.lastMailId(), segmentRows)))
+                        : Mono.empty())
+                .flatMap(segment -> Mono.delay(publishDelay)
+                        .then(delete(segment.mailIds(), cutoff))
+                        .thenReturn((long) segment.rows()))
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.info("Archived {} emails sent before {}", total, cutoff);
+                    }
+                });
+    }
+
+    private Mono<Segment> archiveSegment(Flux<MailHistoryView> archivable) {
+        return archivable
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .flatMap(rows -> Mono.fromCallable(() -> {
+                                    archive.append(rows);
+                                    List<Long> mailIds = new ArrayList<>(rows.size());
+                                    for (MailHistoryView row : rows) {
+                                        mailIds.add(row.getMailId());
+                                    }
+                                    MailHistoryView last = rows.get(rows.size() - 1);
+                                    return new Segment(mailIds, last.getSentAt(), last.getMailId());
+                                })
+                                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<Void> compactAll() {
+        Mono<Boolean> step = whileLeader(Mono.fromCallable(archive::compactOldest)
+                .subscribeOn(Schedulers.boundedElastic()));
+        return step
+                .expand(compacted -> compacted ? step : Mono.empty())
+                .then();
+    }
+
+    /**
+     * Renews the archiver lease, then runs {@code work} if this node still holds it; empty otherwise.
+     */
+    private <T> Mono<T> whileLeader(Mono<T> work) {
+        return leaderLease.acquire(LEASE, leaseDuration)
+                .flatMap(held -> held ? work : Mono.empty());
+    }
+
+    private Mono<Void> delete(List<Long> mailIds, LocalDateTime cutoff) {
+        // sent_at lets MySQL prune to the partitions the rows are in
+        return Flux.fromIterable(mailIds)
+                .buffer(deleteBatchSize)
+                .concatMap(ids -> databaseClient.sql("DELETE FROM sent_emails WHERE sent_at < :cutoff AND mail_id IN (:ids)")
+                        .bind("cutoff", cutoff)
+                        .bind("ids", ids)
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    private record Segment(List<Long> mailIds, LocalDateTime lastSentAt, long lastMailId) {
+        int rows() {
+            return mailIds.size();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.DeadLetterEntity;
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.entity.TemplateEntity;
+import in.syncboard.bulkmail.repository.DeadLetterRepository;
+import in.syncboard.bulkmail.service.DomainResolver.DomainStatus;
+import in.syncboard.bulkmail.service.SuppressionService;
+import in.syncboard.bulkmail.utils.EmailUtils;
+import in.syncboard.bulkmail.utils.SharedMimeBody;
+import in.syncboard.bulkmail.utils.SmtpErrorClassifier;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Renders a template for one {@code sent_emails} row, hands it to SMTP and records the outcome.
+ * Shared by the synchronous bulk path and the background {@link MailDispatcher}.
+ * <p>
+ * Suppressed recipients and undeliverable domains are settled without reaching a relay. Sending runs on
+ * {@link SmtpExecutor} so blocking SMTP work stays off the shared pools; hard bounces are added to the
+ * suppression list. Recording saves the row, counts it in the daily stats and hands failures to
+ * {@link MailRetryScheduler}; rows out of retries are also copied to {@code mail_dead_letters}.
+ */
+@Component
+@Slf4j
+public class MailDelivery {
+
+    private final JavaMailSenderImpl mailSender;
+    private final SmtpRelayRouter relayRouter;
+    private final MailStatusWriter statusWriter;
+    private final TemplateRenderer templateRenderer;
+    private final MailRetryScheduler retryScheduler;
+    private final DeadLetterRepository deadLetterRepository;
+    private final SmtpExecutor smtpExecutor;
+    private final DomainVerifier domainVerifier;
+    private final SuppressionList suppressionList;
+    private final SuppressionService suppressionService;
+    private final ListUnsubscribeHeaders listUnsubscribeHeaders;
+    private final MailStatsRollup statsRollup;
+    private final MailMetrics metrics;
+    private final DeliveryLatencyRecorder latencyRecorder;
+
+    public MailDelivery(JavaMailSenderImpl mailSender,
+                        SmtpRelayRouter relayRouter,
+                        MailStatusWriter statusWriter,
+                        TemplateRenderer templateRenderer,
+                        MailRetryScheduler retryScheduler,
+                        DeadLetterRepository deadLetterRepository,
+                        SmtpExecutor smtpExecutor,
+                        DomainVerifier domainVerifier,
+                        SuppressionList suppressionList,
+                        SuppressionService suppressionService,
+                        ListUnsubscribeHeaders listUnsubscribeHeaders,
+                        MailStatsRollup statsRollup,
+                        MailMetrics metrics,
+                        DeliveryLatencyRecorder latencyRecorder) {
+        this.mailSender = mailSender;
+        this.relayRouter = relayRouter;
+        this.statusWriter = statusWriter;
+        this.templateRenderer = templateRenderer;
+        this.retryScheduler = retryScheduler;
+        this.deadLetterRepository = deadLetterRepository;
+        this.smtpExecutor = smtpExecutor;
+        this.domainVerifier = domainVerifier;
+        this.suppressionList = suppressionList;
+        this.suppressionService = suppressionService;
+        this.listUnsubscribeHeaders = listUnsubscribeHeaders;
+        this.statsRollup = statsRollup;
+        this.metrics = metrics;
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    public Mono<MailEntity> deliver(MailEntity mail, TemplateEntity template, Map<String, Object> variables) {
+        return send(mail, template, variables)
+                .flatMap(this::record);
+    }
+
+    /**
+     * Persist the outcome of a send, count it in the stats rollup, then arm its retry or dead-letter it.
+     */
+    public Mono<MailEntity> record(MailEntity mail) {
+        return metrics.time(MailMetrics.Stage.STATUS_WRITE, mail.getTemplateId(), statusWriter.save(mail))
+                .flatMap(saved -> {
+                    statsRollup.record(saved);
+                    retryScheduler.schedule(saved);
+                    return saved.isRetriesExhausted() ? deadLetter(saved) : Mono.just(saved);
+                });
+    }
+
+    /**
+     * Render and send without persisting; the final status is set on {@code mail} for the caller to save.
+     */
+    public Mono<MailEntity> send(MailEntity mail, TemplateEntity template, Map<String, Object> variables) {
+        return transmit(mail, () -> {
+            // Prepare the email content
+            String content = templateRenderer.render(template, variables);
+
+            // Create the message
+            return buildMime(mail.getTemplateId(), () -> {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+                helper.setFrom(mail.getSender());
+                helper.setTo(mail.getRecipient());
+                helper.setSubject(mail.getSubject());
+                helper.setText(content, true); // true = HTML content
+                return message;
+            });
+        });
+    }
+
+    /**
+     * Send a body prepared once for the whole bulk send; only the recipient headers are built here.
+     */
+    public Mono<MailEntity> send(MailEntity mail, SharedMimeBody body) {
+        return transmit(mail, () -> buildMime(mail.getTemplateId(), () -> body.newMessage(mailSender.getSession(), mail.getRecipient())));
+    }
+
+    /**
+     * Render and encode a body once for a bulk send in which every recipient gets the same content.
+     */
+    public Mono<SharedMimeBody> prepareSharedBody(TemplateEntity template, Map<String, Object> variables,
+                                                  String subject, String from) {
+        return Mono.fromCallable(() -> {
+            String content = templateRenderer.render(template, variables);
+            return buildMime(template.getTemplateId(), () -> SharedMimeBody.encode(content, subject, from));
+        });
+    }
+
+    private Mono<MailEntity> transmit(MailEntity mail, Callable<MimeMessage> messageFactory) {
+        if (suppressionList.contains(EmailUtils.normalizeAddress(mail.getRecipient()))) {
+            return Mono.just(rejectSuppressed(mail));
+        }
+        return domainVerifier.checkRecipient(mail.getRecipient())
+                .flatMap(status -> status == DomainStatus.UNDELIVERABLE
+                        ? Mono.just(rejectUndeliverable(mail))
+                        : transmitNow(mail, messageFactory));
+    }
+
+    private Mono<MailEntity> transmitNow(MailEntity mail, Callable<MimeMessage> messageFactory) {
+        return smtpExecutor.execute(() -> {
+                    mail.setAttempts(mail.getAttempts() != null ? mail.getAttempts() + 1 : 1);
+                    MimeMessage message = messageFactory.call();
+                    mail.setRenderedAt(now());
+                    listUnsubscribeHeaders.apply(message, mail.getRecipient());
+                    mail.setSmtpHandoffAt(now());
+                    long start = System.nanoTime();
+                    try {
+                        relayRouter.send(message);
+                    } catch (Exception e) {
+                        metrics.record(MailMetrics.Stage.SMTP_HANDOFF, mail.getTemplateId(), MailMetrics.ERROR, start);
+                        metrics.smtpFailed(e);
+                        throw e;
+                    }
+                    metrics.record(MailMetrics.Stage.SMTP_HANDOFF, mail.getTemplateId(), MailMetrics.SUCCESS, start);
+                    metrics.smtpAccepted();
+                    return mail;
+                })
+                .doOnSubscribe(subscription -> metrics.sendStarted())
+                .doFinally(signal -> metrics.sendFinished())
+                .map(sent -> {
+                    // Update the mail record with the final status
+                    sent.setStatus("SUCCESS");
+                    sent.setErrorMessage(null);
+                    sent.setNextAttemptAt(null);
+                    sent.setCompletedAt(now());
+                    latencyRecorder.record(sent);
+                    return sent;
+                })
+                .onErrorResume(e -> {
+                    log.error("Error sending email to {}: {}", mail.getRecipient(), e.getMessage());
+                    retryScheduler.onFailure(mail, e);
+                    mail.setCompletedAt(now());
+                    latencyRecorder.record(mail);
+                    if (SmtpErrorClassifier.isHardBounce(e)) {
+                        suppressHardBounce(mail.getRecipient());
+                    }
+                    return Mono.just(mail);
+                });
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private <T> T buildMime(Long templateId, Callable<T> build) throws Exception {
+        long start = System.nanoTime();
+        try {
+            T built = build.call();
+            metrics.record(MailMetrics.Stage.MIME_BUILD, templateId, MailMetrics.SUCCESS, start);
+            return built;
+        } catch (Exception e) {
+            metrics.record(MailMetrics.Stage.MIME_BUILD, templateId, MailMetrics.ERROR, start);
+            throw e;
+        }
+    }
+
+    private MailEntity rejectUndeliverable(MailEntity mail) {
+        log.debug("Not sending to {}: domain does not accept mail", mail.getRecipient());
+        mail.setStatus("FAILED");
+        mail.setErrorMessage("Recipient domain does not accept mail");
+        mail.setNextAttemptAt(null);
+        mail.setCompletedAt(now());
+        return mail;
+    }
+
+    private MailEntity rejectSuppressed(MailEntity mail) {
+        log.debug("Not sending to {}: address is suppressed", mail.getRecipient());
+        mail.setStatus("SUPPRESSED");
+        mail.setErrorMessage("Recipient is on the suppression list");
+        mail.setNextAttemptAt(null);
+        mail.setCompletedAt(now());
+        return mail;
+    }
+
+    private void suppressHardBounce(String recipient) {
+        suppressionService.suppress(recipient, "HARD_BOUNCE")
+                .subscribe(suppression -> {
+                }, e -> log.error("Error suppressing hard-bounced address {}: {}", recipient, e.getMessage()));
+    }
+
+    private Mono<MailEntity> deadLetter(MailEntity mail) {
+        if (mail.getMailId() == null) {
+            log.warn("Cannot dead-letter email to {} without an ID", mail.getRecipient());
+            return Mono.just(mail);
+        }
+        DeadLetterEntity deadLetter = DeadLetterEntity.builder()
+                .mailId(mail.getMailId())
+                .recipient(mail.getRecipient())
+                .templateId(mail.getTemplateId())
+                .attempts(mail.getAttempts())
+                .lastError(mail.getErrorMessage())
+                .build();
+        return deadLetterRepository.save(deadLetter)
+                .thenReturn(mail)
+                .onErrorResume(e -> {
+                    log.error("Error dead-lettering email {}: {}", mail.getMailId(), e.getMessage());
+                    return Mono.just(mail);
+                });
+    }
+
+    public Mono<MailEntity> markFailed(MailEntity mail, String errorMessage) {
+        mail.setStatus("FAILED");
+        mail.setErrorMessage(errorMessage);
+        mail.setCompletedAt(now());
+        return metrics.time(MailMetrics.Stage.STATUS_WRITE, mail.getTemplateId(), statusWriter.save(mail))
+                .doOnNext(statsRollup::record);
+    }
+}
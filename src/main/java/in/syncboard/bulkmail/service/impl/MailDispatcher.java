@@ -0,0 +1,168 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.repository.MailRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Background worker that drains QUEUED rows, and RETRYING rows whose retry is due, from {@code sent_emails}.
+ * <p>
+ * Rows are claimed in batches with a single {@code UPDATE ... LIMIT} so several nodes can drain the
+ * same table, then moved QUEUED -> SENDING -> SUCCESS/RETRYING/FAILED. Claims older than {@code mail.dispatcher.stale-after}
+ * belong to a node that died mid-send; every {@code mail.dispatcher.requeue-interval} each node puts such rows
+ * back on the queue, so they do not wait for a restart. A claimed row may wait in the {@link DomainScheduler}
+ * for a while, so its claim is renewed as it leaves it, and a row whose claim was re-queued meanwhile is
+ * left to whoever claims it next rather than sent twice. Claim times come from this node's clock, like the
+ * cutoff they are compared with. The claim query relies on the {@code (status, next_attempt_at, mail_id)}
+ * index from {@code db/sent_emails_dispatcher.sql}.
+ */
+@Component
+@Slf4j
+public class MailDispatcher {
+
+    private final MailRepository mailRepository;
+    private final TemplateCache templateCache;
+    private final MailDelivery mailDelivery;
+    private final DomainScheduler domainScheduler;
+    private final CampaignStore campaignStore;
+    private final Sinks.Many<Boolean> wakeUps = Sinks.many().multicast().directBestEffort();
+
+    private final int workers;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration staleAfter;
+    private final Duration requeueInterval;
+
+    private Disposable loop;
+    private Disposable requeuer;
+
+    public MailDispatcher(MailRepository mailRepository,
+                          TemplateCache templateCache,
+                          MailDelivery mailDelivery,
+                          DomainScheduler domainScheduler,
+                          CampaignStore campaignStore,
+                          MailRetryScheduler retryScheduler,
+                          @Value("${mail.dispatcher.workers:8}") int workers,
+                          @Value("${mail.dispatcher.batch-size:100}") int batchSize,
+                          @Value("${mail.dispatcher.poll-interval:1s}") Duration pollInterval,
+                          @Value("${mail.dispatcher.stale-after:10m}") Duration staleAfter,
+                          @Value("${mail.dispatcher.requeue-interval:1m}") Duration requeueInterval) {
+        this.mailRepository = mailRepository;
+        this.templateCache = templateCache;
+        this.mailDelivery = mailDelivery;
+        this.domainScheduler = domainScheduler;
+        this.campaignStore = campaignStore;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.staleAfter = staleAfter;
+        this.requeueInterval = requeueInterval;
+        retryScheduler.onRetryDue(this::wakeUp);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        log.info("Starting mail dispatcher with {} workers", workers);
+        loop = requeueStaleClaims()
+                .thenMany(Flux.merge(Flux.interval(Duration.ZERO, pollInterval).map(tick -> true), wakeUps.asFlux()))
+                .onBackpressureDrop()
+                .concatMap(tick -> drain(), 1)
+                .subscribe();
+        requeuer = Flux.interval(requeueInterval, requeueInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> requeueStaleClaims())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loop != null) {
+            loop.dispose();
+        }
+        if (requeuer != null) {
+            requeuer.dispose();
+        }
+    }
+
+    /**
+     * Signal that new rows were queued so they are picked up without waiting for the next poll.
+     */
+    public void wakeUp() {
+        wakeUps.tryEmitNext(true);
+    }
+
+    private Mono<Void> requeueStaleClaims() {
+        return mailRepository.requeueStaleClaims(LocalDateTime.now().minus(staleAfter))
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.warn("Re-queued {} emails left in SENDING by a dispatcher that stopped", count);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("Error re-queuing stale emails: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> drain() {
+        // Keep claiming while batches come back full, then go back to waiting for a tick
+        return drainBatch()
+                .expand(claimed -> claimed >= batchSize ? drainBatch() : Mono.empty())
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Error draining mail queue: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Long> drainBatch() {
+        String claimToken = UUID.randomUUID().toString();
+        return mailRepository.claimQueued(claimToken, LocalDateTime.now(), batchSize)
+                .flatMapMany(claimed -> claimed > 0
+                        ? domainScheduler.schedule(mailRepository.findByClaimTokenAndStatus(claimToken, "SENDING"))
+                        : Flux.empty())
+                .flatMap(this::renewClaim, workers)
+                .count();
+    }
+
+    private Mono<MailEntity> renewClaim(MailEntity mail) {
+        return mailRepository.renewClaim(mail.getMailId(), mail.getSentAt(), mail.getClaimToken(), LocalDateTime.now())
+                .onErrorResume(e -> {
+                    // Still claimed; the stale claim sweep puts it back on the queue
+                    log.error("Error renewing claim on email {}: {}", mail.getMailId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .flatMap(renewed -> {
+                    if (renewed == 0) {
+                        log.warn("Claim on email {} was lost before it was sent, leaving it to its next claim", mail.getMailId());
+                        return Mono.empty();
+                    }
+                    return dispatch(mail);
+                });
+    }
+
+    private Mono<MailEntity> dispatch(MailEntity mail) {
+        return templateCache.get(mail.getTemplateId())
+                .flatMap(template -> campaignStore.variablesFor(mail)
+                        .flatMap(variables -> mailDelivery.deliver(mail, template, variables)))
+                .switchIfEmpty(Mono.defer(() -> mailDelivery.markFailed(mail, "Template not found with ID: " + mail.getTemplateId())))
+                .onErrorResume(e -> {
+                    log.error("Error dispatching email {}: {}", mail.getMailId(), e.getMessage());
+                    return mailDelivery.markFailed(mail, e.getMessage());
+                });
+    }
+}
@@ -0,0 +1,145 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.dto.MailHistoryPageDTO;
+import in.syncboard.bulkmail.dto.MailResponseDTO;
+import in.syncboard.bulkmail.entity.MailHistoryView;
+import in.syncboard.bulkmail.repository.MailRepository;
+import in.syncboard.bulkmail.utils.HistoryCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages through mail history with keyset pagination on (sent_at, mail_id).
+ * <p>
+ * Each page is one index range scan over {@code sent_emails} that starts after the cursor's key, so page N
+ * costs the same as page 1 and nothing beyond the page is read into memory. Rows are read as
+ * {@link MailHistoryView}, without the {@code variables} JSON. One extra row is fetched to tell whether
+ * another page follows.
+ * <p>
+ * Rows moved to the {@link MailArchive} are read with the same filters and cursor and merged in key order,
+ * so callers page through both tiers as one listing. The archive is skipped once the cursor or the range
+ * start is past its newest row, which is the case for all but the oldest pages.
+ */
+@Component
+public class MailHistoryReader {
+
+    private final MailRepository mailRepository;
+    private final MailArchive archive;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public MailHistoryReader(MailRepository mailRepository,
+                             MailArchive archive,
+                             @Value("${mail.history.default-page-size:100}") int defaultPageSize,
+                             @Value("${mail.history.max-page-size:1000}") int maxPageSize) {
+        this.mailRepository = mailRepository;
+        this.archive = archive;
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.max(1, Math.min(defaultPageSize, this.maxPageSize));
+    }
+
+    public Mono<MailHistoryPageDTO> byRecipient(String recipient, String cursorToken, Integer size) {
+        return Mono.defer(() -> {
+            HistoryCursor cursor = HistoryCursor.decode(cursorToken);
+            int pageSize = pageSize(size);
+            Flux<MailHistoryView> rows = cursor == null
+                    ? mailRepository.findHistoryByRecipient(recipient, pageSize + 1)
+                    : mailRepository.findHistoryByRecipientAfter(recipient, cursor.sentAt(), cursor.mailId(), pageSize + 1);
+            return page(rows, archived(recipient, null, null, cursor, pageSize + 1), pageSize);
+        });
+    }
+
+    public Mono<MailHistoryPageDTO> byDateRange(LocalDate startDate, LocalDate endDate, String cursorToken, Integer size) {
+        return Mono.defer(() -> {
+            HistoryCursor cursor = HistoryCursor.decode(cursorToken);
+            int pageSize = pageSize(size);
+            LocalDateTime from = startDate.atStartOfDay();
+            LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+            Flux<MailHistoryView> rows = cursor == null
+                    ? mailRepository.findHistoryBySentAtBetween(from, to, pageSize + 1)
+                    : mailRepository.findHistoryBySentAtBetweenAfter(from, to, cursor.sentAt(), cursor.mailId(), pageSize + 1);
+            return page(rows, archived(null, from, to, cursor, pageSize + 1), pageSize);
+        });
+    }
+
+    private int pageSize(Integer requested) {
+        return requested == null ? defaultPageSize : Math.max(1, Math.min(requested, maxPageSize));
+    }
+
+    private Mono<List<MailHistoryView>> archived(String recipient, LocalDateTime from, LocalDateTime to,
+                                                 HistoryCursor cursor, int limit) {
+        LocalDateTime newest = archive.newestSentAt();
+        if (newest == null
+                || from != null && newest.isBefore(from)
+                || cursor != null && newest.isBefore(cursor.sentAt())) {
+            return Mono.just(List.of());
+        }
+        return cursor == null
+                ? archive.find(recipient, from, to, null, 0, limit)
+                : archive.find(recipient, from, to, cursor.sentAt(), cursor.mailId(), limit);
+    }
+
+    private static Mono<MailHistoryPageDTO> page(Flux<MailHistoryView> hot, Mono<List<MailHistoryView>> archived, int pageSize) {
+        return Mono.zip(hot.collectList(), archived)
+                .map(tiers -> merge(tiers.getT1(), tiers.getT2(), pageSize + 1))
+                .map(fetched -> {
+                    boolean more = fetched.size() > pageSize;
+                    List<MailHistoryView> items = more ? fetched.subList(0, pageSize) : fetched;
+                    MailHistoryView last = more ? items.get(items.size() - 1) : null;
+                    return MailHistoryPageDTO.builder()
+                            .items(items.stream().map(MailHistoryReader::toDTO).toList())
+                            .nextCursor(last != null ? new HistoryCursor(last.getSentAt(), last.getMailId()).encode() : null)
+                            .build();
+                });
+    }
+
+    /**
+     * The first {@code limit} rows of two key-ordered lists, with rows present in both (archived but not yet
+     * deleted) kept once.
+     */
+    private static List<MailHistoryView> merge(List<MailHistoryView> hot, List<MailHistoryView> archived, int limit) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<MailHistoryView> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        int h = 0;
+        int a = 0;
+        while (merged.size() < limit && (h < hot.size() || a < archived.size())) {
+            int order = h == hot.size() ? 1
+                    : a == archived.size() ? -1
+                    : ArchiveSegment.KEY_ORDER.compare(hot.get(h), archived.get(a));
+            if (order <= 0) {
+                merged.add(hot.get(h++));
+                if (order == 0) {
+                    a++;
+                }
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
+    private static MailResponseDTO toDTO(MailHistoryView row) {
+        return MailResponseDTO.builder()
+                .mailId(row.getMailId())
+                .recipient(row.getRecipient())
+                .subject(row.getSubject())
+                .status(row.getStatus())
+                .sentDate(row.getSentDate())
+                .sentAt(row.getSentAt())
+                .errorMessage(row.getErrorMessage())
+                .acceptedAt(row.getAcceptedAt())
+                .renderedAt(row.getRenderedAt())
+                .smtpHandoffAt(row.getSmtpHandoffAt())
+                .completedAt(row.getCompletedAt())
+                .build();
+    }
+}
@@ -0,0 +1,262 @@
+package in.syncboard.bulkmail.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code sent_emails} to {@code mail.retention.months} months of history.
+ * <p>
+ * The table is expected to be RANGE COLUMNS partitioned on {@code sent_at}, one partition per month named
+ * {@code pYYYYMM} plus a catch-all {@code p_future} (see {@code db/sent_emails_partitioning.sql}). Every
+ * {@code mail.retention.check-interval} this
+ * <ul>
+ *   <li>splits {@code p_future} so the next {@code months-ahead} months have their own partitions before
+ *   any row lands in them, which keeps the split itself instant;</li>
+ *   <li>retires whole partitions older than the retention window, either dropping them ({@code DROP}) or
+ *   exchanging each for a standalone {@code sent_emails_archive_YYYYMM} table ({@code DETACH}); both are
+ *   metadata operations, so removing a month costs the same at a thousand rows as at a billion;</li>
+ *   <li>purges what remains older than the exact cutoff - rows in the oldest, partly expired month, or
+ *   everything on a table that is not partitioned - with {@code DELETE ... LIMIT} batches of
+ *   {@code purge-batch-size} separated by {@code purge-pause}, so the purge never holds locks long
+ *   enough to stall inserts or history queries.</li>
+ * </ul>
+ * The same pass purges {@code mail_latency_sketches} rows older than {@code mail.retention.latency-days}
+ * in the same batches. Every instance writes its own rows under a node ID that changes on restart, so
+ * without this the table would grow with every hour and every deployment.
+ * Only the holder of the {@code mail-retention} {@link LeaderLease} runs a pass, renewing it for
+ * {@code mail.retention.lease} before the partition changes and before every purge batch, so the DDL and
+ * the purge run on one node at a time.
+ */
+@Component
+@Slf4j
+public class MailHistoryRetention {
+
+    public enum Action {
+        DROP,
+        DETACH
+    }
+
+    private static final String LEASE = "mail-retention";
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final DatabaseClient databaseClient;
+    private final LeaderLease leaderLease;
+    private final boolean enabled;
+    private final int retentionMonths;
+    private final Action action;
+    private final int monthsAhead;
+    private final Duration checkInterval;
+    private final int purgeBatchSize;
+    private final Duration purgePause;
+    private final int latencyDays;
+    private final Duration leaseDuration;
+
+    private Disposable loop;
+
+    public MailHistoryRetention(DatabaseClient databaseClient,
+                                LeaderLease leaderLease,
+                                @Value("${mail.retention.enabled:true}") boolean enabled,
+                                @Value("${mail.retention.months:13}") int retentionMonths,
+                                @Value("${mail.retention.action:DETACH}") Action action,
+                                @Value("${mail.retention.months-ahead:3}") int monthsAhead,
+                                @Value("${mail.retention.check-interval:6h}") Duration checkInterval,
+                                @Value("${mail.retention.purge-batch-size:5000}") int purgeBatchSize,
+                                @Value("${mail.retention.purge-pause:200ms}") Duration purgePause,
+                                @Value("${mail.retention.latency-days:400}") int latencyDays,
+                                @Value("${mail.retention.lease:10m}") Duration leaseDuration) {
+        this.databaseClient = databaseClient;
+        this.leaderLease = leaderLease;
+        this.enabled = enabled && retentionMonths > 0;
+        this.retentionMonths = retentionMonths;
+        this.action = action;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.checkInterval = checkInterval;
+        this.purgeBatchSize = Math.max(1, purgeBatchSize);
+        this.purgePause = purgePause;
+        this.latencyDays = latencyDays;
+        this.leaseDuration = leaseDuration;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("sent_emails retention is disabled");
+            return;
+        }
+        loop = Flux.interval(Duration.ZERO, checkInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> runOnce())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loop != null) {
+            loop.dispose();
+        }
+    }
+
+    /**
+     * One maintenance pass: create upcoming partitions, retire expired ones, then purge leftover rows and
+     * expired latency sketches. Does nothing on a node that cannot take the retention lease.
+     */
+    public Mono<Void> runOnce() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMonths(retentionMonths);
+        return whileLeader(partitions())
+                .flatMap(partitions -> partitions.isEmpty()
+                        ? Mono.<Void>empty()
+                        : createUpcoming(partitions).then(retire(partitions, YearMonth.from(cutoff))))
+                .then(purge("sent_emails", "sent_at", cutoff))
+                .then(latencyDays > 0
+                        ? Mono.defer(() -> purge("mail_latency_sketches", "window_start", LocalDateTime.now().minusDays(latencyDays)))
+                        : Mono.empty())
+                .onErrorResume(e -> {
+                    log.error("sent_emails retention pass failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<List<Partition>> partitions() {
+        return databaseClient.sql("SELECT partition_name, partition_description FROM information_schema.partitions " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'sent_emails' AND partition_name IS NOT NULL")
+                .map(row -> Partition.of(row.get("partition_name", String.class), row.get("partition_description", String.class)))
+                .all()
+                .collectList()
+                .onErrorResume(e -> {
+                    // Databases without information_schema.partitions cannot be partitioned either
+                    log.debug("Could not read sent_emails partitions: {}", e.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    private Mono<Void> createUpcoming(List<Partition> partitions) {
+        YearMonth last = YearMonth.from(LocalDate.now()).plusMonths(monthsAhead);
+        // Months are only added above the highest bounded partition, by splitting the catch-all
+        YearMonth next = partitions.stream()
+                .map(Partition::lessThan)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .map(YearMonth::from)
+                .orElse(YearMonth.from(LocalDate.now()));
+
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(last); month = month.plusMonths(1)) {
+            definitions.add("PARTITION " + partitionName(month) + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+        if (definitions.isEmpty()) {
+            return Mono.empty();
+        }
+
+        boolean hasFuture = partitions.stream().anyMatch(partition -> FUTURE_PARTITION.equals(partition.name()));
+        String sql = hasFuture
+                ? "ALTER TABLE sent_emails REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" + String.join(", ", definitions) +
+                        ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))"
+                : "ALTER TABLE sent_emails ADD PARTITION (" + String.join(", ", definitions) + ")";
+        return execute(sql)
+                .doOnSuccess(ignored -> log.info("Added {} sent_emails partitions from {}", definitions.size(), next));
+    }
+
+    private Mono<Void> retire(List<Partition> partitions, YearMonth cutoffMonth) {
+        // A partition is expired only when all of it is before the cutoff month
+        LocalDate cutoff = cutoffMonth.atDay(1);
+        List<Partition> expired = partitions.stream()
+                .filter(partition -> partition.lessThan() != null && !partition.lessThan().isAfter(cutoff))
+                .sorted(Comparator.comparing(Partition::lessThan))
+                .toList();
+        if (expired.isEmpty()) {
+            return Mono.empty();
+        }
+        // MySQL refuses to drop the last partition; p_future always remains
+        if (action == Action.DROP) {
+            String names = expired.stream().map(Partition::name).collect(Collectors.joining(", "));
+            return execute("ALTER TABLE sent_emails DROP PARTITION " + names)
+                    .doOnSuccess(ignored -> log.info("Dropped expired sent_emails partitions {}", names));
+        }
+        return Flux.fromIterable(expired)
+                .concatMap(this::detach)
+                .then();
+    }
+
+    private Mono<Void> detach(Partition partition) {
+        String archive = "sent_emails_archive_" + partition.name().substring(1);
+        return execute("CREATE TABLE IF NOT EXISTS " + archive + " LIKE sent_emails")
+                .then(execute("ALTER TABLE " + archive + " REMOVE PARTITIONING"))
+                .then(execute("ALTER TABLE sent_emails EXCHANGE PARTITION " + partition.name() + " WITH TABLE " + archive))
+                .then(execute("ALTER TABLE sent_emails DROP PARTITION " + partition.name()))
+                .doOnSuccess(ignored -> log.info("Moved expired sent_emails partition {} to {}", partition.name(), archive));
+    }
+
+    private Mono<Void> purge(String table, String column, LocalDateTime cutoff) {
+        Mono<Long> batch = whileLeader(purgeBatch(table, column, cutoff));
+        return batch
+                .expand(deleted -> deleted >= purgeBatchSize
+                        ? Mono.delay(purgePause).then(batch)
+                        : Mono.empty())
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.info("Purged {} {} rows from before {}", total, table, cutoff);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Long> purgeBatch(String table, String column, LocalDateTime cutoff) {
+        return databaseClient.sql("DELETE FROM " + table + " WHERE " + column + " < :cutoff LIMIT :limit")
+                .bind("cutoff", cutoff)
+                .bind("limit", purgeBatchSize)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Renews the retention lease, then runs {@code work} if this node still holds it; empty otherwise.
+     */
+    private <T> Mono<T> whileLeader(Mono<T> work) {
+        return leaderLease.acquire(LEASE, leaseDuration)
+                .flatMap(held -> held ? work : Mono.empty());
+    }
+
+    private Mono<Void> execute(String sql) {
+        return databaseClient.sql(sql).fetch().rowsUpdated().then();
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "p" + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * A partition and its exclusive upper bound, null for MAXVALUE.
+     */
+    private record Partition(String name, LocalDate lessThan) {
+
+        private static Partition of(String name, String description) {
+            if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+                return new Partition(name, null);
+            }
+            // RANGE COLUMNS bounds read back as quoted literals, e.g. '2026-02-01 00:00:00'
+            String literal = description.replace("'", "").trim();
+            return new Partition(name, LocalDate.parse(literal.substring(0, 10)));
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package in.syncboard.bulkmail.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.syncboard.bulkmail.dto.MailJobDTO;
+import in.syncboard.bulkmail.dto.MailJobRequestDTO;
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.entity.MailJobEntity;
+import in.syncboard.bulkmail.entity.TemplateEntity;
+import in.syncboard.bulkmail.exception.ProfileException;
+import in.syncboard.bulkmail.repository.MailJobRepository;
+import in.syncboard.bulkmail.service.MailJobService;
+import in.syncboard.bulkmail.utils.EmailUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs bulk sends as background jobs.
+ * <p>
+ * Recipients are sent in chunks of {@code mail.jobs.chunk-size} through the {@link BulkSendEngine}.
+ * Counters live in {@link LongAdder}s and are written to {@code mail_jobs} every
+ * {@code mail.jobs.flush-interval} and at each chunk checkpoint, never per recipient. The checkpoint also
+ * stores the counts as of its position in the same statement, and a resumed job starts from those rather
+ * than the latest flush, so a chunk sent again is not counted twice.
+ * <p>
+ * Each job runs on exactly one node, the one named in {@code owner_id}. Owners refresh {@code heartbeat_at}
+ * every {@code mail.jobs.heartbeat-interval}; a RUNNING or PAUSED job whose heartbeat is older than
+ * {@code mail.jobs.owner-timeout} - its node died or was restarted - is taken over by another node and
+ * continues from its last checkpoint, so at most one chunk may be sent twice. Every write by the owner is
+ * conditional on still owning the job, and a node that finds it lost a job stops running it. Pause,
+ * resume and cancel change the row, so they work on any node; the owner applies them at once if it is the
+ * node that got the request and otherwise on its next heartbeat.
+ */
+@Service
+@Slf4j
+public class MailJobServiceImpl implements MailJobService {
+
+    private static final TypeReference<List<String>> RECIPIENTS_TYPE = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> VARIABLES_TYPE = new TypeReference<>() {};
+    private static final List<String> ACTIVE = List.of("RUNNING", "PAUSED");
+
+    private final MailJobRepository mailJobRepository;
+    private final TemplateCache templateCache;
+    private final BulkSendEngine bulkSendEngine;
+    private final CampaignStore campaignStore;
+    private final SuppressionList suppressionList;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final Duration flushInterval;
+    private final Duration heartbeatInterval;
+    private final Duration ownerTimeout;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, JobRuntime> runtimes = new ConcurrentHashMap<>();
+    private Disposable counterFlusher;
+    private Disposable ownership;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    public MailJobServiceImpl(MailJobRepository mailJobRepository,
+                              TemplateCache templateCache,
+                              BulkSendEngine bulkSendEngine,
+                              CampaignStore campaignStore,
+                              SuppressionList suppressionList,
+                              ObjectMapper objectMapper,
+                              @Value("${mail.jobs.chunk-size:500}") int chunkSize,
+                              @Value("${mail.jobs.flush-interval:2s}") Duration flushInterval,
+                              @Value("${mail.jobs.heartbeat-interval:5s}") Duration heartbeatInterval,
+                              @Value("${mail.jobs.owner-timeout:30s}") Duration ownerTimeout) {
+        this.mailJobRepository = mailJobRepository;
+        this.templateCache = templateCache;
+        this.bulkSendEngine = bulkSendEngine;
+        this.campaignStore = campaignStore;
+        this.suppressionList = suppressionList;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.flushInterval = flushInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.ownerTimeout = ownerTimeout;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        counterFlusher = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flushCounters())
+                .subscribe();
+        // Jobs of a previous run of this node are taken over like any other once their heartbeat is stale
+        ownership = Flux.interval(Duration.ZERO, heartbeatInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> maintainOwnership())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (counterFlusher != null) {
+            counterFlusher.dispose();
+        }
+        if (ownership != null) {
+            ownership.dispose();
+        }
+    }
+
+    @Override
+    public Mono<MailJobDTO> createJob(MailJobRequestDTO request) {
+        Map<String, Object> variables = request.getVariables();
+        return findActiveTemplate(request.getTemplateId())
+                // Variables live on the campaign only; without any there is nothing to store
+                .flatMap(template -> variables == null || variables.isEmpty()
+                        ? Mono.just(Optional.<Long>empty())
+                        : campaignStore.create(template.getTemplateId(), variables)
+                                .map(campaign -> Optional.of(campaign.getCampaignId())))
+                .flatMap(campaignId -> {
+                    List<String> recipients = distinctRecipients(request.getRecipients());
+                    MailJobEntity job = MailJobEntity.builder()
+                            .templateId(request.getTemplateId())
+                            .campaignId(campaignId.orElse(null))
+                            .status("RUNNING")
+                            .recipients(writeJson(recipients))
+                            .totalRecipients(recipients.size())
+                            .nextIndex(0)
+                            .sentCount(0L)
+                            .failedCount(0L)
+                            .checkpointSentCount(0L)
+                            .checkpointFailedCount(0L)
+                            .startedAt(LocalDateTime.now())
+                            .ownerId(nodeId)
+                            .heartbeatAt(LocalDateTime.now())
+                            .build();
+                    return mailJobRepository.save(job);
+                })
+                .map(job -> {
+                    log.debug("Created mail job {} for {} recipients", job.getJobId(), job.getTotalRecipients());
+                    return mapToDTO(job, launch(job, false));
+                });
+    }
+
+    @Override
+    public Mono<MailJobDTO> getJob(Long jobId) {
+        return findJob(jobId)
+                .map(job -> mapToDTO(job, runtimes.get(jobId)));
+    }
+
+    @Override
+    public Mono<MailJobDTO> pauseJob(Long jobId) {
+        return control(jobId, mailJobRepository.transition(jobId, "RUNNING", "PAUSED"));
+    }
+
+    @Override
+    public Mono<MailJobDTO> resumeJob(Long jobId) {
+        return control(jobId, mailJobRepository.transition(jobId, "PAUSED", "RUNNING"));
+    }
+
+    @Override
+    public Mono<MailJobDTO> cancelJob(Long jobId) {
+        return control(jobId, mailJobRepository.cancel(jobId, LocalDateTime.now()));
+    }
+
+    /**
+     * Applies a conditional status change to the job row, then to the local runtime if this node runs the job.
+     */
+    private Mono<MailJobDTO> control(Long jobId, Mono<Integer> update) {
+        return findJob(jobId)
+                .flatMap(before -> update)
+                .flatMap(updated -> findJob(jobId)
+                        .flatMap(job -> {
+                            if (updated == 0) {
+                                return Mono.error(ProfileException.conflict("Mail job " + jobId + " is " + job.getStatus()));
+                            }
+                            JobRuntime runtime = runtimes.get(jobId);
+                            return runtime != null
+                                    ? apply(job, runtime).then(findJob(jobId)).map(current -> mapToDTO(current, runtimes.get(jobId)))
+                                    : Mono.just(mapToDTO(job, null));
+                        }));
+    }
+
+    /**
+     * Brings a local runtime in line with its job row: stops it if another node owns the job or it was
+     * cancelled, pauses or resumes it to match the row's status.
+     */
+    private Mono<Void> apply(MailJobEntity job, JobRuntime runtime) {
+        if (!nodeId.equals(job.getOwnerId())) {
+            log.warn("Mail job {} is now owned by another node, stopping it here", job.getJobId());
+            runtime.cancel();
+            runtimes.remove(job.getJobId(), runtime);
+            return Mono.empty();
+        }
+        switch (job.getStatus()) {
+            case "CANCELLED" -> {
+                runtime.cancel();
+                return mailJobRepository.updateCounters(job.getJobId(), nodeId, runtime.sent.sum(), runtime.failed.sum())
+                        .doFinally(signal -> runtimes.remove(job.getJobId(), runtime))
+                        .then();
+            }
+            case "PAUSED" -> runtime.pause();
+            case "RUNNING" -> runtime.resume();
+            default -> {
+            }
+        }
+        return Mono.empty();
+    }
+
+    private Mono<Void> maintainOwnership() {
+        LocalDateTime now = LocalDateTime.now();
+        return mailJobRepository.heartbeat(nodeId, now)
+                .thenMany(Flux.defer(() -> mailJobRepository.findAllById(List.copyOf(runtimes.keySet()))))
+                .concatMap(job -> {
+                    JobRuntime runtime = runtimes.get(job.getJobId());
+                    return runtime != null ? apply(job, runtime) : Mono.empty();
+                })
+                .then(mailJobRepository.claimOrphaned(nodeId, now, now.minus(ownerTimeout)))
+                .thenMany(Flux.defer(() -> mailJobRepository.findByOwnerIdAndStatusIn(nodeId, ACTIVE)))
+                .filter(job -> !runtimes.containsKey(job.getJobId()))
+                .doOnNext(job -> {
+                    log.info("Taking over mail job {} ({}) from recipient {}", job.getJobId(), job.getStatus(), job.getNextIndex());
+                    launch(job, "PAUSED".equals(job.getStatus()));
+                })
+                .onErrorResume(e -> {
+                    log.error("Error maintaining mail job ownership: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private JobRuntime launch(MailJobEntity job, boolean paused) {
+        JobRuntime runtime = new JobRuntime(job);
+        if (paused) {
+            runtime.pause();
+        }
+        // The heartbeat may find a job just created here before createJob launches it
+        JobRuntime existing = runtimes.putIfAbsent(job.getJobId(), runtime);
+        if (existing != null) {
+            return existing;
+        }
+
+        List<String> recipients = readJson(job.getRecipients(), RECIPIENTS_TYPE);
+        // Jobs created before campaigns existed carry their variables on the job row
+        Mono<Map<String, Object>> jobVariables = job.getCampaignId() != null
+                ? campaignStore.variables(job.getCampaignId())
+                : Mono.just(job.getVariables() != null ? readJson(job.getVariables(), VARIABLES_TYPE) : Collections.emptyMap());
+
+        // The runtime is already visible to cancel(); its Swap disposes this subscription if that came first
+        runtime.subscription.update(findActiveTemplate(job.getTemplateId())
+                .flatMap(template -> jobVariables.flatMap(variables -> Flux.range(0, chunkCount(recipients.size(), job.getNextIndex()))
+                            .map(chunk -> job.getNextIndex() + chunk * chunkSize)
+                            .concatMap(from -> {
+                                if (runtime.cancelled) {
+                                    return Mono.<Integer>empty();
+                                }
+                                int to = Math.min(from + chunkSize, recipients.size());
+                                return runtime.awaitRunning()
+                                        .thenMany(sendChunk(recipients.subList(from, to), template, job.getCampaignId(), variables, runtime))
+                                        .then(Mono.defer(() -> mailJobRepository.checkpoint(job.getJobId(), nodeId, to,
+                                                runtime.sent.sum(), runtime.failed.sum())))
+                                        .flatMap(this::requireOwnership);
+                            })
+                            .then(Mono.defer(() -> runtime.cancelled ? Mono.<Void>empty() : finish(job, runtime, "COMPLETED", null)))))
+                .onErrorResume(e -> {
+                    if (e instanceof OwnershipLostException) {
+                        log.warn("Mail job {} was taken over by another node, stopping it here", job.getJobId());
+                        runtimes.remove(job.getJobId(), runtime);
+                        return Mono.empty();
+                    }
+                    log.error("Mail job {} failed: {}", job.getJobId(), e.getMessage());
+                    return finish(job, runtime, "FAILED", e.getMessage());
+                })
+                .subscribe());
+        return runtime;
+    }
+
+    private Flux<MailEntity> sendChunk(List<String> recipients, TemplateEntity template, Long campaignId,
+                                       Map<String, Object> variables, JobRuntime runtime) {
+        // Jobs created before campaigns existed still carry their variables on every row
+        String variablesJson = campaignId == null && !variables.isEmpty() ? writeJson(variables) : null;
+        Flux<MailEntity> mails = Flux.fromIterable(recipients)
+                .filter(recipient -> {
+                    if (EmailUtils.isValidEmail(recipient) && !suppressionList.contains(EmailUtils.normalizeAddress(recipient))) {
+                        return true;
+                    }
+                    // Invalid and suppressed addresses count as failed instead of aborting the job
+                    runtime.failed.increment();
+                    return false;
+                })
+                .map(recipient -> MailEntity.builder()
+                        .recipient(recipient)
+                        .subject(template.getSubject())
+                        .templateId(template.getTemplateId())
+                        .sender(fromEmail)
+                        .status("SENDING")
+                        .campaignId(campaignId)
+                        .variables(variablesJson)
+                        .acceptedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                        .build());
+
+        return bulkSendEngine.send(mails, template, variables)
+                .doOnNext(mail -> {
+                    if ("SUCCESS".equals(mail.getStatus())) {
+                        runtime.sent.increment();
+                    } else {
+                        runtime.failed.increment();
+                    }
+                })
+                // Stop pulling while paused; in-flight sends drain, nothing new starts
+                .delayUntil(mail -> runtime.awaitRunning());
+    }
+
+    private Mono<Void> finish(MailJobEntity job, JobRuntime runtime, String status, String errorMessage) {
+        // Only from RUNNING or PAUSED, so a cancel from another node is kept and only the counters written.
+        // The runtime stays registered until then so the heartbeat does not relaunch the job in between
+        return mailJobRepository.finish(job.getJobId(), nodeId, status, errorMessage,
+                        "COMPLETED".equals(status) ? job.getTotalRecipients() : null,
+                        runtime.sent.sum(), runtime.failed.sum(), LocalDateTime.now())
+                .flatMap(updated -> updated > 0
+                        ? Mono.<Integer>empty()
+                        : mailJobRepository.updateCounters(job.getJobId(), nodeId, runtime.sent.sum(), runtime.failed.sum()))
+                .doFinally(signal -> runtimes.remove(job.getJobId(), runtime))
+                .then();
+    }
+
+    private Mono<Integer> requireOwnership(Integer updated) {
+        return updated > 0 ? Mono.just(updated) : Mono.error(new OwnershipLostException());
+    }
+
+    private Mono<Void> flushCounters() {
+        return Flux.fromIterable(runtimes.values())
+                .filter(JobRuntime::isDirty)
+                .flatMap(runtime -> mailJobRepository.updateCounters(runtime.jobId, nodeId, runtime.markFlushed(), runtime.failed.sum()))
+                .onErrorResume(e -> {
+                    log.error("Error flushing mail job counters: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private int chunkCount(int total, int from) {
+        return Math.max(0, (total - from + chunkSize - 1) / chunkSize);
+    }
+
+    private Mono<MailJobEntity> findJob(Long jobId) {
+        return mailJobRepository.findById(jobId)
+                .switchIfEmpty(Mono.error(ProfileException.notFound("Mail job not found with ID: " + jobId)));
+    }
+
+    /**
+     * The recipients without duplicates or case variants, keeping the first spelling of each.
+     */
+    private static List<String> distinctRecipients(List<String> recipients) {
+        Map<String, String> byAddress = new LinkedHashMap<>(recipients.size() * 2);
+        for (String recipient : recipients) {
+            byAddress.putIfAbsent(EmailUtils.normalizeAddress(recipient), recipient);
+        }
+        return new ArrayList<>(byAddress.values());
+    }
+
+    private Mono<TemplateEntity> findActiveTemplate(Long templateId) {
+        return templateCache.get(templateId)
+                .switchIfEmpty(Mono.error(new ProfileException("Template not found with ID: " + templateId, HttpStatus.NOT_FOUND)))
+                .flatMap(template -> {
+                    if (!Boolean.TRUE.equals(template.getIsActive())) {
+                        return Mono.error(new ProfileException("Template is not active: " + template.getName(), HttpStatus.BAD_REQUEST));
+                    }
+                    return Mono.just(template);
+                });
+    }
+
+    private String writeJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw ProfileException.badRequest("Error serializing job data: " + e.getMessage());
+        }
+    }
+
+    private <T> T readJson(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt mail job data: " + e.getMessage(), e);
+        }
+    }
+
+    private MailJobDTO mapToDTO(MailJobEntity job, JobRuntime runtime) {
+        long sent = runtime != null ? runtime.sent.sum() : job.getSentCount();
+        long failed = runtime != null ? runtime.failed.sum() : job.getFailedCount();
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        double elapsedSeconds = job.getStartedAt() != null
+                ? Duration.between(job.getStartedAt(), end).toMillis() / 1000.0
+                : 0;
+
+        return MailJobDTO.builder()
+                .jobId(job.getJobId())
+                .templateId(job.getTemplateId())
+                .status(job.getStatus())
+                .total(job.getTotalRecipients())
+                .queued(Math.max(0, job.getTotalRecipients() - sent - failed))
+                .sent(sent)
+                .failed(failed)
+                .throughputPerSecond(elapsedSeconds > 0 ? (sent + failed) / elapsedSeconds : 0)
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .errorMessage(job.getErrorMessage())
+                .build();
+    }
+
+    private static final class OwnershipLostException extends RuntimeException {
+
+        private OwnershipLostException() {
+            super("Mail job is owned by another node");
+        }
+    }
+
+    private static final class JobRuntime {
+        private final Long jobId;
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final Disposable.Swap subscription = Disposables.swap();
+        private volatile Sinks.One<Void> running = Sinks.one();
+        private boolean paused;
+        private volatile long flushedTotal;
+        private volatile boolean cancelled;
+
+        private JobRuntime(MailJobEntity job) {
+            this.jobId = job.getJobId();
+            // The chunk after the checkpoint is sent again, so it must not be counted from the last flush too
+            this.sent.add(job.getCheckpointSentCount() != null ? job.getCheckpointSentCount() : 0);
+            this.failed.add(job.getCheckpointFailedCount() != null ? job.getCheckpointFailedCount() : 0);
+            this.flushedTotal = sent.sum() + failed.sum();
+            this.running.tryEmitEmpty();
+        }
+
+        private Mono<Void> awaitRunning() {
+            return running.asMono();
+        }
+
+        // Idempotent, since the heartbeat applies the row's status on every tick
+        private synchronized void pause() {
+            if (!paused) {
+                paused = true;
+                running = Sinks.one();
+            }
+        }
+
+        private synchronized void resume() {
+            if (paused) {
+                paused = false;
+                running.tryEmitEmpty();
+            }
+        }
+
+        // Also before the job is subscribed: the swap then disposes the subscription as it is set
+        private void cancel() {
+            cancelled = true;
+            subscription.dispose();
+        }
+
+        private boolean isDirty() {
+            return sent.sum() + failed.sum() != flushedTotal;
+        }
+
+        private long markFlushed() {
+            long sentNow = sent.sum();
+            flushedTotal = sentNow + failed.sum();
+            return sentNow;
+        }
+    }
+}
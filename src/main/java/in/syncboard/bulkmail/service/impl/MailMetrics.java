@@ -0,0 +1,164 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.utils.SmtpErrorClassifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the stages every email passes through, so a slow send can be pinned on one of them.
+ * <p>
+ * {@code mail.stage} is a timer tagged with {@code stage} (see {@link Stage}), {@code template} and
+ * {@code result}. With {@code mail.metrics.percentile-histograms}, off by default, it also publishes
+ * histogram buckets between 1ms and 60s that Prometheus can aggregate into percentiles across instances;
+ * that is dozens of series per stage, template and result, so per-template percentiles normally come from
+ * the latency sketches in {@link DeliveryLatencyRecorder} instead. Meters are created
+ * once per tag combination and cached, so recording costs two {@code nanoTime} calls and a map lookup.
+ * Only the first {@code mail.metrics.max-template-tags} template IDs get their own tag; the rest share
+ * {@code other} to keep series bounded.
+ * <p>
+ * Also registered: {@code mail.sends.in.flight} (sends handed to {@link SmtpExecutor} and not yet
+ * finished), {@code mail.scheduler.queued} (sends submitted to the SMTP executor and not yet started) and
+ * {@code mail.smtp.replies} (SMTP outcomes by reply class: 2xx, 4xx, 5xx, or
+ * {@code none} when the server never replied).
+ */
+@Component
+public class MailMetrics {
+
+    public enum Stage {
+        TEMPLATE_LOOKUP("template.lookup"),
+        RENDER("render"),
+        MIME_BUILD("mime.build"),
+        SMTP_HANDOFF("smtp.handoff"),
+        STATUS_WRITE("status.write");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private static final String OTHER_TEMPLATE = "other";
+    private static final String NO_TEMPLATE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistograms;
+    private final int maxTemplateTags;
+
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<Long, String> templateTags = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter[] replyClasses;
+
+    public MailMetrics(MeterRegistry meterRegistry,
+                       SmtpExecutor smtpExecutor,
+                       @Value("${mail.metrics.percentile-histograms:false}") boolean percentileHistograms,
+                       @Value("${mail.metrics.max-template-tags:200}") int maxTemplateTags) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistograms = percentileHistograms;
+        this.maxTemplateTags = Math.max(0, maxTemplateTags);
+
+        Gauge.builder("mail.sends.in.flight", inFlight, AtomicInteger::get)
+                .description("Sends handed to the SMTP executor and not yet finished")
+                .register(meterRegistry);
+        Gauge.builder("mail.scheduler.queued", smtpExecutor, SmtpExecutor::queued)
+                .description("Tasks waiting for a thread")
+                .tag("scheduler", "smtp")
+                .register(meterRegistry);
+
+        // Indexed by reply code / 100, with 0 for no reply
+        this.replyClasses = new Counter[6];
+        this.replyClasses[0] = replyCounter("none");
+        for (int i = 2; i <= 5; i++) {
+            this.replyClasses[i] = replyCounter(i + "xx");
+        }
+    }
+
+    public void record(Stage stage, Long templateId, String result, long startNanos) {
+        timer(stage, templateId, result).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times {@code mono} from subscription to its result; an empty completion counts as success.
+     */
+    public <T> Mono<T> time(Stage stage, Long templateId, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono
+                    .doOnSuccess(value -> record(stage, templateId, SUCCESS, start))
+                    .doOnError(e -> record(stage, templateId, ERROR, start));
+        });
+    }
+
+    public void sendStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void sendFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public void smtpAccepted() {
+        replyClasses[2].increment();
+    }
+
+    public void smtpFailed(Throwable error) {
+        int replyClass = SmtpErrorClassifier.replyCode(error) / 100;
+        replyClasses[replyClass >= 2 && replyClass <= 5 ? replyClass : 0].increment();
+    }
+
+    private Counter replyCounter(String replyClass) {
+        return Counter.builder("mail.smtp.replies")
+                .description("SMTP outcomes by reply class")
+                .tag("class", replyClass)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(Stage stage, Long templateId, String result) {
+        TimerKey key = new TimerKey(stage, templateTag(templateId), result);
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, k -> Timer.builder("mail.stage")
+                    .description("Time spent in one stage of sending an email")
+                    .tag("stage", k.stage.tag)
+                    .tag("template", k.template)
+                    .tag("result", k.result)
+                    .publishPercentileHistogram(percentileHistograms)
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+
+    private String templateTag(Long templateId) {
+        if (templateId == null) {
+            return NO_TEMPLATE;
+        }
+        String tag = templateTags.get(templateId);
+        if (tag != null) {
+            return tag;
+        }
+        // Racing threads may let a few more through than the limit, which is harmless
+        return templateTags.size() < maxTemplateTags
+                ? templateTags.computeIfAbsent(templateId, String::valueOf)
+                : OTHER_TEMPLATE;
+    }
+
+    private record TimerKey(Stage stage, String template, String result) {
+    }
+}
@@ -0,0 +1,120 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.utils.SmtpErrorClassifier;
+import in.syncboard.bulkmail.utils.SmtpErrorClassifier.ErrorClass;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns a failed send into a scheduled retry, a permanent failure or a dead letter.
+ * <p>
+ * Transient failures (see {@link SmtpErrorClassifier}) are moved to RETRYING with {@code next_attempt_at}
+ * set by exponential backoff with jitter, up to {@code mail.retry.max-attempts} attempts in total. The
+ * database column is what makes a retry happen - the dispatcher claims due RETRYING rows, so retries
+ * survive a restart. A hashed timer wheel additionally wakes the dispatcher the moment a retry comes due
+ * rather than on its next poll; a wheel keeps that cheap with tens of thousands of retries outstanding.
+ */
+@Component
+@Slf4j
+public class MailRetryScheduler {
+
+    private static final long WHEEL_TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512;
+    private static final long MAX_PENDING_TIMERS = 100_000;
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double multiplier;
+    private final Timer timer;
+
+    private volatile Runnable onRetryDue = () -> {
+    };
+
+    public MailRetryScheduler(@Value("${mail.retry.max-attempts:5}") int maxAttempts,
+                              @Value("${mail.retry.initial-backoff:30s}") Duration initialBackoff,
+                              @Value("${mail.retry.max-backoff:30m}") Duration maxBackoff,
+                              @Value("${mail.retry.multiplier:2.0}") double multiplier) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.multiplier = multiplier;
+        this.timer = new HashedWheelTimer(runnable -> {
+            Thread thread = new Thread(runnable, "mail-retry-timer");
+            thread.setDaemon(true);
+            return thread;
+        }, WHEEL_TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, true, MAX_PENDING_TIMERS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Register the callback run whenever a scheduled retry comes due.
+     */
+    public void onRetryDue(Runnable callback) {
+        this.onRetryDue = callback;
+    }
+
+    /**
+     * Set the status of {@code mail} after a failed attempt. {@code attempts} must already count this attempt.
+     */
+    public void onFailure(MailEntity mail, Throwable error) {
+        int attempts = mail.getAttempts() != null ? mail.getAttempts() : 1;
+        ErrorClass errorClass = SmtpErrorClassifier.classify(error);
+        mail.setErrorMessage(error.getMessage());
+
+        if (errorClass == ErrorClass.TRANSIENT && attempts < maxAttempts) {
+            Duration delay = backoff(attempts);
+            log.debug("Transient failure sending to {} (attempt {} of {}), retrying in {}: {}",
+                    mail.getRecipient(), attempts, maxAttempts, delay, error.getMessage());
+            mail.setStatus("RETRYING");
+            mail.setNextAttemptAt(LocalDateTime.now().plus(delay));
+            return;
+        }
+
+        mail.setStatus("FAILED");
+        mail.setNextAttemptAt(null);
+        mail.setRetriesExhausted(errorClass == ErrorClass.TRANSIENT);
+    }
+
+    /**
+     * Arm the wake-up for a saved RETRYING row.
+     */
+    public void schedule(MailEntity mail) {
+        if (!"RETRYING".equals(mail.getStatus()) || mail.getNextAttemptAt() == null) {
+            return;
+        }
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), mail.getNextAttemptAt()).toMillis());
+        try {
+            timer.newTimeout(timeout -> onRetryDue.run(), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            // Too many outstanding or shutting down; the dispatcher's poll still picks the row up
+            log.debug("Retry wake-up for email {} not scheduled: {}", mail.getMailId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay is fixed and half is random, so retries from a
+     * failed batch spread out instead of hitting the server together.
+     */
+    Duration backoff(int attempt) {
+        double exponential = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+        long capped = (long) Math.min(exponential, maxBackoff.toMillis());
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+}
@@ -2,44 +2,56 @@ package in.syncboard.bulkmail.service.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import in.syncboard.bulkmail.dto.EmailValidationDTO;
+import in.syncboard.bulkmail.dto.MailHistoryPageDTO;
 import in.syncboard.bulkmail.dto.MailRequestDTO;
 import in.syncboard.bulkmail.dto.MailResponseDTO;
 import in.syncboard.bulkmail.entity.MailEntity;
 import in.syncboard.bulkmail.entity.TemplateEntity;
 import in.syncboard.bulkmail.exception.ProfileException;
 import in.syncboard.bulkmail.repository.MailRepository;
-import in.syncboard.bulkmail.repository.TemplateRepository;
+import in.syncboard.bulkmail.service.DomainResolver.DomainStatus;
 import in.syncboard.bulkmail.service.MailService;
 import in.syncboard.bulkmail.utils.EmailUtils;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MailServiceImpl implements MailService {
 
-    private final JavaMailSender mailSender;
-    private final TemplateRepository templateRepository;
+    private final BulkSendEngine bulkSendEngine;
+    private final CampaignStore campaignStore;
+    private final DomainVerifier domainVerifier;
+    private final SuppressionList suppressionList;
+    private final MailDispatcher mailDispatcher;
+    private final TemplateCache templateCache;
     private final MailRepository mailRepository;
+    private final MailHistoryReader mailHistoryReader;
+    private final MailStatsRollup statsRollup;
     private final ModelMapper modelMapper;
     private final ObjectMapper objectMapper;
 
+    private static final int VALIDATION_CHUNK_SIZE = 1024;
+
     @Value("${spring.mail.username}")
     private String fromEmail;
 
@@ -49,65 +61,134 @@ public class MailServiceImpl implements MailService {
             return Mono.error(new ProfileException("Invalid email address: " + mailRequest.getRecipient(), HttpStatus.BAD_REQUEST));
         }
 
-        return templateRepository.findById(mailRequest.getTemplateId())
-                .switchIfEmpty(Mono.error(new ProfileException("Template not found with ID: " + mailRequest.getTemplateId(), HttpStatus.NOT_FOUND)))
-                .flatMap(template -> {
-                    if (!Boolean.TRUE.equals(template.getIsActive())) {
-                        return Mono.error(new ProfileException("Template is not active: " + template.getName(), HttpStatus.BAD_REQUEST));
-                    }
-
-                    return sendEmail(mailRequest, template);
-                });
+        return suppressionList.awaitLoaded()
+                .then(Mono.defer(() -> suppressionList.contains(EmailUtils.normalizeAddress(mailRequest.getRecipient()))
+                        ? Mono.<DomainStatus>error(new ProfileException("Recipient is on the suppression list: " + mailRequest.getRecipient(), HttpStatus.BAD_REQUEST))
+                        : domainVerifier.checkRecipient(mailRequest.getRecipient())))
+                .flatMap(status -> status == DomainStatus.UNDELIVERABLE
+                        ? Mono.<TemplateEntity>error(new ProfileException("Recipient domain does not accept mail: " + mailRequest.getRecipient(), HttpStatus.BAD_REQUEST))
+                        : findActiveTemplate(mailRequest.getTemplateId()))
+                .flatMap(template -> mailRepository.save(createMailEntity(mailRequest, template, "QUEUED")))
+                .doOnNext(queuedMail -> mailDispatcher.wakeUp())
+                .map(this::createMailResponseDTO);
     }
 
     @Override
     public Flux<MailResponseDTO> sendBulkTemplateEmail(List<String> recipients, Long templateId, Map<String, Object> variables) {
-        return Flux.fromIterable(recipients)
-                .flatMap(recipient -> {
-                    MailRequestDTO request = new MailRequestDTO();
-                    request.setRecipient(recipient);
-                    request.setTemplateId(templateId);
-                    request.setVariables(variables);
-
-                    return sendTemplateEmail(request);
-                });
+        return findActiveTemplate(templateId)
+                .flatMapMany(template -> suppressionList.awaitLoaded().thenMany(Flux.defer(() -> {
+                    // Drop duplicates and case variants, and set aside suppressed addresses, before anything is stored
+                    Set<String> seen = new HashSet<>(recipients.size() * 2);
+                    List<String> accepted = new ArrayList<>(recipients.size());
+                    List<MailEntity> suppressed = new ArrayList<>();
+                    for (String recipient : recipients) {
+                        if (!EmailUtils.isValidEmail(recipient)) {
+                            return Flux.error(new ProfileException("Invalid email address: " + recipient, HttpStatus.BAD_REQUEST));
+                        }
+                        String normalized = EmailUtils.normalizeAddress(recipient);
+                        if (!seen.add(normalized)) {
+                            continue;
+                        }
+                        if (suppressionList.contains(normalized)) {
+                            suppressed.add(createSuppressedEntity(recipient, template));
+                        } else {
+                            accepted.add(recipient);
+                        }
+                    }
+                    log.debug("Bulk send for template {}: {} recipients, {} duplicates, {} suppressed", templateId,
+                            recipients.size(), recipients.size() - accepted.size() - suppressed.size(), suppressed.size());
+                    if (accepted.isEmpty()) {
+                        return Flux.fromIterable(suppressed);
+                    }
+
+                    // Variables are stored once on the campaign, not serialized onto every row;
+                    // a send without variables needs no campaign
+                    Mono<Optional<Long>> campaign = variables == null || variables.isEmpty()
+                            ? Mono.just(Optional.empty())
+                            : campaignStore.create(templateId, variables).map(campaign -> Optional.of(campaign.getCampaignId()));
+                    return campaign
+                            .flatMapMany(campaignId -> {
+                                Flux<MailEntity> mails = Flux.fromIterable(accepted)
+                                        .map(recipient -> {
+                                            MailRequestDTO request = new MailRequestDTO();
+                                            request.setRecipient(recipient);
+                                            request.setTemplateId(templateId);
+
+                                            MailEntity mail = createMailEntity(request, template, "SENDING");
+                                            mail.setCampaignId(campaignId.orElse(null));
+                                            return mail;
+                                        });
+
+                                return Flux.fromIterable(suppressed)
+                                        .concatWith(bulkSendEngine.send(mails, template, variables));
+                            });
+                })))
+                .map(this::createMailResponseDTO);
     }
 
     @Override
-    public Flux<MailResponseDTO> getMailHistoryByRecipient(String recipient) {
-        return mailRepository.findByRecipient(recipient)
-                .map(this::createMailResponseDTO);
+    public Mono<MailHistoryPageDTO> getMailHistoryByRecipient(String recipient, String cursor, Integer size) {
+        return mailHistoryReader.byRecipient(recipient, cursor, size);
     }
 
     @Override
-    public Flux<MailResponseDTO> getMailHistoryByDateRange(LocalDate startDate, LocalDate endDate) {
-        return mailRepository.findBySentDateBetween(startDate.toString(), endDate.toString())
-                .map(this::createMailResponseDTO);
+    public Mono<MailHistoryPageDTO> getMailHistoryByDateRange(LocalDate startDate, LocalDate endDate, String cursor, Integer size) {
+        if (startDate.isAfter(endDate)) {
+            return Mono.error(ProfileException.badRequest("Start date must not be after end date"));
+        }
+        return mailHistoryReader.byDateRange(startDate, endDate, cursor, size);
     }
 
     @Override
     public Mono<Boolean> validateEmail(String email) {
-        if (!EmailUtils.isValidEmail(email)) {
-            return Mono.just(false);
+        return domainVerifier.isDeliverable(email);
+    }
+
+    @Override
+    public Flux<EmailValidationDTO> validateEmails(Flux<String> emails) {
+        // Validation is pure CPU work; chunks keep the per-task overhead small for large uploads and
+        // flatMapSequential spreads them over the parallel scheduler while keeping input order
+        return emails
+                .buffer(VALIDATION_CHUNK_SIZE)
+                .flatMapSequential(chunk -> Mono.fromCallable(() -> validateChunk(chunk))
+                                .subscribeOn(Schedulers.parallel()),
+                        Schedulers.DEFAULT_POOL_SIZE)
+                .flatMapIterable(results -> results);
+    }
+
+    private static List<EmailValidationDTO> validateChunk(List<String> emails) {
+        List<EmailValidationDTO> results = new ArrayList<>(emails.size());
+        for (String email : emails) {
+            int offset = EmailUtils.domainOffset(email);
+            results.add(EmailValidationDTO.builder()
+                    .email(email)
+                    .valid(offset >= 0)
+                    .domain(offset >= 0 ? EmailUtils.normalizeDomain(email, offset) : null)
+                    .build());
         }
+        return results;
+    }
 
-        return Mono.fromCallable(() -> {
-                    String domain = EmailUtils.extractDomain(email);
-                    return domain != null;
-                })
-                .doOnError(e -> log.error("Error validating email {}: {}", email, e.getMessage()))
-                .onErrorReturn(false)
-                .subscribeOn(Schedulers.boundedElastic());
+    private Mono<TemplateEntity> findActiveTemplate(Long templateId) {
+        return templateCache.get(templateId)
+                .switchIfEmpty(Mono.error(new ProfileException("Template not found with ID: " + templateId, HttpStatus.NOT_FOUND)))
+                .flatMap(template -> {
+                    if (!Boolean.TRUE.equals(template.getIsActive())) {
+                        return Mono.error(new ProfileException("Template is not active: " + template.getName(), HttpStatus.BAD_REQUEST));
+                    }
+                    return Mono.just(template);
+                });
     }
 
-    private Mono<MailResponseDTO> sendEmail(MailRequestDTO request, TemplateEntity template) {
+    private MailEntity createMailEntity(MailRequestDTO request, TemplateEntity template, String status) {
         // Create a mail entity to track the email
         MailEntity mailEntity = MailEntity.builder()
                 .recipient(request.getRecipient())
                 .subject(request.getSubject() != null ? request.getSubject() : template.getSubject())
                 .templateId(template.getTemplateId())
                 .sender(fromEmail)
-                .status("SENDING")
+                .status(status)
+                .acceptedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
                 .build();
 
         // Convert variables to JSON string for storage
@@ -118,62 +199,21 @@ public class MailServiceImpl implements MailService {
                 log.error("Error serializing variables: {}", e.getMessage());
             }
         }
-
-        // Save initial record to get an ID
-        return mailRepository.save(mailEntity)
-                .flatMap(savedMail -> {
-                    // Send the actual email using JavaMailSender
-                    return Mono.fromCallable(() -> {
-                                try {
-                                    // Prepare the email content
-                                    String content = processTemplate(template.getContent(), request.getVariables());
-                                    String subject = request.getSubject() != null ? request.getSubject() : template.getSubject();
-
-                                    // Create and send the message
-                                    MimeMessage message = mailSender.createMimeMessage();
-                                    MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-                                    helper.setFrom(fromEmail);
-                                    helper.setTo(request.getRecipient());
-                                    helper.setSubject(subject);
-                                    helper.setText(content, true); // true = HTML content
-
-                                    mailSender.send(message);
-                                    return true;
-                                } catch (MessagingException e) {
-                                    log.error("Error sending email: {}", e.getMessage());
-                                    throw new RuntimeException("Error sending email: " + e.getMessage(), e);
-                                }
-                            })
-                            .subscribeOn(Schedulers.boundedElastic())
-                            .onErrorResume(e -> {
-                                // Update mail record with failure status
-                                savedMail.setStatus("FAILED");
-                                savedMail.setErrorMessage(e.getMessage());
-                                return mailRepository.save(savedMail).then(Mono.just(false));
-                            })
-                            .flatMap(success -> {
-                                // Update the mail record with the final status
-                                savedMail.setStatus(success ? "SUCCESS" : "FAILED");
-                                return mailRepository.save(savedMail);
-                            })
-                            .map(updatedMail -> createMailResponseDTO(updatedMail));
-                });
+        return mailEntity;
     }
 
-    
-    private String processTemplate(String templateContent, Map<String, Object> variables) {
-        if (variables == null || variables.isEmpty()) {
-            return templateContent;
-        }
-
-        String processedContent = templateContent;
-        for (Map.Entry<String, Object> entry : variables.entrySet()) {
-            String placeholder = "{{" + entry.getKey() + "}}";
-            String value = entry.getValue() != null ? entry.getValue().toString() : "";
-            processedContent = processedContent.replace(placeholder, value);
-        }
-
-        return processedContent;
+    private MailEntity createSuppressedEntity(String recipient, TemplateEntity template) {
+        // Reported back to the caller and counted in the daily stats, but never stored
+        MailEntity mail = MailEntity.builder()
+                .recipient(recipient)
+                .subject(template.getSubject())
+                .templateId(template.getTemplateId())
+                .sender(fromEmail)
+                .status("SUPPRESSED")
+                .errorMessage("Recipient is on the suppression list")
+                .build();
+        statsRollup.record(mail);
+        return mail;
     }
 
     private MailResponseDTO createMailResponseDTO(MailEntity entity) {
@@ -183,7 +223,12 @@ public class MailServiceImpl implements MailService {
                 .subject(entity.getSubject())
                 .status(entity.getStatus())
                 .sentDate(entity.getSentDate())
+                .sentAt(entity.getSentAt())
                 .errorMessage(entity.getErrorMessage())
+                .acceptedAt(entity.getAcceptedAt())
+                .renderedAt(entity.getRenderedAt())
+                .smtpHandoffAt(entity.getSmtpHandoffAt())
+                .completedAt(entity.getCompletedAt())
                 .build();
     }
 }
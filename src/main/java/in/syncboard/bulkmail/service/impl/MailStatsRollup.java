@@ -0,0 +1,151 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.utils.EmailUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts delivery outcomes in memory and adds them to the {@code mail_stats_daily} rollup every
+ * {@code mail.stats.flush-interval}.
+ * <p>
+ * The rollup has one row per (day, template, sender domain, status) holding the number of outcomes
+ * recorded: a message counts once under SUCCESS, FAILED or SUPPRESSED when it settles, and once under
+ * RETRYING for every retry scheduled. Flushes are additive upserts, so any number of instances can share
+ * the table. A flush that fails puts its counts back for the next one; counts not yet flushed when the
+ * process dies are lost, so the rollup is a close but not exact record.
+ */
+@Component
+@Slf4j
+public class MailStatsRollup {
+
+    private static final String UPSERT = "INSERT INTO mail_stats_daily (stat_date, template_id, sender_domain, status, message_count) VALUES ";
+
+    // Stored for rows without a template or a parseable sender so every key column is NOT NULL
+    private static final long NO_TEMPLATE = 0;
+    private static final String UNKNOWN_DOMAIN = "unknown";
+
+    private final DatabaseClient databaseClient;
+    private final Duration flushInterval;
+    private final int flushRows;
+
+    private final Map<Key, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    private Disposable flusher;
+
+    public MailStatsRollup(DatabaseClient databaseClient,
+                           @Value("${mail.stats.flush-interval:10s}") Duration flushInterval,
+                           @Value("${mail.stats.flush-rows:500}") int flushRows) {
+        this.databaseClient = databaseClient;
+        this.flushInterval = flushInterval;
+        this.flushRows = Math.max(1, flushRows);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flusher = Flux.interval(flushInterval, flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Count the outcome just recorded for {@code mail}. Statuses other than the settled ones and RETRYING
+     * are ignored.
+     */
+    public void record(MailEntity mail) {
+        String status = mail.getStatus();
+        if (!"SUCCESS".equals(status) && !"FAILED".equals(status) && !"RETRYING".equals(status) && !"SUPPRESSED".equals(status)) {
+            return;
+        }
+        String domain = EmailUtils.normalizedDomain(mail.getSender());
+        Key key = new Key(LocalDate.now(),
+                mail.getTemplateId() != null ? mail.getTemplateId() : NO_TEMPLATE,
+                domain != null ? domain : UNKNOWN_DOMAIN,
+                status);
+        counts.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Add everything counted since the last flush to the rollup table.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            List<Map.Entry<Key, Long>> pending = new ArrayList<>();
+            counts.forEach((key, count) -> {
+                long value = count.getAndSet(0);
+                if (value > 0) {
+                    pending.add(Map.entry(key, value));
+                }
+            });
+            evictIdle();
+            if (pending.isEmpty()) {
+                return Mono.empty();
+            }
+            return Flux.fromIterable(pending)
+                    .buffer(flushRows)
+                    .concatMap(this::upsert)
+                    .then();
+        });
+    }
+
+    private Mono<Void> upsert(List<Map.Entry<Key, Long>> batch) {
+        StringBuilder sql = new StringBuilder(UPSERT);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i > 0 ? ", " : "")
+                    .append("(:date").append(i).append(", :template").append(i).append(", :domain").append(i)
+                    .append(", :status").append(i).append(", :count").append(i).append(")");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE message_count = message_count + VALUES(message_count)");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            Key key = batch.get(i).getKey();
+            spec = spec.bind("date" + i, key.date())
+                    .bind("template" + i, key.templateId())
+                    .bind("domain" + i, key.senderDomain())
+                    .bind("status" + i, key.status())
+                    .bind("count" + i, batch.get(i).getValue());
+        }
+        return spec.fetch().rowsUpdated()
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Flushing {} mail stats rows failed, keeping them for the next flush: {}", batch.size(), e.getMessage());
+                    batch.forEach(entry -> counts.computeIfAbsent(entry.getKey(), k -> new AtomicLong()).addAndGet(entry.getValue()));
+                    return Mono.empty();
+                });
+    }
+
+    private void evictIdle() {
+        // Only past days can be dropped safely: nothing records against them any more
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        counts.entrySet().removeIf(entry -> entry.getKey().date().isBefore(yesterday) && entry.getValue().get() == 0);
+    }
+
+    private record Key(LocalDate date, long templateId, String senderDomain, String status) {
+    }
+}
@@ -0,0 +1,205 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.dto.LatencyStatsDTO;
+import in.syncboard.bulkmail.dto.MailStatsDTO;
+import in.syncboard.bulkmail.exception.ProfileException;
+import in.syncboard.bulkmail.service.MailStatsService;
+import in.syncboard.bulkmail.utils.LatencySketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers stats queries from {@code mail_stats_daily}, which {@link MailStatsRollup} keeps up to date, so a
+ * query reads at most one row per day and dimension combination however many emails were sent. Counts
+ * lag the send pipeline by up to {@code mail.stats.flush-interval}.
+ * <p>
+ * Latency queries likewise read the hourly sketches {@link DeliveryLatencyRecorder} stores in
+ * {@code mail_latency_sketches} - one row per hour, template, metric and instance - and merge them into the
+ * requested windows, so percentiles cost the same for a thousand emails as for a billion.
+ */
+@Service
+public class MailStatsServiceImpl implements MailStatsService {
+
+    // Request name of each dimension to its rollup column
+    private static final Map<String, String> DIMENSIONS = Map.of(
+            "day", "stat_date",
+            "template", "template_id",
+            "domain", "sender_domain",
+            "status", "status");
+    private static final List<String> DEFAULT_GROUP_BY = List.of("day", "status");
+    private static final Set<String> STATUSES = Set.of("SUCCESS", "FAILED", "RETRYING", "SUPPRESSED");
+    private static final List<Double> DEFAULT_QUANTILES = List.of(0.5, 0.9, 0.95, 0.99);
+    private static final int MAX_QUANTILES = 10;
+
+    private final DatabaseClient databaseClient;
+    private final int maxDays;
+
+    public MailStatsServiceImpl(DatabaseClient databaseClient,
+                                @Value("${mail.stats.max-days:366}") int maxDays) {
+        this.databaseClient = databaseClient;
+        this.maxDays = maxDays;
+    }
+
+    @Override
+    public Flux<MailStatsDTO> getStats(LocalDate startDate, LocalDate endDate, List<String> groupBy,
+                                       Long templateId, String senderDomain, String status) {
+        return Flux.defer(() -> {
+            if (startDate.isAfter(endDate)) {
+                return Flux.error(ProfileException.badRequest("Start date must not be after end date"));
+            }
+            if (ChronoUnit.DAYS.between(startDate, endDate) >= maxDays) {
+                return Flux.error(ProfileException.badRequest("Date range must not exceed " + maxDays + " days"));
+            }
+            String validStatus = status != null ? status.toUpperCase(Locale.ROOT) : null;
+            if (validStatus != null && !STATUSES.contains(validStatus)) {
+                return Flux.error(ProfileException.badRequest("Invalid status: " + status));
+            }
+
+            Set<String> dimensions = new LinkedHashSet<>();
+            for (String dimension : groupBy == null || groupBy.isEmpty() ? DEFAULT_GROUP_BY : groupBy) {
+                String name = dimension.trim().toLowerCase(Locale.ROOT);
+                if (!DIMENSIONS.containsKey(name)) {
+                    return Flux.error(ProfileException.badRequest("Invalid group by: " + dimension
+                            + "; use day, template, domain or status"));
+                }
+                dimensions.add(name);
+            }
+
+            // Column names come from DIMENSIONS only; every value is bound
+            List<String> columns = new ArrayList<>();
+            dimensions.forEach(dimension -> columns.add(DIMENSIONS.get(dimension)));
+            String grouped = String.join(", ", columns);
+            StringBuilder sql = new StringBuilder("SELECT ")
+                    .append(grouped).append(", ")
+                    .append("SUM(message_count) AS message_count FROM mail_stats_daily WHERE stat_date BETWEEN :start AND :end");
+            if (templateId != null) {
+                sql.append(" AND template_id = :templateId");
+            }
+            if (senderDomain != null) {
+                sql.append(" AND sender_domain = :senderDomain");
+            }
+            if (validStatus != null) {
+                sql.append(" AND status = :status");
+            }
+            sql.append(" GROUP BY ").append(grouped).append(" ORDER BY ").append(grouped);
+
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                    .bind("start", startDate)
+                    .bind("end", endDate);
+            if (templateId != null) {
+                spec = spec.bind("templateId", templateId);
+            }
+            if (senderDomain != null) {
+                spec = spec.bind("senderDomain", senderDomain.trim().toLowerCase(Locale.ROOT));
+            }
+            if (validStatus != null) {
+                spec = spec.bind("status", validStatus);
+            }
+            return spec.map(row -> {
+                        Number count = row.get("message_count", Number.class);
+                        return MailStatsDTO.builder()
+                                .date(dimensions.contains("day") ? row.get("stat_date", LocalDate.class) : null)
+                                .templateId(dimensions.contains("template") ? row.get("template_id", Long.class) : null)
+                                .senderDomain(dimensions.contains("domain") ? row.get("sender_domain", String.class) : null)
+                                .status(dimensions.contains("status") ? row.get("status", String.class) : null)
+                                .count(count != null ? count.longValue() : 0)
+                                .build();
+                    })
+                    .all();
+        });
+    }
+
+    @Override
+    public Flux<LatencyStatsDTO> getLatency(LocalDateTime from, LocalDateTime to, Duration window, Long templateId,
+                                            boolean byTemplate, List<Double> quantiles) {
+        return Flux.defer(() -> {
+            LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+            if (!start.isBefore(to)) {
+                return Flux.error(ProfileException.badRequest("From must be before to"));
+            }
+            if (Duration.between(start, to).toDays() >= maxDays) {
+                return Flux.error(ProfileException.badRequest("Time range must not exceed " + maxDays + " days"));
+            }
+            if (window.isNegative() || window.toHours() < 1 || !window.equals(Duration.ofHours(window.toHours()))) {
+                return Flux.error(ProfileException.badRequest("Window must be a whole number of hours"));
+            }
+            List<Double> validQuantiles = quantiles == null || quantiles.isEmpty() ? DEFAULT_QUANTILES : quantiles;
+            if (validQuantiles.size() > MAX_QUANTILES || validQuantiles.stream().anyMatch(q -> q == null || q < 0 || q > 1)) {
+                return Flux.error(ProfileException.badRequest("Quantiles must be at most " + MAX_QUANTILES + " values in [0, 1]"));
+            }
+            long windowHours = window.toHours();
+
+            String sql = "SELECT window_start, template_id, metric, sketch FROM mail_latency_sketches " +
+                    "WHERE window_start >= :from AND window_start < :to" +
+                    (templateId != null ? " AND template_id = :templateId" : "");
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                    .bind("from", start)
+                    .bind("to", to);
+            if (templateId != null) {
+                spec = spec.bind("templateId", templateId);
+            }
+
+            return spec.map(row -> {
+                        LocalDateTime hour = row.get("window_start", LocalDateTime.class);
+                        long offset = ChronoUnit.HOURS.between(start, hour) / windowHours * windowHours;
+                        return Map.entry(
+                                new LatencyGroup(start.plusHours(offset), byTemplate ? row.get("template_id", Long.class) : null,
+                                        row.get("metric", String.class)),
+                                LatencySketch.fromBytes(row.get("sketch", byte[].class)));
+                    })
+                    .all()
+                    // Merged as rows arrive, so memory holds one sketch per group rather than every row
+                    .collect(HashMap<LatencyGroup, LatencySketch>::new, (groups, entry) -> {
+                        LatencySketch merged = groups.get(entry.getKey());
+                        if (merged == null) {
+                            groups.put(entry.getKey(), entry.getValue());
+                        } else {
+                            merged.merge(entry.getValue());
+                        }
+                    })
+                    .flatMapIterable(groups -> groups.entrySet().stream()
+                            .sorted(Map.Entry.comparingByKey(LatencyGroup.ORDER))
+                            .map(group -> toLatencyDTO(group.getKey(), group.getValue(), validQuantiles))
+                            .toList());
+        });
+    }
+
+    private static LatencyStatsDTO toLatencyDTO(LatencyGroup group, LatencySketch sketch, List<Double> quantiles) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (double q : quantiles) {
+            percentiles.put("p" + BigDecimal.valueOf(q).movePointRight(2).stripTrailingZeros().toPlainString(), sketch.quantile(q));
+        }
+        return LatencyStatsDTO.builder()
+                .windowStart(group.windowStart())
+                .templateId(group.templateId())
+                .metric(group.metric())
+                .count(sketch.count())
+                .percentiles(percentiles)
+                .max(sketch.max())
+                .build();
+    }
+
+    private record LatencyGroup(LocalDateTime windowStart, Long templateId, String metric) {
+
+        private static final Comparator<LatencyGroup> ORDER = Comparator.comparing(LatencyGroup::windowStart)
+                .thenComparing(LatencyGroup::templateId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(LatencyGroup::metric);
+    }
+}
@@ -0,0 +1,298 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailEntity;
+import in.syncboard.bulkmail.repository.MailRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists final {@code sent_emails} state, either straight through {@link MailRepository#save} or
+ * write-behind.
+ * <p>
+ * In write-behind mode rows are buffered and flushed every {@code mail.status-writes.flush-rows} rows or
+ * {@code mail.status-writes.flush-interval}, whichever comes first, as one multi-row INSERT (new rows) or
+ * one {@code UPDATE ... CASE} (existing rows). Callers get their entity back once its batch is committed.
+ * A multi-row INSERT is a simple insert to InnoDB, so the IDs it generates are consecutive, stepping by
+ * {@code mail.status-writes.auto-increment-increment} (MySQL's {@code auto_increment_increment}), and
+ * start at the generated key the insert returns. A batch that cannot be written fails its callers' saves
+ * without stopping the pipeline.
+ */
+@Component
+@Slf4j
+public class MailStatusWriter {
+
+    private static final String INSERT_COLUMNS = "INSERT INTO sent_emails (recipient, subject, template_id, sender, status, " +
+            "error_message, attempts, next_attempt_at, campaign_id, variables, sent_at, sent_date, accepted_at, rendered_at, smtp_handoff_at, completed_at, last_modified_date) VALUES ";
+
+    private final MailRepository mailRepository;
+    private final DatabaseClient databaseClient;
+    private final boolean writeBehind;
+    private final int flushRows;
+    private final Duration flushInterval;
+    private final long autoIncrementIncrement;
+
+    private final Sinks.Many<PendingWrite> inserts = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Many<PendingWrite> updates = Sinks.many().unicast().onBackpressureBuffer();
+
+    public MailStatusWriter(MailRepository mailRepository,
+                            DatabaseClient databaseClient,
+                            @Value("${mail.status-writes.write-behind:true}") boolean writeBehind,
+                            @Value("${mail.status-writes.flush-rows:200}") int flushRows,
+                            @Value("${mail.status-writes.flush-interval:250ms}") Duration flushInterval,
+                            @Value("${mail.status-writes.auto-increment-increment:1}") long autoIncrementIncrement) {
+        this.mailRepository = mailRepository;
+        this.databaseClient = databaseClient;
+        this.writeBehind = writeBehind;
+        this.flushRows = flushRows;
+        this.flushInterval = flushInterval;
+        this.autoIncrementIncrement = Math.max(1, autoIncrementIncrement);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!writeBehind) {
+            return;
+        }
+        inserts.asFlux()
+                .bufferTimeout(flushRows, flushInterval, true)
+                .concatMap(batch -> Mono.defer(() -> flushInserts(batch))
+                        .onErrorResume(e -> fail(batch, "insert", e)))
+                .subscribe();
+        updates.asFlux()
+                .bufferTimeout(flushRows, flushInterval, true)
+                .concatMap(batch -> Mono.defer(() -> flushUpdates(batch))
+                        .onErrorResume(e -> fail(batch, "update", e)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Completing the sinks flushes whatever is still buffered
+        inserts.tryEmitComplete();
+        updates.tryEmitComplete();
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Upper bound on writes a caller should keep outstanding so batches can fill without stalling.
+     */
+    public int maxPending() {
+        return flushRows * 2;
+    }
+
+    public Mono<MailEntity> save(MailEntity mail) {
+        // Without sent_at an update cannot name the row's partition; the repository save handles it
+        if (!writeBehind || (mail.getMailId() != null && mail.getSentAt() == null)) {
+            return saveNow(mail);
+        }
+        return Mono.defer(() -> {
+            PendingWrite write = new PendingWrite(mail, Sinks.one());
+            Sinks.Many<PendingWrite> queue = mail.getMailId() == null ? inserts : updates;
+            queue.emitNext(write, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+            return write.done.asMono();
+        });
+    }
+
+    private Mono<Void> flushInserts(List<PendingWrite> batch) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        LocalDate today = now.toLocalDate();
+
+        StringBuilder sql = new StringBuilder(INSERT_COLUMNS);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:recipient").append(i).append(", :subject").append(i).append(", :templateId").append(i)
+                    .append(", :sender").append(i).append(", :status").append(i).append(", :errorMessage").append(i)
+                    .append(", :attempts").append(i).append(", :nextAttemptAt").append(i).append(", :campaignId").append(i).append(", :variables").append(i).append(", :sentAt").append(i).append(", :sentDate").append(i)
+                    .append(", :acceptedAt").append(i).append(", :renderedAt").append(i).append(", :smtpHandoffAt").append(i)
+                    .append(", :completedAt").append(i).append(", :today)");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .filter(statement -> statement.returnGeneratedValues("mail_id"))
+                .bind("today", today);
+        for (int i = 0; i < batch.size(); i++) {
+            MailEntity mail = batch.get(i).mail;
+            if (mail.getSentAt() == null) {
+                mail.setSentAt(now);
+            }
+            mail.setSentDate(mail.getSentAt().toLocalDate());
+            if (mail.getAcceptedAt() == null) {
+                mail.setAcceptedAt(mail.getSentAt());
+            }
+            mail.setLastModifiedDate(today);
+            spec = spec.bind("sentAt" + i, mail.getSentAt())
+                    .bind("sentDate" + i, mail.getSentDate())
+                    .bind("acceptedAt" + i, mail.getAcceptedAt());
+            spec = bind(spec, "recipient" + i, mail.getRecipient(), String.class);
+            spec = bind(spec, "subject" + i, mail.getSubject(), String.class);
+            spec = bind(spec, "templateId" + i, mail.getTemplateId(), Long.class);
+            spec = bind(spec, "sender" + i, mail.getSender(), String.class);
+            spec = bind(spec, "status" + i, mail.getStatus(), String.class);
+            spec = bind(spec, "errorMessage" + i, mail.getErrorMessage(), String.class);
+            spec = bind(spec, "attempts" + i, mail.getAttempts(), Integer.class);
+            spec = bind(spec, "nextAttemptAt" + i, mail.getNextAttemptAt(), LocalDateTime.class);
+            spec = bind(spec, "campaignId" + i, mail.getCampaignId(), Long.class);
+            spec = bind(spec, "variables" + i, mail.getVariables(), String.class);
+            spec = bind(spec, "renderedAt" + i, mail.getRenderedAt(), LocalDateTime.class);
+            spec = bind(spec, "smtpHandoffAt" + i, mail.getSmtpHandoffAt(), LocalDateTime.class);
+            spec = bind(spec, "completedAt" + i, mail.getCompletedAt(), LocalDateTime.class);
+        }
+
+        // MySQL reports only the first generated key of a multi-row insert, other drivers may report all of them
+        return spec.map(row -> row.get("mail_id", Long.class))
+                .all()
+                .collectList()
+                .onErrorResume(e -> {
+                    log.error("Batched insert of {} emails failed, falling back to row-by-row: {}", batch.size(), e.getMessage());
+                    return saveIndividually(batch).then(Mono.empty());
+                })
+                .flatMap(returned -> {
+                    // The rows are committed either way; without IDs a later save would insert them again
+                    List<Long> ids = generatedIds(returned, batch.size(), autoIncrementIncrement);
+                    for (int i = 0; i < batch.size(); i++) {
+                        MailEntity mail = batch.get(i).mail;
+                        mail.setMailId(ids.get(i));
+                        batch.get(i).done.tryEmitValue(mail);
+                    }
+                    return Mono.<Void>empty();
+                })
+                .then();
+    }
+
+    /**
+     * The IDs of the rows of a multi-row insert, from the generated keys it returned: all of them as
+     * reported, or consecutive from the first when only that one was.
+     *
+     * @throws IllegalStateException if no key was returned
+     */
+    static List<Long> generatedIds(List<Long> returned, int rows, long autoIncrementIncrement) {
+        if (returned.size() == rows) {
+            return returned;
+        }
+        if (returned.isEmpty() || returned.get(0) == null) {
+            throw new IllegalStateException("Batched insert of " + rows + " emails returned no generated ID");
+        }
+        long first = returned.get(0);
+        List<Long> ids = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ids.add(first + i * autoIncrementIncrement);
+        }
+        return ids;
+    }
+
+    private Mono<Void> flushUpdates(List<PendingWrite> batch) {
+        LocalDate today = LocalDate.now();
+
+        StringBuilder status = new StringBuilder("status = CASE mail_id");
+        StringBuilder error = new StringBuilder("error_message = CASE mail_id");
+        StringBuilder attempts = new StringBuilder("attempts = CASE mail_id");
+        StringBuilder nextAttempt = new StringBuilder("next_attempt_at = CASE mail_id");
+        StringBuilder rendered = new StringBuilder("rendered_at = CASE mail_id");
+        StringBuilder handoff = new StringBuilder("smtp_handoff_at = CASE mail_id");
+        StringBuilder completed = new StringBuilder("completed_at = CASE mail_id");
+        StringBuilder ids = new StringBuilder();
+        StringBuilder sentAts = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            status.append(" WHEN :sid").append(i).append(" THEN :status").append(i);
+            error.append(" WHEN :eid").append(i).append(" THEN :errorMessage").append(i);
+            attempts.append(" WHEN :aid").append(i).append(" THEN :attempts").append(i);
+            nextAttempt.append(" WHEN :nid").append(i).append(" THEN :nextAttemptAt").append(i);
+            rendered.append(" WHEN :rid").append(i).append(" THEN :renderedAt").append(i);
+            handoff.append(" WHEN :hid").append(i).append(" THEN :smtpHandoffAt").append(i);
+            completed.append(" WHEN :cid").append(i).append(" THEN :completedAt").append(i);
+            ids.append(i > 0 ? ", " : "").append(":wid").append(i);
+            sentAts.append(i > 0 ? ", " : "").append(":wsa").append(i);
+        }
+        // mail_id alone would probe every partition; sent_at prunes to those the batch's rows are in
+        String sql = "UPDATE sent_emails SET " + status + " END, " + error + " END, " + attempts + " END, " +
+                nextAttempt + " END, " + rendered + " END, " + handoff + " END, " + completed + " END, " +
+                "last_modified_date = :today WHERE mail_id IN (" + ids + ") AND sent_at IN (" + sentAts + ")";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("today", today);
+        for (int i = 0; i < batch.size(); i++) {
+            MailEntity mail = batch.get(i).mail;
+            mail.setLastModifiedDate(today);
+            spec = spec.bind("sid" + i, mail.getMailId())
+                    .bind("eid" + i, mail.getMailId())
+                    .bind("aid" + i, mail.getMailId())
+                    .bind("nid" + i, mail.getMailId())
+                    .bind("rid" + i, mail.getMailId())
+                    .bind("hid" + i, mail.getMailId())
+                    .bind("cid" + i, mail.getMailId())
+                    .bind("wid" + i, mail.getMailId())
+                    .bind("wsa" + i, mail.getSentAt());
+            spec = bind(spec, "status" + i, mail.getStatus(), String.class);
+            spec = bind(spec, "errorMessage" + i, mail.getErrorMessage(), String.class);
+            spec = bind(spec, "attempts" + i, mail.getAttempts(), Integer.class);
+            spec = bind(spec, "nextAttemptAt" + i, mail.getNextAttemptAt(), LocalDateTime.class);
+            spec = bind(spec, "renderedAt" + i, mail.getRenderedAt(), LocalDateTime.class);
+            spec = bind(spec, "smtpHandoffAt" + i, mail.getSmtpHandoffAt(), LocalDateTime.class);
+            spec = bind(spec, "completedAt" + i, mail.getCompletedAt(), LocalDateTime.class);
+        }
+
+        return spec.fetch().rowsUpdated()
+                .doOnNext(count -> batch.forEach(write -> write.done.tryEmitValue(write.mail)))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Batched update of {} emails failed, falling back to row-by-row: {}", batch.size(), e.getMessage());
+                    return saveIndividually(batch);
+                });
+    }
+
+    /**
+     * Fails every write of a batch that could not be flushed, so its callers see the error instead of
+     * waiting forever, and keeps the pipeline running for later batches.
+     */
+    private Mono<Void> fail(List<PendingWrite> batch, String operation, Throwable e) {
+        log.error("Batched {} of {} emails failed: {}", operation, batch.size(), e.getMessage());
+        batch.forEach(write -> write.done.tryEmitError(e));
+        return Mono.empty();
+    }
+
+    private Mono<Void> saveIndividually(List<PendingWrite> batch) {
+        return Flux.fromIterable(batch)
+                .concatMap(write -> saveNow(write.mail)
+                        .doOnNext(write.done::tryEmitValue)
+                        .doOnError(e -> write.done.tryEmitError(e))
+                        .onErrorResume(e -> Mono.empty()))
+                .then();
+    }
+
+    private Mono<MailEntity> saveNow(MailEntity mail) {
+        if (mail.getMailId() == null || mail.getSentAt() == null) {
+            return mailRepository.save(mail);
+        }
+        mail.setLastModifiedDate(LocalDate.now());
+        return mailRepository.updateDelivery(mail.getMailId(), mail.getSentAt(), mail.getStatus(), mail.getErrorMessage(),
+                        mail.getAttempts(), mail.getNextAttemptAt(), mail.getRenderedAt(), mail.getSmtpHandoffAt(),
+                        mail.getCompletedAt(), mail.getLastModifiedDate())
+                .thenReturn(mail);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                          Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private record PendingWrite(MailEntity mail, Sinks.One<MailEntity> done) {
+    }
+}
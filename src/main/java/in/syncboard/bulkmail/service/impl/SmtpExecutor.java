@@ -0,0 +1,107 @@
+package in.syncboard.bulkmail.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking SMTP calls off the event loop.
+ * <p>
+ * {@code BOUNDED_ELASTIC} (the default) uses a dedicated pool of {@code mail.smtp.threads} platform threads;
+ * work beyond that waits in a queue of up to {@code mail.smtp.queue-capacity} tasks. {@code VIRTUAL} gives each
+ * call its own virtual thread and caps concurrency with a semaphore of {@code mail.smtp.max-concurrency}
+ * permits instead, so hiding more SMTP latency costs permits rather than platform threads. It only pays off
+ * when the callers' own limits ({@code mail.bulk.smtp-concurrency}, {@code mail.dispatcher.workers}) and the
+ * transport pool ({@code mail.pool.max-size}) are raised to match.
+ * <p>
+ * On JDK 21 Jakarta Mail's synchronized {@code sendMessage} pins the virtual thread to its carrier for the
+ * whole SMTP exchange, so concurrent sends are further limited by the number of carriers
+ * ({@code -Djdk.virtualThreadScheduler.parallelism}). JDK 24 and later do not pin on monitors.
+ */
+@Component
+@Slf4j
+public class SmtpExecutor {
+
+    public enum Mode {
+        BOUNDED_ELASTIC,
+        VIRTUAL
+    }
+
+    private final Mode mode;
+    private final Scheduler scheduler;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public SmtpExecutor(@Value("${mail.smtp.execution:BOUNDED_ELASTIC}") Mode mode,
+                        @Value("${mail.smtp.threads:8}") int threads,
+                        @Value("${mail.smtp.queue-capacity:100000}") int queueCapacity,
+                        @Value("${mail.smtp.max-concurrency:8}") int maxConcurrency) {
+        this.mode = mode;
+        if (mode == Mode.VIRTUAL) {
+            this.scheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "smtp-send-virtual");
+            this.permits = new Semaphore(maxConcurrency);
+            log.info("Running SMTP sends on virtual threads, at most {} at a time", maxConcurrency);
+        } else {
+            this.scheduler = Schedulers.newBoundedElastic(threads, queueCapacity, "smtp-send");
+            this.permits = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Tasks submitted and not yet started: waiting for a thread, or for a permit in {@code VIRTUAL} mode.
+     * Counted here because the scheduler's own {@code BUFFERED} attribute reports busy workers, not queued
+     * tasks.
+     */
+    public int queued() {
+        return waiting.get();
+    }
+
+    public <T> Mono<T> execute(Callable<T> task) {
+        return Mono.defer(() -> {
+            // Cleared exactly once: when the task starts, or when it is cancelled or rejected before that
+            AtomicBoolean queued = new AtomicBoolean(true);
+            waiting.incrementAndGet();
+            return Mono.fromCallable(() -> {
+                        if (permits == null) {
+                            started(queued);
+                            return task.call();
+                        }
+                        // Blocking here is cheap: it parks the virtual thread, not a platform thread
+                        permits.acquire();
+                        try {
+                            started(queued);
+                            return task.call();
+                        } finally {
+                            permits.release();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .doFinally(signal -> started(queued));
+        });
+    }
+
+    private void started(AtomicBoolean queued) {
+        if (queued.compareAndSet(true, false)) {
+            waiting.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.utils.CircuitBreaker;
+import in.syncboard.bulkmail.utils.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One SMTP relay as seen by {@link SmtpRelayRouter}: its connection pool, rate limit, circuit breaker and
+ * the latency and error figures its health score is computed from.
+ * <p>
+ * The score is {@code weight * successRate^2 / (1 + latency / latencyReference)}, where latency is an
+ * exponentially weighted moving average of send times. Errors weigh more than latency, and a relay with no
+ * samples yet scores as if it were instant so it gets probed. The success rate only counts once the circuit
+ * breaker has seen its minimum number of calls: a relay that failed its first few sends must keep getting
+ * traffic, or its breaker could never open and recover and a single relay would stop sending for good.
+ */
+class SmtpRelay {
+
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+    private final String name;
+    private final int weight;
+    private final SmtpTransportPool pool;
+    private final TokenBucket rateLimit;
+    private final CircuitBreaker circuitBreaker;
+    private final double latencyReferenceNanos;
+
+    private volatile double latencyEwmaNanos;
+
+    private final Timer sendTimer;
+    private final Counter failures;
+    private final Counter rateLimited;
+    private final Counter failovers;
+
+    SmtpRelay(String name, int weight, SmtpTransportPool pool, TokenBucket rateLimit, CircuitBreaker circuitBreaker,
+              long latencyReferenceNanos, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.weight = Math.max(0, weight);
+        this.pool = pool;
+        this.rateLimit = rateLimit;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyReferenceNanos = Math.max(1, latencyReferenceNanos);
+
+        Tags tags = Tags.of("relay", name);
+        this.sendTimer = Timer.builder("mail.smtp.relay.send")
+                .description("Time to hand a message to the relay")
+                .tags(tags)
+                .register(meterRegistry);
+        this.failures = meterRegistry.counter("mail.smtp.relay.failures", tags);
+        this.rateLimited = meterRegistry.counter("mail.smtp.relay.rate.limited", tags);
+        this.failovers = meterRegistry.counter("mail.smtp.relay.failovers", tags);
+        Gauge.builder("mail.smtp.relay.health", this, SmtpRelay::score)
+                .description("Routing score; higher gets more traffic, 0 while the circuit is open")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.relay.latency", this, relay -> relay.latencyEwmaNanos / 1_000_000.0)
+                .description("Moving average send latency in milliseconds")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.relay.error.rate", circuitBreaker, CircuitBreaker::failureRate)
+                .description("Failure rate over the circuit breaker window")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.relay.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    String name() {
+        return name;
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    double latencyMillis() {
+        return latencyEwmaNanos / 1_000_000.0;
+    }
+
+    double score() {
+        if (circuitBreaker.state() == CircuitBreaker.State.OPEN) {
+            return 0.0;
+        }
+        double successRate = circuitBreaker.hasMinimumCalls() ? 1.0 - circuitBreaker.failureRate() : 1.0;
+        return weight * successRate * successRate / (1.0 + latencyEwmaNanos / latencyReferenceNanos);
+    }
+
+    /**
+     * Take a rate-limit token.
+     *
+     * @return 0 if taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquireRate() {
+        long wait = rateLimit != null ? rateLimit.tryAcquire() : 0;
+        if (wait > 0) {
+            rateLimited.increment();
+        }
+        return wait;
+    }
+
+    void send(MimeMessage message) throws MessagingException {
+        pool.send(message);
+    }
+
+    void recordSuccess(long elapsedNanos) {
+        sendTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        updateLatency(elapsedNanos);
+        circuitBreaker.onSuccess();
+    }
+
+    void recordFailure(long elapsedNanos) {
+        sendTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        updateLatency(elapsedNanos);
+        failures.increment();
+        circuitBreaker.onFailure();
+    }
+
+    void recordFailover() {
+        failovers.increment();
+    }
+
+    void close() {
+        pool.close();
+    }
+
+    private void updateLatency(long elapsedNanos) {
+        // Racy read-modify-write; a lost sample only nudges an average
+        double current = latencyEwmaNanos;
+        latencyEwmaNanos = current == 0.0 ? elapsedNanos : current + LATENCY_EWMA_ALPHA * (elapsedNanos - current);
+    }
+}
@@ -0,0 +1,41 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.utils.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports each relay's circuit state, error rate, latency and routing score under
+ * {@code /actuator/health} as {@code smtpRelays}. DOWN only when every relay's circuit is open.
+ */
+@Component("smtpRelays")
+public class SmtpRelayHealthIndicator implements HealthIndicator {
+
+    private final SmtpRelayRouter router;
+
+    public SmtpRelayHealthIndicator(SmtpRelayRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Health health() {
+        boolean anyAvailable = false;
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (SmtpRelay relay : router.relays()) {
+            CircuitBreaker.State state = relay.circuitBreaker().state();
+            anyAvailable |= state != CircuitBreaker.State.OPEN;
+
+            Map<String, Object> relayDetails = new LinkedHashMap<>();
+            relayDetails.put("circuit", state);
+            relayDetails.put("errorRate", relay.circuitBreaker().failureRate());
+            relayDetails.put("latencyMillis", relay.latencyMillis());
+            relayDetails.put("score", relay.score());
+            details.put(relay.name(), relayDetails);
+        }
+        return (anyAvailable ? Health.up() : Health.down()).withDetails(details).build();
+    }
+}
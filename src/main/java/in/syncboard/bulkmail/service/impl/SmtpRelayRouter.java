@@ -0,0 +1,210 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.config.SmtpRelayProperties;
+import in.syncboard.bulkmail.utils.CircuitBreaker;
+import in.syncboard.bulkmail.utils.SmtpErrorClassifier;
+import in.syncboard.bulkmail.utils.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spreads sends across the relays in {@code mail.routing.relays}, or the single {@code spring.mail.*}
+ * relay when none are configured.
+ * <p>
+ * Each message goes to a relay picked at random in proportion to its health score (see {@link SmtpRelay}),
+ * skipping relays whose circuit breaker is open or whose rate limit is used up. A relay whose open period
+ * has passed gets the next message as its trial. If a send fails transiently, or the relay refuses to carry
+ * mail at all (failed authentication, relaying denied; see {@link SmtpErrorClassifier#isRelayFault}), the
+ * failure counts against the relay and the message fails over to another relay it has not tried yet. A
+ * permanent rejection of the message itself is returned straight away, since any relay would reject it the
+ * same way, and does not count against the relay. Blocks, so callers must run on a scheduler that allows it.
+ */
+@Component
+@Slf4j
+public class SmtpRelayRouter {
+
+    private final List<SmtpRelay> relays = new ArrayList<>();
+
+    @Autowired
+    public SmtpRelayRouter(JavaMailSenderImpl mailSender,
+                           SmtpRelayProperties properties,
+                           MeterRegistry meterRegistry,
+                           @Value("${mail.pool.max-size:8}") int maxSize,
+                           @Value("${mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                           @Value("${mail.pool.max-connection-age:5m}") Duration maxConnectionAge,
+                           @Value("${mail.pool.validate-after-idle:30s}") Duration validateAfterIdle,
+                           @Value("${mail.pool.borrow-timeout:30s}") Duration borrowTimeout) {
+        SmtpTransportPool.Settings poolSettings = new SmtpTransportPool.Settings(maxSize, maxMessagesPerConnection,
+                maxConnectionAge, validateAfterIdle, borrowTimeout);
+        long latencyReferenceNanos = properties.getLatencyReference().toNanos();
+
+        if (properties.getRelays().isEmpty()) {
+            SmtpTransportPool pool = new SmtpTransportPool("default", mailSender.getSession(), mailSender.getProtocol(),
+                    mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword(),
+                    poolSettings, meterRegistry);
+            relays.add(new SmtpRelay("default", 1, pool, null, newCircuitBreaker(properties),
+                    latencyReferenceNanos, meterRegistry));
+        }
+
+        for (int i = 0; i < properties.getRelays().size(); i++) {
+            SmtpRelayProperties.Relay relay = properties.getRelays().get(i);
+            String name = relay.getName() != null ? relay.getName() : "relay-" + i;
+            if (relay.getHost() == null || relay.getHost().isBlank()) {
+                throw new IllegalArgumentException("mail.routing.relays[" + i + "].host is required");
+            }
+
+            Properties sessionProperties = new Properties();
+            sessionProperties.putAll(mailSender.getJavaMailProperties());
+            sessionProperties.putAll(relay.getProperties());
+            SmtpTransportPool pool = new SmtpTransportPool(name, Session.getInstance(sessionProperties),
+                    mailSender.getProtocol(), relay.getHost(), relay.getPort(), relay.getUsername(), relay.getPassword(),
+                    relay.getMaxConnections() != null ? poolSettings.withMaxSize(relay.getMaxConnections()) : poolSettings,
+                    meterRegistry);
+            TokenBucket rateLimit = relay.getRatePerSecond() > 0
+                    ? new TokenBucket(relay.getRatePerSecond(), relay.getBurst())
+                    : null;
+            relays.add(new SmtpRelay(name, relay.getWeight(), pool, rateLimit, newCircuitBreaker(properties),
+                    latencyReferenceNanos, meterRegistry));
+            log.info("Configured SMTP relay {} ({}:{}, weight {})", name, relay.getHost(), relay.getPort(), relay.getWeight());
+        }
+    }
+
+    SmtpRelayRouter(List<SmtpRelay> relays) {
+        this.relays.addAll(relays);
+    }
+
+    @PreDestroy
+    public void close() {
+        relays.forEach(SmtpRelay::close);
+    }
+
+    List<SmtpRelay> relays() {
+        return relays;
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        List<SmtpRelay> untried = new ArrayList<>(relays);
+        MessagingException lastError = null;
+
+        SmtpRelay relay;
+        while ((relay = acquire(untried)) != null) {
+            untried.remove(relay);
+            long start = System.nanoTime();
+            try {
+                relay.send(message);
+                relay.recordSuccess(System.nanoTime() - start);
+                return;
+            } catch (MessagingException e) {
+                long elapsed = System.nanoTime() - start;
+                if (SmtpErrorClassifier.classify(e) == SmtpErrorClassifier.ErrorClass.PERMANENT
+                        && !SmtpErrorClassifier.isRelayFault(e)) {
+                    // The relay did its job; the message itself was refused
+                    relay.recordSuccess(elapsed);
+                    throw e;
+                }
+                relay.recordFailure(elapsed);
+                lastError = e;
+                if (!untried.isEmpty()) {
+                    relay.recordFailover();
+                    log.warn("Relay {} failed, failing over: {}", relay.name(), e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                relay.recordFailure(System.nanoTime() - start);
+                throw e;
+            }
+        }
+
+        throw lastError != null ? lastError : new MessagingException("No SMTP relay available");
+    }
+
+    /**
+     * Pick a relay that may take a call and has a rate-limit token, waiting for a token if every
+     * candidate is rate limited. Returns null if no candidate's circuit allows a call. The circuit is
+     * asked first, so a relay that refuses the call does not use up a token.
+     */
+    private SmtpRelay acquire(List<SmtpRelay> untried) throws MessagingException {
+        while (true) {
+            List<SmtpRelay> candidates = new ArrayList<>(untried);
+            long minWait = Long.MAX_VALUE;
+
+            SmtpRelay relay;
+            while ((relay = pick(candidates)) != null) {
+                candidates.remove(relay);
+                if (!relay.circuitBreaker().tryAcquirePermission()) {
+                    continue;
+                }
+                long wait = relay.tryAcquireRate();
+                if (wait == 0) {
+                    return relay;
+                }
+                // Give a half-open trial back so it is not held while we wait
+                relay.circuitBreaker().releasePermission();
+                minWait = Math.min(minWait, wait);
+            }
+
+            if (minWait == Long.MAX_VALUE) {
+                return null;
+            }
+            LockSupport.parkNanos(minWait);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrupted while waiting for an SMTP relay");
+            }
+        }
+    }
+
+    private static SmtpRelay pick(List<SmtpRelay> candidates) {
+        double[] scores = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            SmtpRelay relay = candidates.get(i);
+            CircuitBreaker breaker = relay.circuitBreaker();
+            if (!breaker.isCallPermitted()) {
+                continue;
+            }
+            if (breaker.state() != CircuitBreaker.State.CLOSED) {
+                // Recovery trials go first so a healed relay is noticed promptly
+                return relay;
+            }
+            scores[i] = relay.score();
+            total += scores[i];
+        }
+        if (total <= 0) {
+            return null;
+        }
+
+        double target = ThreadLocalRandom.current().nextDouble(total);
+        SmtpRelay chosen = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (scores[i] > 0) {
+                chosen = candidates.get(i);
+                target -= scores[i];
+                if (target < 0) {
+                    break;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    private static CircuitBreaker newCircuitBreaker(SmtpRelayProperties properties) {
+        SmtpRelayProperties.Breaker settings = properties.getCircuitBreaker();
+        return new CircuitBreaker(settings.getWindowSize(), settings.getMinimumCalls(),
+                settings.getFailureRateThreshold(), settings.getOpenDuration());
+    }
+}
@@ -0,0 +1,219 @@
+package in.syncboard.bulkmail.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of long-lived, authenticated SMTP transports to one relay.
+ * <p>
+ * {@code JavaMailSenderImpl#send} connects, negotiates STARTTLS, authenticates and disconnects for
+ * every message. The pool keeps up to {@code mail.pool.max-size} connections open and hands them out
+ * to sending threads, recycling a connection once it has carried {@code mail.pool.max-messages-per-connection}
+ * messages or is older than {@code mail.pool.max-connection-age}. Pools are created per relay by
+ * {@link SmtpRelayRouter} and their meters are tagged with the relay name.
+ */
+@Slf4j
+public class SmtpTransportPool {
+
+    public record Settings(int maxSize, int maxMessagesPerConnection, Duration maxConnectionAge,
+                           Duration validateAfterIdle, Duration borrowTimeout) {
+
+        public Settings withMaxSize(int maxSize) {
+            return new Settings(maxSize, maxMessagesPerConnection, maxConnectionAge, validateAfterIdle, borrowTimeout);
+        }
+    }
+
+    private final String relayName;
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final int maxMessagesPerConnection;
+    private final Duration maxConnectionAge;
+    private final Duration validateAfterIdle;
+    private final Duration borrowTimeout;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Counter created;
+    private final Counter destroyed;
+    private final Counter borrowTimeouts;
+    private final Counter validationFailures;
+
+    public SmtpTransportPool(String relayName, Session session, String protocol, String host, int port,
+                             String username, String password, Settings settings, MeterRegistry meterRegistry) {
+        this.relayName = relayName;
+        this.session = session;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.maxSize = settings.maxSize();
+        this.maxMessagesPerConnection = settings.maxMessagesPerConnection();
+        this.maxConnectionAge = settings.maxConnectionAge();
+        this.validateAfterIdle = settings.validateAfterIdle();
+        this.borrowTimeout = settings.borrowTimeout();
+        this.permits = new Semaphore(maxSize, true);
+
+        Tags tags = Tags.of("relay", relayName);
+        Gauge.builder("mail.smtp.pool.active", active, AtomicInteger::get)
+                .description("SMTP connections currently borrowed")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.pool.idle", idle, BlockingDeque::size)
+                .description("SMTP connections open and waiting in the pool")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.pool.max", () -> this.maxSize)
+                .description("Maximum number of pooled SMTP connections")
+                .tags(tags)
+                .register(meterRegistry);
+        this.created = meterRegistry.counter("mail.smtp.pool.created", tags);
+        this.destroyed = meterRegistry.counter("mail.smtp.pool.destroyed", tags);
+        this.borrowTimeouts = meterRegistry.counter("mail.smtp.pool.borrow.timeouts", tags);
+        this.validationFailures = meterRegistry.counter("mail.smtp.pool.validation.failures", tags);
+    }
+
+    /**
+     * Send a message over a pooled connection. Blocks, so callers must run on a scheduler that allows it.
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        message.saveChanges();
+
+        PooledTransport pooled = borrow();
+        boolean sent = false;
+        try {
+            pooled.transport.sendMessage(message, message.getAllRecipients());
+            pooled.messageCount++;
+            sent = true;
+        } finally {
+            release(pooled, sent);
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new MessagingException("Timed out after " + borrowTimeout + " waiting for an SMTP connection to " + relayName);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isReusable(pooled)) {
+                    break;
+                }
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = open();
+            }
+            active.incrementAndGet();
+            return pooled;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport pooled, boolean sent) {
+        active.decrementAndGet();
+        try {
+            // A failed send may be a rejected recipient on a perfectly good connection, so only drop it if it is dead
+            if (isExpired(pooled) || (!sent && !pooled.transport.isConnected())) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsedNanos = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isReusable(PooledTransport pooled) {
+        if (isExpired(pooled)) {
+            return false;
+        }
+        if (System.nanoTime() - pooled.lastUsedNanos < validateAfterIdle.toNanos()) {
+            return true;
+        }
+        // Transport.isConnected issues a NOOP, so only pay for it on connections that sat idle
+        if (pooled.transport.isConnected()) {
+            return true;
+        }
+        validationFailures.increment();
+        return false;
+    }
+
+    private boolean isExpired(PooledTransport pooled) {
+        return pooled.messageCount >= maxMessagesPerConnection
+                || System.nanoTime() - pooled.createdNanos >= maxConnectionAge.toNanos();
+    }
+
+    private PooledTransport open() throws MessagingException {
+        Transport transport = session.getTransport(protocol);
+        transport.connect(host, port, username, password);
+        created.increment();
+        log.debug("Opened pooled SMTP connection to {} ({}:{})", relayName, host, port);
+        return new PooledTransport(transport);
+    }
+
+    private void destroy(PooledTransport pooled) {
+        destroyed.increment();
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    public void close() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private final long createdNanos;
+        private long lastUsedNanos;
+        private int messageCount;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.createdNanos = System.nanoTime();
+            this.lastUsedNanos = this.createdNanos;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.SuppressionEntity;
+import in.syncboard.bulkmail.repository.SuppressionRepository;
+import in.syncboard.bulkmail.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of {@code mail_suppressions} for O(1) membership checks on the send path.
+ * <p>
+ * A Bloom filter answers the common case - the address is not suppressed - from a compact bit array;
+ * only its rare positives are confirmed against an exact set, which also makes removals possible. The
+ * list is loaded in full at startup and then kept current incrementally: this node adds and removes
+ * entries as it changes them, and every {@code mail.suppression.refresh-interval} it reads rows other
+ * nodes inserted since the highest ID it has seen, less {@code refresh-id-window}. Auto-increment IDs are
+ * allocated at insert but become visible at commit, so a row may appear below an ID already read; the
+ * window re-reads that tail so such rows are still picked up. A full reload every {@code reload-interval}
+ * picks up rows committed later than that and removals made elsewhere, and resizes the filter; the filter
+ * is also rebuilt from the exact set as soon as it holds more entries than it was sized for.
+ */
+@Component
+@Slf4j
+public class SuppressionList {
+
+    private static final int PAGE_SIZE = 5_000;
+
+    private final SuppressionRepository suppressionRepository;
+    private final long expectedSize;
+    private final double falsePositiveRate;
+    private final Duration refreshInterval;
+    private final Duration reloadInterval;
+    private final long refreshIdWindow;
+    private final Sinks.One<Boolean> loaded = Sinks.one();
+
+    private volatile Snapshot snapshot;
+    private volatile long lastSeenId;
+    private Set<String> addedDuringReload;
+    private Disposable refresher;
+
+    public SuppressionList(SuppressionRepository suppressionRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${mail.suppression.expected-size:1000000}") long expectedSize,
+                           @Value("${mail.suppression.false-positive-rate:0.01}") double falsePositiveRate,
+                           @Value("${mail.suppression.refresh-interval:30s}") Duration refreshInterval,
+                           @Value("${mail.suppression.reload-interval:1h}") Duration reloadInterval,
+                           @Value("${mail.suppression.refresh-id-window:1000}") long refreshIdWindow) {
+        this.suppressionRepository = suppressionRepository;
+        this.expectedSize = expectedSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshInterval = refreshInterval;
+        this.reloadInterval = reloadInterval;
+        this.refreshIdWindow = Math.max(0, refreshIdWindow);
+        this.snapshot = new Snapshot(new BloomFilter(expectedSize, falsePositiveRate));
+        Gauge.builder("mail.suppression.size", this, list -> list.snapshot.exact.size())
+                .description("Addresses on the suppression list")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher = reload()
+                .doOnSuccess(ignored -> loaded.tryEmitValue(true))
+                .thenMany(Flux.merge(
+                        Flux.interval(refreshInterval, refreshInterval).map(tick -> false),
+                        Flux.interval(reloadInterval, reloadInterval).map(tick -> true)))
+                .onBackpressureDrop()
+                .concatMap(full -> full ? reload() : refresh())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Completes once the list has been loaded, so the first sends after startup are filtered too.
+     */
+    public Mono<Void> awaitLoaded() {
+        return loaded.asMono().then();
+    }
+
+    /**
+     * Whether a normalized address is suppressed.
+     */
+    public boolean contains(String email) {
+        Snapshot current = snapshot;
+        return current.bloom.mightContain(email) && current.exact.contains(email);
+    }
+
+    /**
+     * Add a normalized address. Changes are rare next to lookups, so they take a lock and lookups do not.
+     */
+    public synchronized void add(String email) {
+        if (addedDuringReload != null) {
+            addedDuringReload.add(email);
+        }
+        addTo(snapshot, email);
+        if (snapshot.bloom.isSaturated()) {
+            resize();
+        }
+    }
+
+    public synchronized void remove(String email) {
+        if (addedDuringReload != null) {
+            addedDuringReload.remove(email);
+        }
+        // The filter keeps the bits; the exact set decides
+        snapshot.exact.remove(email);
+    }
+
+    public int size() {
+        return snapshot.exact.size();
+    }
+
+    Mono<Void> reload() {
+        return Mono.defer(() -> {
+                    Snapshot fresh = new Snapshot(new BloomFilter(Math.max(expectedSize, (long) size() * 2), falsePositiveRate));
+                    synchronized (this) {
+                        addedDuringReload = ConcurrentHashMap.newKeySet();
+                    }
+                    return readFrom(0, email -> addTo(fresh, email))
+                            .doOnNext(maxId -> swap(fresh, maxId));
+                })
+                .onErrorResume(e -> {
+                    log.error("Error loading suppression list: {}", e.getMessage());
+                    synchronized (this) {
+                        addedDuringReload = null;
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private synchronized void swap(Snapshot fresh, long maxId) {
+        // The rows behind these may have been committed after the pages that would have included them were read
+        addedDuringReload.forEach(email -> addTo(fresh, email));
+        addedDuringReload = null;
+        snapshot = fresh;
+        lastSeenId = maxId;
+        log.info("Loaded {} suppressed addresses", fresh.exact.size());
+        if (fresh.bloom.isSaturated()) {
+            resize();
+        }
+    }
+
+    Mono<Void> refresh() {
+        long seen = lastSeenId;
+        return readFrom(Math.max(0, seen - refreshIdWindow), this::add)
+                .doOnNext(maxId -> lastSeenId = Math.max(seen, maxId))
+                .onErrorResume(e -> {
+                    log.error("Error refreshing suppression list: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Hand every address after {@code afterId} to {@code target}, page by page, and return the highest ID read.
+     */
+    private Mono<Long> readFrom(long afterId, Consumer<String> target) {
+        return readPage(afterId, target)
+                .expand(page -> page.count == PAGE_SIZE ? readPage(page.maxId, target) : Mono.empty())
+                .reduce(afterId, (maxId, page) -> Math.max(maxId, page.maxId));
+    }
+
+    private Mono<Page> readPage(long afterId, Consumer<String> target) {
+        return suppressionRepository.findAfter(afterId, PAGE_SIZE)
+                .reduce(new Page(afterId, 0), (page, row) -> {
+                    target.accept(row.getEmail());
+                    return new Page(row.getSuppressionId(), page.count + 1);
+                });
+    }
+
+    private static void addTo(Snapshot target, String email) {
+        if (target.exact.add(email)) {
+            target.bloom.put(email);
+        }
+    }
+
+    private void resize() {
+        Snapshot current = snapshot;
+        BloomFilter bloom = new BloomFilter(current.bloom.expectedInsertions() * 2, falsePositiveRate);
+        current.exact.forEach(bloom::put);
+        snapshot = new Snapshot(bloom, current.exact);
+        log.info("Resized suppression filter for {} addresses", bloom.expectedInsertions());
+    }
+
+    private record Page(long maxId, int count) {
+    }
+
+    private static final class Snapshot {
+        private final BloomFilter bloom;
+        private final Set<String> exact;
+
+        private Snapshot(BloomFilter bloom) {
+            this(bloom, ConcurrentHashMap.newKeySet());
+        }
+
+        private Snapshot(BloomFilter bloom, Set<String> exact) {
+            this.bloom = bloom;
+            this.exact = exact;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.dto.SuppressionDTO;
+import in.syncboard.bulkmail.dto.SuppressionImportResultDTO;
+import in.syncboard.bulkmail.entity.SuppressionEntity;
+import in.syncboard.bulkmail.exception.ProfileException;
+import in.syncboard.bulkmail.repository.SuppressionRepository;
+import in.syncboard.bulkmail.service.SuppressionService;
+import in.syncboard.bulkmail.utils.EmailUtils;
+import in.syncboard.bulkmail.utils.UnsubscribeTokens;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SuppressionServiceImpl implements SuppressionService {
+
+    private static final Set<String> REASONS = Set.of("UNSUBSCRIBED", "HARD_BOUNCE", "COMPLAINT", "MANUAL");
+
+    // Imports are written as multi-row INSERT IGNORE statements of this many addresses
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    private final SuppressionRepository suppressionRepository;
+    private final SuppressionList suppressionList;
+    private final UnsubscribeTokens unsubscribeTokens;
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<SuppressionDTO> suppress(String email, String reason) {
+        return Mono.defer(() -> {
+            String normalized = EmailUtils.normalizeAddress(email);
+            if (!EmailUtils.isValidEmail(normalized)) {
+                return Mono.error(ProfileException.badRequest("Invalid email address: " + email));
+            }
+            String validReason = reasonOf(reason);
+            return suppressionRepository.insertIgnore(normalized, validReason, LocalDate.now())
+                    .doOnNext(inserted -> {
+                        suppressionList.add(normalized);
+                        if (inserted > 0) {
+                            log.info("Suppressed {} ({})", EmailUtils.obscureEmail(normalized), validReason);
+                        }
+                    })
+                    .then(suppressionRepository.findByEmail(normalized))
+                    .map(this::toDTO);
+        });
+    }
+
+    @Override
+    public Mono<SuppressionImportResultDTO> importSuppressions(Flux<String> emails, String reason) {
+        return Mono.defer(() -> {
+            String validReason = reasonOf(reason);
+            AtomicLong received = new AtomicLong();
+            AtomicLong invalid = new AtomicLong();
+
+            return emails
+                    .doOnNext(email -> received.incrementAndGet())
+                    .map(EmailUtils::normalizeAddress)
+                    .filter(email -> {
+                        if (EmailUtils.isValidEmail(email)) {
+                            return true;
+                        }
+                        invalid.incrementAndGet();
+                        return false;
+                    })
+                    .buffer(IMPORT_BATCH_SIZE)
+                    .concatMap(batch -> insertBatch(batch, validReason))
+                    .reduce(0L, Long::sum)
+                    .map(imported -> {
+                        log.info("Imported {} suppressions ({} received, {} invalid)", imported, received.get(), invalid.get());
+                        return SuppressionImportResultDTO.builder()
+                                .received(received.get())
+                                .imported(imported)
+                                .invalid(invalid.get())
+                                .build();
+                    });
+        });
+    }
+
+    @Override
+    public Mono<SuppressionDTO> getSuppression(String email) {
+        return suppressionRepository.findByEmail(EmailUtils.normalizeAddress(email))
+                .switchIfEmpty(Mono.error(ProfileException.notFound("Email is not suppressed: " + email)))
+                .map(this::toDTO);
+    }
+
+    @Override
+    public Mono<Void> removeSuppression(String email) {
+        String normalized = EmailUtils.normalizeAddress(email);
+        return suppressionRepository.deleteByEmail(normalized)
+                .flatMap(deleted -> {
+                    if (deleted == 0) {
+                        return Mono.error(ProfileException.notFound("Email is not suppressed: " + email));
+                    }
+                    suppressionList.remove(normalized);
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<String> unsubscribe(String token) {
+        String email = unsubscribeTokens.verify(token);
+        if (email == null) {
+            return Mono.error(ProfileException.badRequest("Invalid unsubscribe link"));
+        }
+        return suppress(email, "UNSUBSCRIBED")
+                .map(SuppressionDTO::getEmail);
+    }
+
+    private Mono<Long> insertBatch(List<String> batch, String reason) {
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO mail_suppressions (email, reason, created_date) VALUES ");
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append("(:email").append(i).append(", :reason, :today)");
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("reason", reason)
+                .bind("today", LocalDate.now());
+        for (int i = 0; i < batch.size(); i++) {
+            spec = spec.bind("email" + i, batch.get(i));
+        }
+        return spec.fetch().rowsUpdated()
+                .doOnNext(inserted -> batch.forEach(suppressionList::add));
+    }
+
+    private static String reasonOf(String reason) {
+        if (reason == null || reason.isBlank()) {
+            return "MANUAL";
+        }
+        String upper = reason.trim().toUpperCase(Locale.ROOT);
+        if (!REASONS.contains(upper)) {
+            throw ProfileException.badRequest("Unknown suppression reason: " + reason + ", expected one of " + REASONS);
+        }
+        return upper;
+    }
+
+    private SuppressionDTO toDTO(SuppressionEntity entity) {
+        return SuppressionDTO.builder()
+                .suppressionId(entity.getSuppressionId())
+                .email(entity.getEmail())
+                .reason(entity.getReason())
+                .createdDate(entity.getCreatedDate())
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package in.syncboard.bulkmail.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.syncboard.bulkmail.entity.TemplateEntity;
+import in.syncboard.bulkmail.repository.TemplateRepository;
+import in.syncboard.bulkmail.utils.CompiledTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Size-bounded cache of templates and their compiled form, keyed by template ID and checked against
+ * the template's version.
+ * <p>
+ * {@link TemplateServiceImpl} invalidates entries on this node when a template changes. Other nodes
+ * notice within {@code mail.template-cache.revalidate-after}: once an entry is older than that, the next
+ * lookup compares its version with the one in the database and reloads it if they differ. Concurrent
+ * misses for the same template share one load. Hit, miss and eviction counts are published as
+ * {@code cache.*{cache=templates}}.
+ */
+@Component
+@Slf4j
+public class TemplateCache {
+
+    private final TemplateRepository templateRepository;
+    private final MailMetrics metrics;
+    private final long revalidateAfterNanos;
+    private final AsyncCache<Long, CachedTemplate> cache;
+
+    public TemplateCache(TemplateRepository templateRepository,
+                         MeterRegistry meterRegistry,
+                         MailMetrics metrics,
+                         @Value("${mail.template-cache.max-size:500}") long maxSize,
+                         @Value("${mail.template-cache.revalidate-after:5s}") Duration revalidateAfter) {
+        this.templateRepository = templateRepository;
+        this.metrics = metrics;
+        this.revalidateAfterNanos = revalidateAfter.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), "templates", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public Mono<TemplateEntity> get(Long templateId) {
+        return metrics.time(MailMetrics.Stage.TEMPLATE_LOOKUP, templateId, lookup(templateId)
+                .flatMap(cached -> revalidate(templateId, cached))
+                .map(CachedTemplate::template));
+    }
+
+    /**
+     * The compiled form of {@code template} if this exact version is cached, otherwise null.
+     */
+    public CompiledTemplate compiledFor(TemplateEntity template) {
+        CompletableFuture<CachedTemplate> future = cache.getIfPresent(template.getTemplateId());
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        CachedTemplate cached = future.getNow(null);
+        return cached != null && cached.version == versionOf(template) ? cached.compiled : null;
+    }
+
+    public void invalidate(Long templateId) {
+        log.debug("Invalidating cached template {}", templateId);
+        cache.synchronous().invalidate(templateId);
+    }
+
+    private Mono<CachedTemplate> lookup(Long templateId) {
+        return Mono.fromFuture(() -> cache.get(templateId, (id, executor) -> load(id).toFuture()));
+    }
+
+    private Mono<CachedTemplate> load(Long templateId) {
+        return templateRepository.findById(templateId)
+                .map(template -> new CachedTemplate(template, CompiledTemplate.compile(template.getContent()),
+                        versionOf(template), System.nanoTime()));
+    }
+
+    private Mono<CachedTemplate> revalidate(Long templateId, CachedTemplate cached) {
+        if (System.nanoTime() - cached.validatedAtNanos < revalidateAfterNanos
+                || !cached.revalidating.compareAndSet(false, true)) {
+            return Mono.just(cached);
+        }
+        // Only one caller checks the version; everyone else keeps using the entry meanwhile
+        return templateRepository.findVersionById(templateId)
+                .flatMap(version -> {
+                    if (version == cached.version) {
+                        cached.validatedAtNanos = System.nanoTime();
+                        cached.revalidating.set(false);
+                        return Mono.just(cached);
+                    }
+                    invalidate(templateId);
+                    return lookup(templateId);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    // Deleted on another node
+                    invalidate(templateId);
+                    return Mono.empty();
+                }))
+                .doOnError(e -> cached.revalidating.set(false));
+    }
+
+    private static long versionOf(TemplateEntity template) {
+        return template.getVersion() != null ? template.getVersion() : 0L;
+    }
+
+    private static final class CachedTemplate {
+        private final TemplateEntity template;
+        private final CompiledTemplate compiled;
+        private final long version;
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+        private volatile long validatedAtNanos;
+
+        private CachedTemplate(TemplateEntity template, CompiledTemplate compiled, long version, long validatedAtNanos) {
+            this.template = template;
+            this.compiled = compiled;
+            this.version = version;
+            this.validatedAtNanos = validatedAtNanos;
+        }
+
+        private TemplateEntity template() {
+            return template;
+        }
+    }
+}
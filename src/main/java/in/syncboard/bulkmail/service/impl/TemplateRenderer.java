@@ -0,0 +1,66 @@
+package in.syncboard.bulkmail.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.syncboard.bulkmail.entity.TemplateEntity;
+import in.syncboard.bulkmail.utils.CompiledTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Renders template content with the configured missing-variable and escaping policies. Uses the compiled
+ * form held by {@link TemplateCache} when that version is cached, otherwise compiles each (template ID,
+ * version) once into a small LRU of its own. A saved version's content never changes, so the key needs
+ * neither the body nor a hash of it.
+ */
+@Component
+public class TemplateRenderer {
+
+    private static final int MAX_COMPILED = 256;
+
+    private final CompiledTemplate.MissingVariablePolicy missingPolicy;
+    private final boolean escapeHtml;
+    private final TemplateCache templateCache;
+    private final MailMetrics metrics;
+    private final Cache<CompiledKey, CompiledTemplate> compiled = Caffeine.newBuilder()
+            .maximumSize(MAX_COMPILED)
+            .build();
+
+    public TemplateRenderer(TemplateCache templateCache,
+                            MailMetrics metrics,
+                            @Value("${mail.template.missing-variable:KEEP_PLACEHOLDER}") CompiledTemplate.MissingVariablePolicy missingPolicy,
+                            @Value("${mail.template.escape-html:false}") boolean escapeHtml) {
+        this.templateCache = templateCache;
+        this.metrics = metrics;
+        this.missingPolicy = missingPolicy;
+        this.escapeHtml = escapeHtml;
+    }
+
+    public String render(TemplateEntity template, Map<String, Object> variables) {
+        long start = System.nanoTime();
+        try {
+            CompiledTemplate cached = templateCache.compiledFor(template);
+            CompiledTemplate compiledTemplate = cached != null ? cached : compile(template);
+            String content = compiledTemplate.render(variables, missingPolicy, escapeHtml);
+            metrics.record(MailMetrics.Stage.RENDER, template.getTemplateId(), MailMetrics.SUCCESS, start);
+            return content;
+        } catch (RuntimeException e) {
+            metrics.record(MailMetrics.Stage.RENDER, template.getTemplateId(), MailMetrics.ERROR, start);
+            throw e;
+        }
+    }
+
+    private CompiledTemplate compile(TemplateEntity template) {
+        if (template.getTemplateId() == null) {
+            // Never saved, so no version identifies its content
+            return CompiledTemplate.compile(template.getContent());
+        }
+        CompiledKey key = new CompiledKey(template.getTemplateId(), template.getVersion() != null ? template.getVersion() : 0L);
+        return compiled.get(key, k -> CompiledTemplate.compile(template.getContent()));
+    }
+
+    private record CompiledKey(long templateId, long version) {
+    }
+}
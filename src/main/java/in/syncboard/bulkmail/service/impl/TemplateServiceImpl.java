@@ -8,6 +8,7 @@ import in.syncboard.bulkmail.service.TemplateService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
@@ -19,6 +20,7 @@ import reactor.core.publisher.Mono;
 public class TemplateServiceImpl implements TemplateService {
 
     private final TemplateRepository templateRepository;
+    private final TemplateCache templateCache;
     private final ModelMapper modelMapper;
 
     @Override
@@ -62,6 +64,8 @@ public class TemplateServiceImpl implements TemplateService {
                     if (entity.getIsActive() == null) {
                         entity.setIsActive(true); // Active by default
                     }
+                    // A null version marks the entity as new; the insert stores 0
+                    entity.setVersion(null);
                     return templateRepository.save(entity);
                 }))
                 .ofType(TemplateEntity.class)
@@ -85,7 +89,7 @@ public class TemplateServiceImpl implements TemplateService {
                 })
                 .flatMap(existingTemplate -> {
                     updateEntityFields(existingTemplate, templateDTO);
-                    return templateRepository.save(existingTemplate);
+                    return saveNewVersion(existingTemplate);
                 })
                 .map(this::mapToDTO);
     }
@@ -95,7 +99,8 @@ public class TemplateServiceImpl implements TemplateService {
         log.debug("Deleting template with id: {}", id);
         return templateRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ProfileException("Template not found with ID: " + id, HttpStatus.NOT_FOUND)))
-                .flatMap(templateRepository::delete);
+                .flatMap(templateRepository::delete)
+                .doOnSuccess(deleted -> templateCache.invalidate(id));
     }
 
     @Override
@@ -105,7 +110,7 @@ public class TemplateServiceImpl implements TemplateService {
                 .switchIfEmpty(Mono.error(new ProfileException("Template not found with ID: " + id, HttpStatus.NOT_FOUND)))
                 .flatMap(template -> {
                     template.setIsActive(true);
-                    return templateRepository.save(template);
+                    return saveNewVersion(template);
                 })
                 .map(this::mapToDTO);
     }
@@ -117,11 +122,20 @@ public class TemplateServiceImpl implements TemplateService {
                 .switchIfEmpty(Mono.error(new ProfileException("Template not found with ID: " + id, HttpStatus.NOT_FOUND)))
                 .flatMap(template -> {
                     template.setIsActive(false);
-                    return templateRepository.save(template);
+                    return saveNewVersion(template);
                 })
                 .map(this::mapToDTO);
     }
 
+    private Mono<TemplateEntity> saveNewVersion(TemplateEntity template) {
+        // @Version makes this UPDATE ... SET version = version + 1 WHERE version = <read>, so a concurrent
+        // change fails instead of being overwritten; other nodes compare the version against their cached copy
+        return templateRepository.save(template)
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new ProfileException(
+                        "Template was modified concurrently, reload it and retry: " + template.getTemplateId(), HttpStatus.CONFLICT))
+                .doOnSuccess(saved -> templateCache.invalidate(template.getTemplateId()));
+    }
+
     private void updateEntityFields(TemplateEntity entity, TemplateDTO dto) {
         entity.setName(dto.getName());
         entity.setSubject(dto.getSubject());
@@ -0,0 +1,147 @@
+package in.syncboard.bulkmail.utils;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * Records the outcome of the last {@code windowSize} calls. Once at least {@code minimumCalls} have been
+ * recorded and the failure rate reaches the threshold the breaker opens and rejects calls for
+ * {@code openDuration}. After that a single trial call is let through: success closes the breaker with a
+ * fresh window, failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Whether a call may go ahead. In HALF_OPEN only the caller that gets true may make the trial call.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * Hands back a permission that was acquired but not used for a call, so that a HALF_OPEN trial can
+     * go to the next caller. Has no effect in other states.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Whether {@link #tryAcquirePermission()} would currently succeed, without changing state.
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.nanoTime() - openedAtNanos >= openNanos;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Whether enough calls have been recorded for the failure rate to count.
+     */
+    public synchronized boolean hasMinimumCalls() {
+        return recorded >= minimumCalls;
+    }
+
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        // Keep the window so the failure rate that tripped the breaker stays visible while it is open
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        trialInFlight = false;
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,112 @@
+package in.syncboard.bulkmail.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template parsed once into literal and {@code {{name}}} placeholder segments.
+ * <p>
+ * Rendering walks the segments once and appends into a builder sized from the literal length, instead of
+ * rescanning and copying the whole body for every variable. Substituted values are never re-scanned, so a
+ * value that itself contains {@code {{...}}} is emitted as-is.
+ */
+public final class CompiledTemplate {
+
+    public enum MissingVariablePolicy {
+        KEEP_PLACEHOLDER, // Leave {{name}} in the output
+        EMPTY,            // Render nothing
+        FAIL              // Throw IllegalArgumentException
+    }
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, String[] names, int literalLength) {
+        this.literals = literals;
+        this.names = names;
+        this.literalLength = literalLength;
+    }
+
+    public static CompiledTemplate compile(String content) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int literalLength = 0;
+        int pos = 0;
+
+        while (true) {
+            int open = content.indexOf(OPEN, pos);
+            int close = open < 0 ? -1 : content.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+            String literal = content.substring(pos, open);
+            literals.add(literal);
+            literalLength += literal.length();
+            names.add(content.substring(open + OPEN.length(), close));
+            pos = close + CLOSE.length();
+        }
+        String tail = content.substring(pos);
+        literals.add(tail);
+        literalLength += tail.length();
+
+        // literals always has one more entry than names: literal, name, literal, ..., literal
+        return new CompiledTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), literalLength);
+    }
+
+    public int placeholderCount() {
+        return names.length;
+    }
+
+    public String render(Map<String, Object> variables, MissingVariablePolicy missingPolicy, boolean escapeHtml) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder out = new StringBuilder(literalLength + names.length * 16);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String name = names[i];
+
+            if (variables == null || !variables.containsKey(name)) {
+                switch (missingPolicy) {
+                    case KEEP_PLACEHOLDER -> out.append(OPEN).append(name).append(CLOSE);
+                    case EMPTY -> {
+                    }
+                    case FAIL -> throw new IllegalArgumentException("Missing template variable: " + name);
+                }
+                continue;
+            }
+
+            Object value = variables.get(name);
+            if (value == null) {
+                continue;
+            }
+            if (escapeHtml) {
+                appendEscaped(out, value.toString());
+            } else {
+                out.append(value);
+            }
+        }
+        out.append(literals[names.length]);
+        return out.toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
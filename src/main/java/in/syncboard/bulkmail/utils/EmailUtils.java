@@ -4,43 +4,145 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.regex.Pattern;
+import java.util.Locale;
 
+/**
+ * Email address checks.
+ * <p>
+ * Addresses are validated by a single hand-written pass that accepts exactly what the former regex
+ * {@code ^[a-zA-Z0-9_+&*-]+(?:\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\.)+[a-zA-Z]{2,7}$} accepted, without
+ * backtracking or allocating. {@link #domainOffset} returns where the domain starts, so a caller that needs
+ * the domain gets it from the same pass that validated the address.
+ */
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class EmailUtils {
 
-    private static final Pattern EMAIL_PATTERN =
-            Pattern.compile("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$");
+    private static final int MIN_TLD_LENGTH = 2;
+    private static final int MAX_TLD_LENGTH = 7;
 
     public static boolean isValidEmail(String email) {
+        return domainOffset(email) >= 0;
+    }
+
+    /**
+     * Index of the first character of the domain if {@code email} is valid, otherwise -1.
+     */
+    public static int domainOffset(String email) {
         if (email == null) {
-            return false;
+            return -1;
+        }
+        int length = email.length();
+        int i = 0;
+
+        // Local part: one or more atoms separated by single dots
+        boolean atomStarted = false;
+        for (; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                break;
+            }
+            if (c == '.') {
+                if (!atomStarted) {
+                    return -1;
+                }
+                atomStarted = false;
+            } else if (isLocalChar(c)) {
+                atomStarted = true;
+            } else {
+                return -1;
+            }
+        }
+        if (i == length || !atomStarted) {
+            return -1;
         }
-        return EMAIL_PATTERN.matcher(email).matches();
+        int domainStart = ++i;
+
+        // Domain: two or more labels separated by single dots, the last one 2-7 letters
+        int labels = 0;
+        int labelLength = 0;
+        boolean labelAllLetters = true;
+        for (; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return -1;
+                }
+                labels++;
+                labelLength = 0;
+                labelAllLetters = true;
+            } else if (isLetter(c)) {
+                labelLength++;
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                labelLength++;
+                labelAllLetters = false;
+            } else {
+                return -1;
+            }
+        }
+        if (labels == 0 || !labelAllLetters || labelLength < MIN_TLD_LENGTH || labelLength > MAX_TLD_LENGTH) {
+            return -1;
+        }
+        return domainStart;
     }
 
     public static String extractDomain(String email) {
-        if (!isValidEmail(email)) {
-            return null;
+        int offset = domainOffset(email);
+        return offset >= 0 ? email.substring(offset) : null;
+    }
+
+    /**
+     * The lower-cased domain of a valid address, otherwise null.
+     */
+    public static String normalizedDomain(String email) {
+        int offset = domainOffset(email);
+        return offset >= 0 ? normalizeDomain(email, offset) : null;
+    }
+
+    /**
+     * The lower-cased domain starting at {@code offset}, as returned by {@link #domainOffset}. Only copies
+     * once when the domain is already lower case.
+     */
+    public static String normalizeDomain(String email, int offset) {
+        for (int i = offset; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return email.substring(offset).toLowerCase(Locale.ROOT);
+            }
         }
+        return email.substring(offset);
+    }
 
-        return email.substring(email.indexOf('@') + 1);
+    /**
+     * The form an address is compared in for deduplication and suppression: trimmed and lower case.
+     */
+    public static String normalizeAddress(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
     }
 
     public static String obscureEmail(String email) {
-        if (!isValidEmail(email)) {
+        int offset = domainOffset(email);
+        if (offset < 0) {
             return email;
         }
 
-        String[] parts = email.split("@");
-        String name = parts[0];
-        String domain = parts[1];
+        // offset - 1 is the '@'
+        int nameLength = offset - 1;
+        String domain = email.substring(offset);
 
-        if (name.length() <= 2) {
-            return name.charAt(0) + "***@" + domain;
+        if (nameLength <= 2) {
+            return email.charAt(0) + "***@" + domain;
         } else {
-            return name.charAt(0) + "****" + "@" + domain;
+            return email.charAt(0) + "****" + "@" + domain;
         }
     }
+
+    private static boolean isLocalChar(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9')
+                || c == '_' || c == '+' || c == '&' || c == '*' || c == '-';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
 }
@@ -0,0 +1,42 @@
+package in.syncboard.bulkmail.utils;
+
+import in.syncboard.bulkmail.exception.ProfileException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a history listing ordered by (sent_at, mail_id): the key of the last row returned. Handed
+ * to clients as an opaque base64url token so the encoding can change without breaking the API.
+ */
+public record HistoryCursor(LocalDateTime sentAt, long mailId) {
+
+    private static final String VERSION = "2";
+
+    public String encode() {
+        String raw = VERSION + "|" + sentAt + "|" + mailId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The cursor a token stands for, null for a null or empty token (the first page).
+     *
+     * @throws ProfileException with 400 if the token is not one this service issued
+     */
+    public static HistoryCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw ProfileException.badRequest("Invalid cursor");
+            }
+            return new HistoryCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw ProfileException.badRequest("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package in.syncboard.bulkmail.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch over non-negative latencies in milliseconds.
+ * <p>
+ * Values go into logarithmic buckets whose bounds grow by {@code gamma = (1 + a) / (1 - a)}, so any quantile
+ * is answered with a relative error of at most {@code a} (1% by default) however many values were added,
+ * in memory proportional to the log of the value range: about 900 buckets span 1ms to a day. Two sketches
+ * with the same accuracy merge by adding bucket counts, which gives exactly the sketch of the combined
+ * values - per-window, per-template or per-node sketches can be stored once and combined at query time.
+ * Values below 1ms are counted as 0.
+ * <p>
+ * Thread-safe; every method synchronizes on the sketch.
+ */
+public final class LatencySketch {
+
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    private static final int INITIAL_BUCKETS = 64;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    private long zeroCount;
+    private long count;
+    private long max;
+    // counts[i] holds bucket index offset + i
+    private int offset;
+    private long[] counts = new long[0];
+
+    public LatencySketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    public LatencySketch(double accuracy) {
+        if (accuracy <= 0 || accuracy >= 1) {
+            throw new IllegalArgumentException("Accuracy must be in (0, 1)");
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public synchronized void add(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Latency must not be negative");
+        }
+        count++;
+        max = Math.max(max, millis);
+        if (millis < 1) {
+            zeroCount++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(millis) / logGamma);
+        ensureCovers(index);
+        counts[index - offset]++;
+    }
+
+    /**
+     * Adds every value counted by {@code other}, which must have the same accuracy.
+     */
+    public void merge(LatencySketch other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a sketch into itself");
+        }
+        long otherZero;
+        long otherCount;
+        long otherMax;
+        int otherOffset;
+        long[] otherCounts;
+        synchronized (other) {
+            if (other.accuracy != accuracy) {
+                throw new IllegalArgumentException("Cannot merge sketches of different accuracy");
+            }
+            otherZero = other.zeroCount;
+            otherCount = other.count;
+            otherMax = other.max;
+            otherOffset = other.offset;
+            otherCounts = other.counts.clone();
+        }
+        synchronized (this) {
+            zeroCount += otherZero;
+            count += otherCount;
+            max = Math.max(max, otherMax);
+            for (int i = 0; i < otherCounts.length; i++) {
+                if (otherCounts[i] != 0) {
+                    ensureCovers(otherOffset + i);
+                    counts[otherOffset + i - offset] += otherCounts[i];
+                }
+            }
+        }
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long max() {
+        return max;
+    }
+
+    /**
+     * The value at quantile {@code q} in [0, 1], within the sketch's relative accuracy, or 0 when empty.
+     */
+    public synchronized double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        long seen = zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // Midpoint of the bucket in relative terms, so the error is at most accuracy either way
+                double value = 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+                return Math.min(value, max);
+            }
+        }
+        return max;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + counts.length * 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeDouble(accuracy);
+            out.writeLong(zeroCount);
+            out.writeLong(max);
+            int nonEmpty = 0;
+            for (long bucket : counts) {
+                if (bucket != 0) {
+                    nonEmpty++;
+                }
+            }
+            out.writeInt(nonEmpty);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    out.writeInt(offset + i);
+                    out.writeLong(counts[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a sketch written by {@link #toBytes}.
+     */
+    public static LatencySketch fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            LatencySketch sketch = new LatencySketch(in.readDouble());
+            sketch.zeroCount = in.readLong();
+            sketch.count = sketch.zeroCount;
+            sketch.max = in.readLong();
+            int nonEmpty = in.readInt();
+            for (int i = 0; i < nonEmpty; i++) {
+                int index = in.readInt();
+                long bucket = in.readLong();
+                sketch.ensureCovers(index);
+                sketch.counts[index - sketch.offset] += bucket;
+                sketch.count += bucket;
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid latency sketch", e);
+        }
+    }
+
+    private void ensureCovers(int index) {
+        if (counts.length == 0) {
+            offset = index - INITIAL_BUCKETS / 2;
+            counts = new long[INITIAL_BUCKETS];
+            return;
+        }
+        if (index < offset) {
+            int grow = Math.max(offset - index, counts.length / 2);
+            long[] grown = new long[counts.length + grow];
+            System.arraycopy(counts, 0, grown, grow, counts.length);
+            counts = grown;
+            offset -= grow;
+        } else if (index >= offset + counts.length) {
+            int needed = index - offset + 1;
+            counts = Arrays.copyOf(counts, Math.max(needed, counts.length + counts.length / 2));
+        }
+    }
+}
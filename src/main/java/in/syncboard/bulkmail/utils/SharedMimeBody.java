@@ -0,0 +1,82 @@
+package in.syncboard.bulkmail.utils;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An HTML body, subject and sender encoded once and shared by every message of a bulk send.
+ * <p>
+ * The body is quoted-printable encoded up front and handed to each message as its raw content, so
+ * per-recipient work is limited to the To header and the message ID. The result is a single
+ * {@code text/html} part rather than the multipart structure {@code MimeMessageHelper} builds, which
+ * is all a body without attachments needs.
+ */
+public final class SharedMimeBody {
+
+    private static final String CONTENT_TYPE = "text/html; charset=UTF-8";
+    private static final String TRANSFER_ENCODING = "quoted-printable";
+
+    private final byte[] encodedBody;
+    private final String encodedSubject;
+    private final InternetAddress from;
+
+    private SharedMimeBody(byte[] encodedBody, String encodedSubject, InternetAddress from) {
+        this.encodedBody = encodedBody;
+        this.encodedSubject = encodedSubject;
+        this.from = from;
+    }
+
+    public static SharedMimeBody encode(String html, String subject, String from) throws MessagingException {
+        try {
+            byte[] raw = html.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(raw.length + raw.length / 8);
+            try (OutputStream out = MimeUtility.encode(encoded, TRANSFER_ENCODING)) {
+                out.write(raw);
+            }
+            return new SharedMimeBody(encoded.toByteArray(),
+                    MimeUtility.fold(9, MimeUtility.encodeText(subject, "UTF-8", null)),
+                    new InternetAddress(from));
+        } catch (UnsupportedEncodingException e) {
+            throw new MessagingException("Error encoding subject: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MessagingException("Error encoding body: " + e.getMessage(), e);
+        }
+    }
+
+    public int encodedSize() {
+        return encodedBody.length;
+    }
+
+    public MimeMessage newMessage(Session session, String recipient) throws MessagingException {
+        MimeMessage message = new PreEncodedMessage(session, encodedBody);
+        message.setFrom(from);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+        message.setHeader("Subject", encodedSubject);
+        return message;
+    }
+
+    /**
+     * A message whose content is already transfer-encoded. Because the content is held as raw bytes,
+     * {@code saveChanges()} keeps the Content-Type and Content-Transfer-Encoding headers set here and
+     * {@code writeTo} copies the bytes out untouched.
+     */
+    private static final class PreEncodedMessage extends MimeMessage {
+
+        private PreEncodedMessage(Session session, byte[] encodedBody) throws MessagingException {
+            super(session);
+            this.content = encodedBody;
+            setHeader("Content-Type", CONTENT_TYPE);
+            setHeader("Content-Transfer-Encoding", TRANSFER_ENCODING);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package in.syncboard.bulkmail.utils;
+
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.ParseException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether a failed send is worth retrying.
+ * <p>
+ * An SMTP reply decides it when there is one: 4xx (greylisting, mailbox busy, rate limited) is transient
+ * and 5xx is permanent. Without a reply the server never rejected the message - the connection was refused,
+ * dropped or timed out, or no pooled connection was free - so mail and I/O errors are transient too.
+ * Failed authentication is the exception: the relay rejected our credentials, which retrying will not fix.
+ * Malformed addresses and anything else, such as a template that fails to render, will fail the same way
+ * next time and are permanent.
+ * <p>
+ * Replies are read synchronously from our own relay, so a 5xx is either about the message or recipient, or
+ * about the relay refusing to carry mail for us at all; see {@link #isRelayFault}.
+ */
+public final class SmtpErrorClassifier {
+
+    public enum ErrorClass {
+        TRANSIENT,
+        PERMANENT
+    }
+
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    // RFC 3463 enhanced status code right after the reply code, e.g. "550 5.7.1 Relaying denied"
+    private static final Pattern ENHANCED_STATUS = Pattern.compile("^\\s*\\d{3}[ -]([245]\\.\\d{1,3}\\.\\d{1,3})(?![.\\d])");
+
+    private SmtpErrorClassifier() {
+    }
+
+    public static ErrorClass classify(Throwable error) {
+        int replyCode = replyCode(error);
+        if (replyCode > 0) {
+            return replyCode >= 400 && replyCode < 500 ? ErrorClass.TRANSIENT : ErrorClass.PERMANENT;
+        }
+
+        boolean mailOrIoError = false;
+        int depth = 0;
+        for (Throwable t = error; t != null && depth < MAX_CAUSE_DEPTH; t = t.getCause(), depth++) {
+            if (t instanceof ParseException || t instanceof AuthenticationFailedException) {
+                // ParseException includes AddressException
+                return ErrorClass.PERMANENT;
+            }
+            mailOrIoError |= t instanceof MessagingException || t instanceof IOException;
+        }
+        return mailOrIoError ? ErrorClass.TRANSIENT : ErrorClass.PERMANENT;
+    }
+
+    /**
+     * Whether the server permanently rejected the recipient's mailbox itself: a 5xx reply to RCPT TO with
+     * an enhanced status of 5.1.x (bad mailbox or domain, such as 5.1.1 or 5.1.10). Such addresses will keep
+     * bouncing and should be suppressed. Other RCPT rejections - relaying denied, sender blocklisted, policy,
+     * or no enhanced status to tell - may say nothing about the address and are not hard bounces, nor is
+     * anything while the relay itself is at fault.
+     */
+    public static boolean isHardBounce(Throwable error) {
+        if (isRelayFault(error)) {
+            return false;
+        }
+        int depth = 0;
+        for (Throwable t = error; t != null && depth < MAX_CAUSE_DEPTH; t = t.getCause(), depth++) {
+            if (t instanceof SMTPAddressFailedException e) {
+                String status = enhancedStatus(e.getMessage());
+                return e.getReturnCode() >= 500 && e.getReturnCode() < 600 && status != null && status.startsWith("5.1.");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the relay refused to carry the message for reasons of its own rather than the message's or
+     * the recipient's: our credentials rejected while connecting, authentication required or failed (530,
+     * 534, 535, 538) or a security or policy rejection (enhanced status 5.7.x: relaying denied, sender or
+     * client IP blocklisted). Another relay may well accept the same message, so such failures count against
+     * the relay.
+     */
+    public static boolean isRelayFault(Throwable error) {
+        int depth = 0;
+        for (Throwable t = error; t != null && depth < MAX_CAUSE_DEPTH; t = t.getCause(), depth++) {
+            if (t instanceof AuthenticationFailedException) {
+                return true;
+            }
+        }
+        int replyCode = replyCode(error);
+        if (replyCode == 530 || replyCode == 534 || replyCode == 535 || replyCode == 538) {
+            return true;
+        }
+        String status = enhancedStatus(error);
+        return status != null && status.startsWith("5.7.");
+    }
+
+    /**
+     * The enhanced status code (RFC 3463, such as {@code 5.1.1}) of the first SMTP reply in the cause
+     * chain, or null if there is none or the server did not send one.
+     */
+    public static String enhancedStatus(Throwable error) {
+        MessagingException reply = smtpReply(error);
+        return reply != null ? enhancedStatus(reply.getMessage()) : null;
+    }
+
+    /**
+     * The first SMTP reply code in the cause chain, or -1 if the server never replied with an error.
+     */
+    public static int replyCode(Throwable error) {
+        MessagingException reply = smtpReply(error);
+        if (reply instanceof SMTPSendFailedException e) {
+            return e.getReturnCode();
+        }
+        if (reply instanceof SMTPAddressFailedException e) {
+            return e.getReturnCode();
+        }
+        if (reply instanceof SMTPSenderFailedException e) {
+            return e.getReturnCode();
+        }
+        return -1;
+    }
+
+    private static String enhancedStatus(String reply) {
+        if (reply == null) {
+            return null;
+        }
+        Matcher matcher = ENHANCED_STATUS.matcher(reply);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static MessagingException smtpReply(Throwable error) {
+        int depth = 0;
+        // MessagingException.getCause() also follows the chain of per-recipient failures
+        for (Throwable t = error; t != null && depth < MAX_CAUSE_DEPTH; t = t.getCause(), depth++) {
+            if (t instanceof SMTPSendFailedException || t instanceof SMTPAddressFailedException
+                    || t instanceof SMTPSenderFailedException) {
+                return (MessagingException) t;
+            }
+        }
+        return null;
+    }
+}
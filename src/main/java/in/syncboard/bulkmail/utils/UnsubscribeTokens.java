@@ -0,0 +1,88 @@
+package in.syncboard.bulkmail.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Signed tokens for unsubscribe links: the normalized address and a truncated HMAC-SHA256 of it, both
+ * base64url encoded. They do not expire, since an unsubscribe link has to keep working for as long as
+ * the email is kept. They are signed with {@code mail.unsubscribe.secret}, or when that is not set with a
+ * key derived from {@code jwt.secret} for this purpose only, so the JWT signing key itself never signs them.
+ */
+@Component
+public class UnsubscribeTokens {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;
+    private static final String DERIVED_KEY_LABEL = "unsubscribe";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public UnsubscribeTokens(@Value("${mail.unsubscribe.secret:}") String secret,
+                             @Value("${jwt.secret}") String jwtSecret) {
+        this.key = secret != null && !secret.isBlank()
+                ? new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM)
+                : new SecretKeySpec(hmac(jwtSecret.getBytes(StandardCharsets.UTF_8),
+                        DERIVED_KEY_LABEL.getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String create(String email) {
+        String normalized = EmailUtils.normalizeAddress(email);
+        byte[] address = normalized.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(address) + "." + encoder.encodeToString(sign(address));
+    }
+
+    /**
+     * The address a token was created for, or null if the token is malformed or its signature is wrong.
+     */
+    public String verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] address = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            return MessageDigest.isEqual(sign(address), signature) ? new String(address, StandardCharsets.UTF_8) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] address) {
+        return Arrays.copyOf(macs.get().doFinal(address), SIGNATURE_BYTES);
+    }
+
+    private Mac newMac() {
+        return newMac(key);
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) {
+        return newMac(new SecretKeySpec(key, ALGORITHM)).doFinal(data);
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+-- Adds the template version used for optimistic locking and for revalidating cached templates (MySQL 8).
+--
+-- Every save runs UPDATE ... SET version = version + 1 WHERE template_id = ? AND version = ?, so the
+-- column must never be NULL: a NULL version makes an existing template look new and the save an INSERT.
+-- Existing templates start at 0.
+
+ALTER TABLE email_templates ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- Creates mail_campaigns and links sent_emails rows to them (MySQL 8).
+--
+-- A bulk send with variables stores them once as a campaign; its rows carry the campaign_id and only the
+-- variables that differ per recipient. Rows sent before the migration keep their own variables and a
+-- NULL campaign_id.
+
+CREATE TABLE IF NOT EXISTS mail_campaigns (
+    campaign_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    template_id BIGINT NOT NULL,
+    variables MEDIUMTEXT NULL,
+    created_date DATE NULL
+);
+
+ALTER TABLE sent_emails
+    ADD COLUMN campaign_id BIGINT NULL;
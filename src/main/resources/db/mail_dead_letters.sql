@@ -0,0 +1,14 @@
+-- Creates mail_dead_letters, the copy of every email that ran out of retries (MySQL 8).
+--
+-- Entries are read and requeued in dead_letter_id order and removed once requeued; the sent_emails row
+-- itself stays FAILED until then.
+
+CREATE TABLE IF NOT EXISTS mail_dead_letters (
+    dead_letter_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    mail_id BIGINT NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    template_id BIGINT NULL,
+    attempts INT NULL,
+    last_error VARCHAR(4000) NULL,
+    created_date DATE NULL
+);
@@ -0,0 +1,31 @@
+-- Creates mail_jobs, the state of background bulk sends (MySQL 8).
+--
+-- Each job runs on the node named in owner_id, which refreshes heartbeat_at while it runs; RUNNING or
+-- PAUSED jobs whose heartbeat is stale are taken over by another node. next_index is the first recipient
+-- of the next unsent chunk and checkpoint_sent_count / checkpoint_failed_count the counters as of it,
+-- which a resumed job starts from. sent_count and failed_count are flushed more often, for progress only.
+
+CREATE TABLE IF NOT EXISTS mail_jobs (
+    job_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    template_id BIGINT NOT NULL,
+    campaign_id BIGINT NULL,
+    status VARCHAR(20) NOT NULL,
+    recipients LONGTEXT NULL,
+    variables MEDIUMTEXT NULL,
+    total_recipients INT NULL,
+    next_index INT NULL,
+    sent_count BIGINT NULL,
+    failed_count BIGINT NULL,
+    checkpoint_sent_count BIGINT NULL,
+    checkpoint_failed_count BIGINT NULL,
+    error_message VARCHAR(4000) NULL,
+    started_at DATETIME NULL,
+    finished_at DATETIME NULL,
+    owner_id VARCHAR(36) NULL,
+    heartbeat_at DATETIME(3) NULL,
+    created_date DATE NULL,
+    last_modified_date DATE NULL
+);
+
+-- Heartbeats and takeovers look up active jobs by status
+CREATE INDEX idx_mail_jobs_status ON mail_jobs (status, heartbeat_at);
@@ -0,0 +1,23 @@
+-- Adds the per-message pipeline timestamps and the mail_latency_sketches table behind
+-- GET /api/v1/mail/stats/latency (MySQL 8).
+--
+-- The new columns are nullable: rows sent before the migration keep NULLs and are left out of latency
+-- stats.
+
+ALTER TABLE sent_emails
+    ADD COLUMN accepted_at DATETIME(3) NULL,
+    ADD COLUMN rendered_at DATETIME(3) NULL,
+    ADD COLUMN smtp_handoff_at DATETIME(3) NULL,
+    ADD COLUMN completed_at DATETIME(3) NULL;
+
+-- One row per hour, template (0 for none), metric (queue or send) and application instance. Each instance
+-- overwrites its own rows with its cumulative sketch; queries merge across instances.
+CREATE TABLE IF NOT EXISTS mail_latency_sketches (
+    window_start DATETIME NOT NULL,
+    template_id BIGINT NOT NULL,
+    metric VARCHAR(8) NOT NULL,
+    node_id VARCHAR(36) NOT NULL,
+    value_count BIGINT NOT NULL,
+    sketch VARBINARY(16000) NOT NULL,
+    PRIMARY KEY (window_start, template_id, metric, node_id)
+);
@@ -0,0 +1,7 @@
+-- Named leases that elect a single node for cluster-wide background work, such as the mail archiver (MySQL 8).
+
+CREATE TABLE IF NOT EXISTS mail_leases (
+    lease_name VARCHAR(64) NOT NULL PRIMARY KEY,
+    owner_id VARCHAR(36) NOT NULL,
+    expires_at DATETIME(3) NOT NULL
+);
@@ -0,0 +1,25 @@
+-- Creates the mail_stats_daily rollup behind GET /api/v1/mail/stats (MySQL 8).
+--
+-- MailStatsRollup adds to it as emails are delivered. Run the backfill once, before the first instance
+-- with the rollup starts, to carry over counts for emails already in sent_emails. Retries of past emails
+-- were never recorded, so RETRYING counts start from the deployment.
+
+CREATE TABLE IF NOT EXISTS mail_stats_daily (
+    stat_date DATE NOT NULL,
+    template_id BIGINT NOT NULL,
+    sender_domain VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    message_count BIGINT NOT NULL,
+    PRIMARY KEY (stat_date, template_id, sender_domain, status)
+);
+
+INSERT INTO mail_stats_daily (stat_date, template_id, sender_domain, status, message_count)
+SELECT COALESCE(last_modified_date, DATE(sent_at)),
+       COALESCE(template_id, 0),
+       COALESCE(NULLIF(LOWER(SUBSTRING_INDEX(sender, '@', -1)), ''), 'unknown'),
+       status,
+       COUNT(*)
+FROM sent_emails
+WHERE status IN ('SUCCESS', 'FAILED', 'SUPPRESSED')
+GROUP BY 1, 2, 3, 4
+ON DUPLICATE KEY UPDATE message_count = message_count + VALUES(message_count);
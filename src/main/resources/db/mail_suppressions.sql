@@ -0,0 +1,12 @@
+-- Creates mail_suppressions, the addresses no email is sent to (MySQL 8).
+--
+-- Every instance loads the whole table at startup and holds sends until it has, so it must exist before
+-- the first instance starts. Addresses are stored normalized (trimmed, lower case), once each.
+
+CREATE TABLE IF NOT EXISTS mail_suppressions (
+    suppression_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    reason VARCHAR(20) NOT NULL,
+    created_date DATE NULL,
+    UNIQUE KEY uk_mail_suppressions_email (email)
+);
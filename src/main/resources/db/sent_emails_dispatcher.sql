@@ -0,0 +1,17 @@
+-- Adds the columns and indexes the outbox dispatcher and retry scheduler need to sent_emails (MySQL 8).
+--
+-- Run before sent_emails_partitioning.sql. Without idx_sent_emails_status every dispatcher poll scans
+-- the whole table to find QUEUED rows and RETRYING rows that are due.
+
+ALTER TABLE sent_emails
+    ADD COLUMN attempts INT NULL,
+    ADD COLUMN next_attempt_at DATETIME NULL,
+    ADD COLUMN claim_token VARCHAR(36) NULL,
+    ADD COLUMN claimed_at DATETIME NULL;
+
+-- Claims (status = 'QUEUED' OR status = 'RETRYING' AND next_attempt_at <= now, ORDER BY mail_id) and
+-- the stale claim sweep (status = 'SENDING')
+CREATE INDEX idx_sent_emails_status ON sent_emails (status, next_attempt_at, mail_id);
+
+-- Reading back the rows of one claim
+CREATE INDEX idx_sent_emails_claim ON sent_emails (claim_token);
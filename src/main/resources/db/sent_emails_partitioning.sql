@@ -0,0 +1,64 @@
+-- Converts sent_emails to monthly RANGE COLUMNS partitions on sent_at (MySQL 8).
+--
+-- Run once, during a maintenance window: the ALTERs rebuild the table. Afterwards MailHistoryRetention
+-- keeps partitions for the coming months in place and retires expired ones.
+--
+-- MySQL requires every unique key to contain the partitioning column, so the primary key becomes
+-- (mail_id, sent_at); mail_id stays AUTO_INCREMENT and unique in practice. Point updates therefore name
+-- sent_at as well as mail_id, so they touch one partition.
+
+ALTER TABLE sent_emails ADD COLUMN sent_at DATETIME(3) NULL AFTER claimed_at;
+
+UPDATE sent_emails SET sent_at = COALESCE(sent_date, CURRENT_DATE) WHERE sent_at IS NULL;
+
+-- Earlier history indexes may or may not exist depending on how the table was created; MySQL has no
+-- DROP INDEX IF EXISTS, so each drop is prepared only when information_schema lists the index.
+SET @drop_index = (SELECT IF(COUNT(*) > 0, 'ALTER TABLE sent_emails DROP INDEX idx_sent_emails_recipient', 'DO 0')
+                   FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'sent_emails' AND index_name = 'idx_sent_emails_recipient');
+PREPARE drop_index FROM @drop_index;
+EXECUTE drop_index;
+DEALLOCATE PREPARE drop_index;
+
+SET @drop_index = (SELECT IF(COUNT(*) > 0, 'ALTER TABLE sent_emails DROP INDEX idx_sent_emails_sent_date', 'DO 0')
+                   FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = 'sent_emails' AND index_name = 'idx_sent_emails_sent_date');
+PREPARE drop_index FROM @drop_index;
+EXECUTE drop_index;
+DEALLOCATE PREPARE drop_index;
+
+ALTER TABLE sent_emails
+    MODIFY sent_at DATETIME(3) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (mail_id, sent_at),
+    ADD INDEX idx_sent_emails_recipient (recipient, sent_at, mail_id),
+    ADD INDEX idx_sent_emails_sent_at (sent_at, mail_id);
+
+-- One partition per month that has rows, up to and including the current one. Adjust the first
+-- month to MIN(sent_at); the retention job adds the following months by splitting p_future.
+ALTER TABLE sent_emails
+    PARTITION BY RANGE COLUMNS (sent_at) (
+        PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+        PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+        PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+        PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+        PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+        PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+        PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+        PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+        PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+        PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+        PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+        PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+        PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+        PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+        PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+        PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+        PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+        PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+        PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+        PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+        PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+        PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
@@ -0,0 +1,67 @@
+package in.syncboard.bulkmail.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Realistic inputs shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * An HTML email body of roughly {@code bytes} characters with {@code variables} placeholders
+     * spread evenly through it, each used twice.
+     */
+    static String htmlTemplate(int bytes, int variables) {
+        String row = "<tr><td style=\"padding:8px;font-family:Arial,sans-serif;color:#333\">"
+                + "Lorem ipsum dolor sit amet, consectetur adipiscing elit.</td></tr>\n";
+        StringBuilder html = new StringBuilder(bytes + 256);
+        html.append("<html><body><table width=\"100%\">\n");
+        int placeholder = 0;
+        int rowsPerPlaceholder = Math.max(1, bytes / row.length() / Math.max(1, variables * 2));
+        int rows = 0;
+        while (html.length() < bytes) {
+            html.append(row);
+            if (variables > 0 && ++rows % rowsPerPlaceholder == 0) {
+                html.append("<p>Hello {{var").append(placeholder % variables).append("}}</p>\n");
+                placeholder++;
+            }
+        }
+        html.append("</table></body></html>");
+        return html.toString();
+    }
+
+    /**
+     * {@code count} recipient addresses shaped like a real mailing list - dotted and tagged local parts,
+     * sub-domains and country-code TLDs - with {@code invalidPercent} percent malformed, in a fixed order.
+     */
+    static List<String> recipients(int count, int invalidPercent) {
+        String[] firstNames = {"alice", "bob", "chandra", "dmitri", "eva", "farah", "giulia", "hiroshi", "ines", "jamal"};
+        String[] lastNames = {"smith", "kumar", "o-brien", "nakamura", "garcia", "muller", "rossi", "chen", "silva", "novak"};
+        String[] domains = {"gmail.com", "outlook.com", "yahoo.co.uk", "mail.example-corp.com", "students.univ.edu",
+                "proton.me", "web.de", "company.co.in", "icloud.com", "news.bigretailer.com.au"};
+        String[] invalid = {"missing-at.example.com", "two@@example.com", "trailing.dot.@example.com",
+                "spaces in@example.com", "user@no-tld", "user@example.c", ""};
+
+        Random random = new Random(42);
+        List<String> recipients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(100) < invalidPercent) {
+                recipients.add(invalid[random.nextInt(invalid.length)]);
+                continue;
+            }
+            String local = firstNames[random.nextInt(firstNames.length)] + "." + lastNames[random.nextInt(lastNames.length)];
+            if (random.nextInt(4) == 0) {
+                local += "+newsletter" + random.nextInt(100);
+            } else {
+                local += random.nextInt(10_000);
+            }
+            recipients.add(local + "@" + domains[random.nextInt(domains.length)]);
+        }
+        return recipients;
+    }
+}
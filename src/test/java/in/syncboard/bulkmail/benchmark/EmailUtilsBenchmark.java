@@ -0,0 +1,75 @@
+package in.syncboard.bulkmail.benchmark;
+
+import in.syncboard.bulkmail.utils.EmailUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Address validation and domain extraction as run for every recipient of a bulk send. Each invocation
+ * walks a {@value #RECIPIENTS}-address list with 5% malformed entries; scores are per address.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailUtilsBenchmark {
+
+    private static final int RECIPIENTS = 10_000;
+
+    private List<String> recipients;
+
+    @Setup
+    public void setUp() {
+        recipients = BenchmarkData.recipients(RECIPIENTS, 5);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECIPIENTS)
+    public void isValidEmail(Blackhole blackhole) {
+        for (String recipient : recipients) {
+            blackhole.consume(EmailUtils.isValidEmail(recipient));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECIPIENTS)
+    public void extractDomain(Blackhole blackhole) {
+        for (String recipient : recipients) {
+            blackhole.consume(EmailUtils.extractDomain(recipient));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECIPIENTS)
+    public void normalizedDomain(Blackhole blackhole) {
+        for (String recipient : recipients) {
+            blackhole.consume(EmailUtils.normalizedDomain(recipient));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailUtilsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
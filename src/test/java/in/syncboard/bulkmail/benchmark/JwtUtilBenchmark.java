@@ -0,0 +1,79 @@
+package in.syncboard.bulkmail.benchmark;
+
+import in.syncboard.bulkmail.dto.UserDTO;
+import in.syncboard.bulkmail.utils.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks made on every authenticated request. The token carries the same claims as a real access
+ * token (user ID, email, roles, power level, phone) and is signed with a 256-bit HS256 key, so parse and
+ * signature costs match production. {@code validateThenExtractUsername} is what the JWT filter does per
+ * request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-signing-key-0123456789abcdef0123456789");
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "refreshExpirationTime", TimeUnit.DAYS.toMillis(1));
+
+        UserDTO user = UserDTO.builder()
+                .userId(48_213L)
+                .username("farah.nakamura")
+                .email("farah.nakamura+campaigns@mail.example-corp.com")
+                .phone("+44 20 7946 0958")
+                .powerLevel(3)
+                .build();
+        token = jwtUtil.generateToken(user, List.of("ROLE_USER", "ROLE_EDITOR"));
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public String validateThenExtractUsername() {
+        return jwtUtil.validateToken(token) ? jwtUtil.extractUsername(token) : null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
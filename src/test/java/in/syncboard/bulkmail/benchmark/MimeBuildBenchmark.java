@@ -0,0 +1,87 @@
+package in.syncboard.bulkmail.benchmark;
+
+import in.syncboard.bulkmail.utils.SharedMimeBody;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-recipient MIME construction for a bulk send: a fresh MimeMessageHelper multipart per message
+ * against a {@link SharedMimeBody} encoded once. Each operation builds one message and serializes it the
+ * way the transport would. Run {@code main} to get allocation rates from the GC profiler; one run of
+ * 10,000 operations corresponds to a 10k-recipient bulk send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MimeBuildBenchmark {
+
+    @Param({"51200"})
+    private int templateBytes;
+
+    private Session session;
+    private String html;
+    private SharedMimeBody sharedBody;
+    private int recipient;
+
+    @Setup
+    public void setUp() throws Exception {
+        session = Session.getInstance(new Properties());
+        html = BenchmarkData.htmlTemplate(templateBytes, 0);
+        sharedBody = SharedMimeBody.encode(html, "Quarterly update", "news@example.com");
+    }
+
+    @Benchmark
+    public MimeMessage perRecipientHelper() throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("news@example.com");
+        helper.setTo(nextRecipient());
+        helper.setSubject("Quarterly update");
+        helper.setText(html, true);
+        message.saveChanges();
+        message.writeTo(OutputStream.nullOutputStream());
+        return message;
+    }
+
+    @Benchmark
+    public MimeMessage sharedBody() throws Exception {
+        MimeMessage message = sharedBody.newMessage(session, nextRecipient());
+        message.saveChanges();
+        message.writeTo(OutputStream.nullOutputStream());
+        return message;
+    }
+
+    private String nextRecipient() {
+        return "user" + (recipient++ % 10_000) + "@example.com";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MimeBuildBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,134 @@
+package in.syncboard.bulkmail.benchmark;
+
+import in.syncboard.bulkmail.config.AppConfig;
+import in.syncboard.bulkmail.dto.ProfileDTO;
+import in.syncboard.bulkmail.dto.TemplateDTO;
+import in.syncboard.bulkmail.dto.UserDTO;
+import in.syncboard.bulkmail.entity.ProfileEntity;
+import in.syncboard.bulkmail.entity.TemplateEntity;
+import in.syncboard.bulkmail.entity.UserEntity;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The entity/DTO conversions the services make through the application's ModelMapper, with a hand-written
+ * copy of the template mapping as a baseline for the reflection overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelMapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private TemplateEntity template;
+    private TemplateDTO templateDTO;
+    private UserEntity user;
+    private ProfileEntity profile;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new AppConfig().modelMapper();
+
+        template = TemplateEntity.builder()
+                .templateId(812L)
+                .name("Quarterly product update")
+                .subject("What's new this quarter")
+                .content(BenchmarkData.htmlTemplate(51_200, 20))
+                .description("Sent to every active customer at the start of each quarter")
+                .isActive(true)
+                .version(7L)
+                .createdDate(LocalDate.of(2025, 1, 6))
+                .lastModifiedDate(LocalDate.of(2025, 3, 28))
+                .build();
+        templateDTO = modelMapper.map(template, TemplateDTO.class);
+
+        user = UserEntity.builder()
+                .userId(48_213L)
+                .username("farah.nakamura")
+                .email("farah.nakamura@mail.example-corp.com")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3bSxVB5ZkYjJY9KpWyPLb5W")
+                .phone("+44 20 7946 0958")
+                .powerLevel(3)
+                .accountNonExpired(true)
+                .accountNonLocked(true)
+                .credentialsNonExpired(true)
+                .enabled(true)
+                .lastLogin(LocalDateTime.of(2025, 3, 30, 9, 12))
+                .createdTs(LocalDateTime.of(2024, 11, 2, 14, 0))
+                .updatedTs(LocalDateTime.of(2025, 3, 30, 9, 12))
+                .build();
+
+        profile = ProfileEntity.builder()
+                .profileId(90_114L)
+                .name("Giulia Rossi")
+                .email("giulia.rossi@company.co.in")
+                .title("Senior Platform Engineer")
+                .company("Example Corp")
+                .phone("+91 80 4000 1234")
+                .linkedin("https://www.linkedin.com/in/giulia-rossi-example")
+                .skills("Java,Spring,Kubernetes,PostgreSQL,Kafka")
+                .resumeUrl("https://cdn.example-corp.com/resumes/90114.pdf")
+                .createdDate(LocalDate.of(2024, 6, 1))
+                .lastModifiedDate(LocalDate.of(2025, 2, 14))
+                .build();
+    }
+
+    @Benchmark
+    public TemplateDTO templateToDTO() {
+        return modelMapper.map(template, TemplateDTO.class);
+    }
+
+    @Benchmark
+    public TemplateDTO templateToDTOByHand() {
+        TemplateDTO dto = new TemplateDTO();
+        dto.setTemplateId(template.getTemplateId());
+        dto.setName(template.getName());
+        dto.setSubject(template.getSubject());
+        dto.setContent(template.getContent());
+        dto.setDescription(template.getDescription());
+        dto.setIsActive(template.getIsActive());
+        return dto;
+    }
+
+    @Benchmark
+    public TemplateEntity dtoToTemplate() {
+        return modelMapper.map(templateDTO, TemplateEntity.class);
+    }
+
+    @Benchmark
+    public UserDTO userToDTO() {
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public ProfileDTO profileToDTO() {
+        return modelMapper.map(profile, ProfileDTO.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ModelMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package in.syncboard.bulkmail.benchmark;
+
+import in.syncboard.bulkmail.service.impl.SmtpExecutor;
+import in.syncboard.bulkmail.support.SmtpSink;
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk send throughput of the two {@link SmtpExecutor} modes against a local SMTP stub that takes
+ * {@code replyDelayMillis} to accept each message. One operation sends {@code batchSize} messages with up
+ * to {@code concurrency} in flight, each over its own connection, so ops/s times the batch size is
+ * messages per second. The bounded-elastic pool gets Reactor's default 10 threads per core; in virtual
+ * mode {@code concurrency} is also the semaphore limit. Run {@code main} to add allocation and GC figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SmtpExecutionBenchmark {
+
+    @Param({"BOUNDED_ELASTIC", "VIRTUAL"})
+    private SmtpExecutor.Mode mode;
+
+    @Param({"64", "512"})
+    private int concurrency;
+
+    @Param({"50"})
+    private long replyDelayMillis;
+
+    @Param({"1000"})
+    private int batchSize;
+
+    private SmtpSink server;
+    private Session session;
+    private SmtpExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new SmtpSink(replyDelayMillis);
+
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", "127.0.0.1");
+        properties.put("mail.smtp.port", String.valueOf(server.port()));
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "5000");
+        session = Session.getInstance(properties);
+
+        executor = new SmtpExecutor(mode, 10 * Runtime.getRuntime().availableProcessors(), 100_000, concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        server.close();
+    }
+
+    @Benchmark
+    public long sendBatch() {
+        return Flux.range(0, batchSize)
+                .flatMap(i -> executor.execute(() -> send(i)), concurrency)
+                .count()
+                .block();
+    }
+
+    private boolean send(int i) throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("news@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("user" + i + "@example.com"));
+        message.setSubject("Quarterly update");
+        message.setText("Hello from the benchmark", "UTF-8");
+        message.saveChanges();
+
+        try (Transport transport = session.getTransport("smtp")) {
+            transport.connect();
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SmtpExecutionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
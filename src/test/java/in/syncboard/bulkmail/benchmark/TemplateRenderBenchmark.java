@@ -0,0 +1,81 @@
+package in.syncboard.bulkmail.benchmark;
+
+import in.syncboard.bulkmail.utils.CompiledTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-recipient template rendering: the old String.replace loop against a compiled template.
+ * Run with {@code main} from the IDE or through the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderBenchmark {
+
+    @Param({"51200"})
+    private int templateBytes;
+
+    @Param({"20"})
+    private int variableCount;
+
+    private String content;
+    private Map<String, Object> variables;
+    private CompiledTemplate compiled;
+
+    @Setup
+    public void setUp() {
+        variables = new LinkedHashMap<>();
+        for (int i = 0; i < variableCount; i++) {
+            variables.put("var" + i, "value-" + i + "-for-recipient");
+        }
+        content = BenchmarkData.htmlTemplate(templateBytes, variableCount);
+        compiled = CompiledTemplate.compile(content);
+    }
+
+    @Benchmark
+    public String legacyReplaceLoop() {
+        String processedContent = content;
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            String placeholder = "{{" + entry.getKey() + "}}";
+            String value = entry.getValue() != null ? entry.getValue().toString() : "";
+            processedContent = processedContent.replace(placeholder, value);
+        }
+        return processedContent;
+    }
+
+    @Benchmark
+    public String compiledRender() {
+        return compiled.render(variables, CompiledTemplate.MissingVariablePolicy.KEEP_PLACEHOLDER, false);
+    }
+
+    @Benchmark
+    public String compiledRenderEscaped() {
+        return compiled.render(variables, CompiledTemplate.MissingVariablePolicy.KEEP_PLACEHOLDER, true);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TemplateRenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,317 @@
+package in.syncboard.bulkmail.loadtest;
+
+import in.syncboard.bulkmail.dto.MailRequestDTO;
+import in.syncboard.bulkmail.dto.UserDTO;
+import in.syncboard.bulkmail.service.DomainResolver;
+import in.syncboard.bulkmail.service.DomainResolver.DomainStatus;
+import in.syncboard.bulkmail.support.SmtpSink;
+import in.syncboard.bulkmail.support.StubDomainResolver;
+import in.syncboard.bulkmail.utils.JwtUtil;
+import io.r2dbc.pool.ConnectionPool;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sustained-throughput load test. The whole app runs against an in-memory H2 database over R2DBC and an
+ * in-process {@link SmtpSink}, with domain checks answered by a {@link StubDomainResolver}, so it needs no
+ * network or services and runs offline once dependencies are in the local repository. Excluded from the normal build; run with
+ * <pre>
+ * mvn -Ploadtest test -Dloadtest.send-rate=200 -Dloadtest.bulk-rate=2 -Dloadtest.duration-seconds=60
+ * </pre>
+ * It drives {@code POST /api/v1/mail/send} and {@code POST /api/v1/mail/send/bulk} at fixed rates, waits
+ * until every queued or retrying email is settled, then prints delivered messages per second, request
+ * latency percentiles, R2DBC pool usage, heap and GC time. Setting {@code loadtest.min-msgs-per-sec}
+ * fails the run below that throughput.
+ *
+ * <table>
+ *   <caption>Settings (system properties)</caption>
+ *   <tr><td>loadtest.duration-seconds</td><td>30</td><td>How long requests are sent for</td></tr>
+ *   <tr><td>loadtest.send-rate</td><td>50</td><td>/send requests per second, 0 to skip</td></tr>
+ *   <tr><td>loadtest.bulk-rate</td><td>1</td><td>/send/bulk requests per second, 0 to skip</td></tr>
+ *   <tr><td>loadtest.bulk-size</td><td>100</td><td>Recipients per bulk request</td></tr>
+ *   <tr><td>loadtest.smtp-latency-ms</td><td>20</td><td>Sink delay before acknowledging a message</td></tr>
+ *   <tr><td>loadtest.smtp-transient-failure-rate</td><td>0</td><td>Share of messages answered with 451</td></tr>
+ *   <tr><td>loadtest.smtp-permanent-failure-rate</td><td>0</td><td>Share of messages answered with 550</td></tr>
+ *   <tr><td>loadtest.drain-timeout-seconds</td><td>120</td><td>Longest wait for queued sends to settle</td></tr>
+ *   <tr><td>loadtest.min-msgs-per-sec</td><td>0</td><td>Fail below this delivered throughput</td></tr>
+ * </table>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class MailLoadTest {
+
+    private static final long TEMPLATE_ID = 1L;
+    private static final int MAX_IN_FLIGHT = 1024;
+
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final double SEND_RATE = doubleProperty("loadtest.send-rate", 50);
+    private static final double BULK_RATE = doubleProperty("loadtest.bulk-rate", 1);
+    private static final int BULK_SIZE = Integer.getInteger("loadtest.bulk-size", 100);
+    private static final long SMTP_LATENCY_MS = Long.getLong("loadtest.smtp-latency-ms", 20);
+    private static final double SMTP_TRANSIENT_FAILURE_RATE = doubleProperty("loadtest.smtp-transient-failure-rate", 0);
+    private static final double SMTP_PERMANENT_FAILURE_RATE = doubleProperty("loadtest.smtp-permanent-failure-rate", 0);
+    private static final int DRAIN_TIMEOUT_SECONDS = Integer.getInteger("loadtest.drain-timeout-seconds", 120);
+    private static final double MIN_MSGS_PER_SEC = doubleProperty("loadtest.min-msgs-per-sec", 0);
+
+    private static SmtpSink sink;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ConnectionPool connectionPool;
+
+    @DynamicPropertySource
+    static void smtpSink(DynamicPropertyRegistry registry) {
+        try {
+            sink = new SmtpSink(SMTP_LATENCY_MS, SMTP_TRANSIENT_FAILURE_RATE, SMTP_PERMANENT_FAILURE_RATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("spring.mail.host", () -> "127.0.0.1");
+        registry.add("spring.mail.port", sink::port);
+    }
+
+    @TestConfiguration
+    static class OfflineDns {
+
+        // example.com publishes a null MX, and the test should not need DNS anyway
+        @Bean
+        @Primary
+        DomainResolver stubDomainResolver() {
+            return new StubDomainResolver(DomainStatus.DELIVERABLE);
+        }
+    }
+
+    @AfterAll
+    static void stopSink() throws IOException {
+        sink.close();
+    }
+
+    @Test
+    void sustainedThroughput() {
+        WebClient client = WebClient.builder()
+                .baseUrl("http://localhost:" + port + "/api/v1/mail")
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token())
+                .build();
+
+        Stats send = new Stats();
+        Stats bulk = new Stats();
+        ResourceSampler sampler = new ResourceSampler(connectionPool);
+        Disposable sampling = sampler.start();
+
+        long start = System.nanoTime();
+        Flux.merge(
+                        drive(SEND_RATE, send, i -> sendOne(client, i)),
+                        drive(BULK_RATE, bulk, i -> sendBulk(client, i)))
+                .blockLast();
+        long requestsDone = System.nanoTime();
+
+        awaitDrained();
+        long drained = System.nanoTime();
+        sampling.dispose();
+
+        double deliverySeconds = (drained - start) / 1e9;
+        double msgsPerSecond = sink.accepted() / deliverySeconds;
+
+        System.out.println();
+        System.out.println("==== Mail load test ====");
+        System.out.printf("Load            : send %.1f/s, bulk %.1f/s x %d recipients, for %ds%n", SEND_RATE, BULK_RATE, BULK_SIZE, DURATION_SECONDS);
+        System.out.printf("SMTP sink       : %dms latency, %.1f%% transient / %.1f%% permanent failures%n",
+                SMTP_LATENCY_MS, SMTP_TRANSIENT_FAILURE_RATE * 100, SMTP_PERMANENT_FAILURE_RATE * 100);
+        System.out.printf("Requests        : %.1fs to issue, %.1fs until all sends settled%n", (requestsDone - start) / 1e9, deliverySeconds);
+        send.print("/send");
+        bulk.print("/send/bulk");
+        System.out.printf("Delivered       : %d accepted, %d 451, %d 550 -> %.1f msgs/sec%n",
+                sink.accepted(), sink.rejectedTransient(), sink.rejectedPermanent(), msgsPerSecond);
+        sampler.print();
+        System.out.println("========================");
+
+        assertTrue(msgsPerSecond >= MIN_MSGS_PER_SEC,
+                String.format("Delivered %.1f msgs/sec, below the %.1f floor", msgsPerSecond, MIN_MSGS_PER_SEC));
+    }
+
+    private Flux<Boolean> drive(double ratePerSecond, Stats stats, LongFunction<Mono<?>> request) {
+        if (ratePerSecond <= 0) {
+            return Flux.empty();
+        }
+        Duration period = Duration.ofNanos((long) (1_000_000_000L / ratePerSecond));
+        long total = (long) (ratePerSecond * DURATION_SECONDS);
+        return Flux.interval(period)
+                .take(total)
+                .onBackpressureDrop(i -> stats.dropped.increment())
+                .flatMap(i -> {
+                    long begin = System.nanoTime();
+                    return request.apply(i)
+                            .map(response -> stats.succeeded(System.nanoTime() - begin))
+                            .onErrorResume(e -> Mono.just(stats.failed(System.nanoTime() - begin)));
+                }, MAX_IN_FLIGHT);
+    }
+
+    private Mono<String> sendOne(WebClient client, long i) {
+        MailRequestDTO request = new MailRequestDTO();
+        request.setRecipient("single" + i + "@example.com");
+        request.setTemplateId(TEMPLATE_ID);
+        request.setVariables(Map.of("name", "Single " + i, "n", i));
+        return client.post()
+                .uri("/send")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    private Mono<String> sendBulk(WebClient client, long i) {
+        List<String> recipients = IntStream.range(0, BULK_SIZE)
+                .mapToObj(r -> "bulk" + i + "-" + r + "@example.com")
+                .toList();
+        return client.post()
+                .uri(builder -> builder.path("/send/bulk")
+                        .queryParam("recipients", recipients)
+                        .queryParam("templateId", TEMPLATE_ID)
+                        .build())
+                .bodyValue(Map.of("name", "Bulk " + i, "n", i))
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    private void awaitDrained() {
+        Mono.defer(() -> databaseClient
+                        .sql("SELECT COUNT(*) AS pending FROM sent_emails WHERE status IN ('QUEUED', 'SENDING', 'RETRYING')")
+                        .map(row -> row.get("pending", Long.class))
+                        .one())
+                .filter(pending -> pending == 0)
+                .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(200)))
+                .timeout(Duration.ofSeconds(DRAIN_TIMEOUT_SECONDS), Mono.fromRunnable(() ->
+                        System.out.println("Gave up waiting for queued sends after " + DRAIN_TIMEOUT_SECONDS + "s")))
+                .block();
+    }
+
+    private String token() {
+        UserDTO user = UserDTO.builder()
+                .userId(1L)
+                .username("loadtest")
+                .email("loadtest@example.com")
+                .build();
+        return jwtUtil.generateToken(user, List.of("USER"));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private static final class Stats {
+        private final Histogram latencyMicros = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(5), 3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        private boolean succeeded(long elapsedNanos) {
+            latencyMicros.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), latencyMicros.getHighestTrackableValue()));
+            succeeded.increment();
+            return true;
+        }
+
+        private boolean failed(long elapsedNanos) {
+            latencyMicros.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), latencyMicros.getHighestTrackableValue()));
+            failed.increment();
+            return false;
+        }
+
+        private void print(String name) {
+            if (latencyMicros.getTotalCount() == 0 && dropped.sum() == 0) {
+                return;
+            }
+            System.out.printf("%-16s: %d ok, %d failed, %d not sent (client saturated); latency p50 %.1fms, p99 %.1fms, max %.1fms%n",
+                    name, succeeded.sum(), failed.sum(), dropped.sum(),
+                    latencyMicros.getValueAtPercentile(50) / 1000.0,
+                    latencyMicros.getValueAtPercentile(99) / 1000.0,
+                    latencyMicros.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Samples R2DBC pool usage and heap every 100ms while the test runs.
+     */
+    private static final class ResourceSampler {
+        private final ConnectionPool pool;
+        private final AtomicInteger maxAcquired = new AtomicInteger();
+        private final AtomicInteger maxPending = new AtomicInteger();
+        private final AtomicLong maxHeapUsed = new AtomicLong();
+        private final long gcMillisAtStart = gcMillis();
+        private int maxConnections;
+
+        private ResourceSampler(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        private Disposable start() {
+            return Flux.interval(Duration.ZERO, Duration.ofMillis(100))
+                    .subscribe(tick -> sample());
+        }
+
+        private void sample() {
+            pool.getMetrics().ifPresent(metrics -> {
+                maxAcquired.accumulateAndGet(metrics.acquiredSize(), Math::max);
+                maxPending.accumulateAndGet(metrics.pendingAcquireSize(), Math::max);
+                maxConnections = metrics.getMaxAllocatedSize();
+            });
+            maxHeapUsed.accumulateAndGet(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), Math::max);
+        }
+
+        private void print() {
+            System.out.printf("R2DBC pool      : peak %d of %d connections in use, peak %d waiting%n",
+                    maxAcquired.get(), maxConnections, maxPending.get());
+            System.out.printf("Heap            : peak %d MB used of %d MB max, %d ms in GC%n",
+                    maxHeapUsed.get() / (1024 * 1024),
+                    Runtime.getRuntime().maxMemory() / (1024 * 1024),
+                    gcMillis() - gcMillisAtStart);
+        }
+
+        private static long gcMillis() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                    .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                    .filter(time -> time > 0)
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.MailHistoryView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 9, 0);
+    private static final int BLOCK_ROWS = 4;
+    // Two rows per minute so the key order has to fall back on mail_id; row 17 is the only one to its recipient
+    private static final List<MailHistoryView> ROWS = rows(25);
+
+    @TempDir
+    Path dir;
+
+    private static List<MailHistoryView> rows(int count) {
+        List<MailHistoryView> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime sentAt = BASE.plusMinutes(i / 2);
+            boolean failed = i % 3 == 0;
+            rows.add(MailHistoryView.builder()
+                    .mailId(100L + i)
+                    .recipient(i == 17 ? "Rare@Example.com" : "user" + i % 5 + "@example.com")
+                    .subject(i % 7 == 0 ? null : "Subject " + i)
+                    .status(failed ? "FAILED" : "SENT")
+                    .errorMessage(failed ? "550 5.1.1 Unknown user" : null)
+                    .sentAt(sentAt)
+                    .sentDate(sentAt.toLocalDate())
+                    .acceptedAt(sentAt.minusSeconds(3))
+                    .renderedAt(sentAt.minusSeconds(2))
+                    .smtpHandoffAt(sentAt.minusSeconds(1))
+                    .completedAt(failed ? null : sentAt)
+                    .build());
+        }
+        return rows;
+    }
+
+    private ArchiveSegment segment() throws IOException {
+        Path path = dir.resolve("segment.arc");
+        ArchiveSegment.write(path, ROWS, BLOCK_ROWS);
+        return ArchiveSegment.open(path);
+    }
+
+    private static List<MailHistoryView> collect(Iterator<MailHistoryView> rows) {
+        List<MailHistoryView> collected = new ArrayList<>();
+        rows.forEachRemaining(collected::add);
+        return collected;
+    }
+
+    @Test
+    void readsBackEveryRowItWrote() throws IOException {
+        ArchiveSegment segment = segment();
+
+        assertEquals(ROWS.size(), segment.rowCount());
+        assertEquals(ROWS.get(0).getSentAt(), segment.firstSentAt());
+        assertEquals(ROWS.get(ROWS.size() - 1).getSentAt(), segment.lastSentAt());
+        assertEquals(ROWS, collect(segment.rows(BASE, BASE.plusDays(1))));
+    }
+
+    @Test
+    void rangeScanStartsAndStopsInsideBlocks() throws IOException {
+        ArchiveSegment segment = segment();
+
+        assertEquals(ROWS.subList(6, 18), collect(segment.rows(BASE.plusMinutes(3), BASE.plusMinutes(9))));
+        assertTrue(collect(segment.rows(BASE.plusDays(1), BASE.plusDays(2))).isEmpty());
+    }
+
+    @Test
+    void findPagesInKeyOrder() throws IOException {
+        ArchiveSegment segment = segment();
+
+        List<MailHistoryView> first = segment.find(null, null, null, null, 0, 10);
+        MailHistoryView last = first.get(first.size() - 1);
+        List<MailHistoryView> second = segment.find(null, null, null, last.getSentAt(), last.getMailId(), 10);
+        MailHistoryView end = ROWS.get(23);
+
+        assertEquals(ROWS.subList(0, 10), first);
+        assertEquals(ROWS.subList(10, 20), second);
+        assertEquals(ROWS.subList(24, 25), segment.find(null, null, null, end.getSentAt(), end.getMailId(), 10));
+    }
+
+    @Test
+    void findsRecipientThroughBlockFilters() throws IOException {
+        ArchiveSegment segment = segment();
+
+        assertEquals(List.of(ROWS.get(17)), segment.find(" RARE@example.com", null, null, null, 0, 10));
+        assertEquals(List.of(ROWS.get(3), ROWS.get(8), ROWS.get(13), ROWS.get(18), ROWS.get(23)),
+                segment.find("user3@example.com", null, null, null, 0, 10));
+        assertTrue(segment.find("nobody@example.com", null, null, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    void findCombinesRecipientAndDateRange() throws IOException {
+        ArchiveSegment segment = segment();
+
+        assertEquals(List.of(ROWS.get(6), ROWS.get(11)),
+                segment.find("user1@example.com", BASE.plusMinutes(2), BASE.plusMinutes(8), null, 0, 10));
+    }
+
+    @Test
+    void refusesEmptyOrExistingSegments() throws IOException {
+        Path path = dir.resolve("segment.arc");
+        ArchiveSegment.write(path, ROWS, BLOCK_ROWS);
+
+        assertThrows(IOException.class, () -> ArchiveSegment.write(path, ROWS, BLOCK_ROWS));
+        assertThrows(IOException.class, () -> ArchiveSegment.write(dir.resolve("empty.arc"), List.of(), BLOCK_ROWS));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotSegments() throws IOException {
+        Path truncated = Files.write(dir.resolve("truncated.arc"), new byte[8]);
+        Path garbage = Files.write(dir.resolve("garbage.arc"), new byte[64]);
+
+        assertThrows(IOException.class, () -> ArchiveSegment.open(truncated));
+        assertThrows(IOException.class, () -> ArchiveSegment.open(garbage));
+    }
+}
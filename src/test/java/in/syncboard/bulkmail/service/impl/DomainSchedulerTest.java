@@ -0,0 +1,89 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.config.DomainRateLimitProperties;
+import in.syncboard.bulkmail.entity.MailEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DomainSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static DomainRateLimitProperties properties() {
+        DomainRateLimitProperties properties = new DomainRateLimitProperties();
+        properties.setDefaultLimit(new DomainRateLimitProperties.Limit(1_000_000, 1_000));
+        return properties;
+    }
+
+    private static Flux<MailEntity> mails(String... recipients) {
+        return Flux.fromArray(recipients).map(recipient -> MailEntity.builder().recipient(recipient).build());
+    }
+
+    private static List<String> recipients(Flux<MailEntity> scheduled) {
+        return scheduled.map(MailEntity::getRecipient).collectList().block(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void domainsTakeTurns() {
+        DomainScheduler scheduler = new DomainScheduler(properties(), meterRegistry);
+
+        List<String> order = recipients(scheduler.schedule(mails(
+                "a1@a.com", "a2@a.com", "a3@a.com", "b1@b.com", "b2@b.com", "c1@c.com")));
+
+        assertEquals(List.of("a1@a.com", "b1@b.com", "c1@c.com", "a2@a.com", "b2@b.com", "a3@a.com"), order);
+    }
+
+    @Test
+    void throttledDomainDoesNotHoldUpOthers() {
+        DomainRateLimitProperties properties = properties();
+        properties.setDomains(Map.of("slow.com", new DomainRateLimitProperties.Limit(5, 2)));
+        DomainScheduler scheduler = new DomainScheduler(properties, meterRegistry);
+
+        long start = System.nanoTime();
+        List<String> order = recipients(scheduler.schedule(mails(
+                "s1@slow.com", "s2@slow.com", "s3@slow.com", "f1@fast.com", "f2@fast.com")));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(List.of("s1@slow.com", "f1@fast.com", "s2@slow.com", "f2@fast.com", "s3@slow.com"), order);
+        // The third slow.com message waits for the token after the burst of two, 200ms at 5 per second
+        assertTrue(elapsedMillis >= 100, "elapsed: " + elapsedMillis);
+    }
+
+    @Test
+    void everyMessageIsReleasedWithSmallQueues() {
+        DomainRateLimitProperties properties = properties();
+        properties.setMaxQueued(5);
+        properties.setMaxQueuedPerDomain(2);
+        DomainScheduler scheduler = new DomainScheduler(properties, meterRegistry);
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            input.add("user" + i + "@domain" + (i % 7) + ".com");
+        }
+
+        List<String> order = recipients(scheduler.schedule(mails(input.toArray(String[]::new))));
+
+        assertEquals(input.size(), order.size());
+        assertEquals(new HashSet<>(input), new HashSet<>(order));
+    }
+
+    @Test
+    void disabledSchedulerPassesMailThrough() {
+        DomainRateLimitProperties properties = properties();
+        properties.setEnabled(false);
+        DomainScheduler scheduler = new DomainScheduler(properties, meterRegistry);
+
+        List<String> order = recipients(scheduler.schedule(mails("a1@a.com", "a2@a.com", "b1@b.com")));
+
+        assertEquals(List.of("a1@a.com", "a2@a.com", "b1@b.com"), order);
+    }
+}
@@ -0,0 +1,38 @@
+package in.syncboard.bulkmail.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MailStatusWriterTest {
+
+    @Test
+    void everyReturnedIdIsUsedAsIs() {
+        assertEquals(List.of(7L, 3L, 12L), MailStatusWriter.generatedIds(List.of(7L, 3L, 12L), 3, 1));
+    }
+
+    @Test
+    void idsFollowTheFirstKeyWhenOnlyThatIsReturned() {
+        assertEquals(List.of(100L, 101L, 102L, 103L), MailStatusWriter.generatedIds(List.of(100L), 4, 1));
+    }
+
+    @Test
+    void idsStepByTheAutoIncrementIncrement() {
+        assertEquals(List.of(5L, 8L, 11L), MailStatusWriter.generatedIds(List.of(5L), 3, 3));
+    }
+
+    @Test
+    void singleRowInsertUsesItsKey() {
+        assertEquals(List.of(42L), MailStatusWriter.generatedIds(List.of(42L), 1, 2));
+    }
+
+    @Test
+    void missingKeysFailTheBatch() {
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> MailStatusWriter.generatedIds(List.of(), 3, 1));
+        assertEquals("Batched insert of 3 emails returned no generated ID", error.getMessage());
+    }
+}
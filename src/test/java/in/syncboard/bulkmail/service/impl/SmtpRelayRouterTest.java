@@ -0,0 +1,114 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.utils.CircuitBreaker;
+import in.syncboard.bulkmail.utils.SmtpErrorClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SmtpRelayRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+
+    @Test
+    void relayThatFailedBeforeMinimumCallsIsStillUsed() throws MessagingException {
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        doThrow(new MessagingException("Connection refused"))
+                .doNothing()
+                .when(pool).send(any());
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 0.5, Duration.ofSeconds(30));
+        SmtpRelay relay = new SmtpRelay("default", 1, pool, null, breaker, Duration.ofMillis(250).toNanos(), meterRegistry);
+        SmtpRelayRouter router = new SmtpRelayRouter(List.of(relay));
+
+        MessagingException first = assertThrows(MessagingException.class, () -> router.send(message));
+        assertEquals("Connection refused", first.getMessage());
+        assertEquals(1.0, breaker.failureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(relay.score() > 0);
+
+        assertDoesNotThrow(() -> router.send(message));
+        verify(pool, times(2)).send(any());
+    }
+
+    @Test
+    void relayKeepsGettingCallsUntilItsBreakerOpens() throws MessagingException {
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        doThrow(new MessagingException("Connection refused")).when(pool).send(any());
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 0.5, Duration.ofSeconds(30));
+        SmtpRelay relay = new SmtpRelay("default", 1, pool, null, breaker, Duration.ofMillis(250).toNanos(), meterRegistry);
+        SmtpRelayRouter router = new SmtpRelayRouter(List.of(relay));
+
+        for (int i = 0; i < 10; i++) {
+            MessagingException error = assertThrows(MessagingException.class, () -> router.send(message));
+            assertEquals("Connection refused", error.getMessage());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        MessagingException rejected = assertThrows(MessagingException.class, () -> router.send(message));
+        assertEquals("No SMTP relay available", rejected.getMessage());
+        verify(pool, times(10)).send(any());
+    }
+
+    @Test
+    void relayRefusingToCarryMailCountsAsRelayFailure() throws MessagingException {
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        doThrow(new SMTPSenderFailedException(new InternetAddress("noreply@example.com"), "MAIL FROM:<noreply@example.com>",
+                530, "530 5.7.0 Authentication required"))
+                .when(pool).send(any());
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 0.5, Duration.ofSeconds(30));
+        SmtpRelay relay = new SmtpRelay("default", 1, pool, null, breaker, Duration.ofMillis(250).toNanos(), meterRegistry);
+        SmtpRelayRouter router = new SmtpRelayRouter(List.of(relay));
+
+        assertThrows(SMTPSenderFailedException.class, () -> router.send(message));
+        assertEquals(1.0, breaker.failureRate());
+    }
+
+    @Test
+    void rejectedRecipientDoesNotCountAgainstRelay() throws MessagingException {
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        doThrow(new SMTPAddressFailedException(new InternetAddress("nobody@example.com"), "RCPT TO:<nobody@example.com>",
+                550, "550 5.1.1 <nobody@example.com>: Recipient address rejected"))
+                .when(pool).send(any());
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 0.5, Duration.ofSeconds(30));
+        SmtpRelay relay = new SmtpRelay("default", 1, pool, null, breaker, Duration.ofMillis(250).toNanos(), meterRegistry);
+        SmtpRelayRouter router = new SmtpRelayRouter(List.of(relay));
+
+        assertThrows(SMTPAddressFailedException.class, () -> router.send(message));
+        assertEquals(0.0, breaker.failureRate());
+    }
+
+    @Test
+    void rejectedCredentialsCountAgainstRelayAndAreNotRetried() throws MessagingException {
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        doThrow(new AuthenticationFailedException("535 5.7.8 Authentication credentials invalid"))
+                .when(pool).send(any());
+        CircuitBreaker breaker = new CircuitBreaker(50, 10, 0.5, Duration.ofSeconds(30));
+        SmtpRelay relay = new SmtpRelay("default", 1, pool, null, breaker, Duration.ofMillis(250).toNanos(), meterRegistry);
+        SmtpRelayRouter router = new SmtpRelayRouter(List.of(relay));
+
+        AuthenticationFailedException error = assertThrows(AuthenticationFailedException.class, () -> router.send(message));
+        assertEquals(1.0, breaker.failureRate());
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT, SmtpErrorClassifier.classify(error));
+    }
+}
@@ -0,0 +1,129 @@
+package in.syncboard.bulkmail.service.impl;
+
+import in.syncboard.bulkmail.entity.SuppressionEntity;
+import in.syncboard.bulkmail.repository.SuppressionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuppressionListTest {
+
+    // Committed rows of mail_suppressions by suppression_id
+    private final ConcurrentSkipListMap<Long, String> rows = new ConcurrentSkipListMap<>();
+    private final SuppressionRepository repository = mock(SuppressionRepository.class);
+
+    @BeforeEach
+    void stubRepository() {
+        when(repository.findAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return Flux.fromIterable(rows.tailMap(afterId, false).entrySet())
+                    .take(limit)
+                    .map(row -> SuppressionEntity.builder().suppressionId(row.getKey()).email(row.getValue()).build());
+        });
+    }
+
+    private SuppressionList list(long refreshIdWindow) {
+        return new SuppressionList(repository, new SimpleMeterRegistry(), 1_000, 0.01,
+                Duration.ofSeconds(30), Duration.ofHours(1), refreshIdWindow);
+    }
+
+    @Test
+    void reloadReadsEveryRow() {
+        for (long id = 1; id <= 12_000; id++) {
+            rows.put(id, "user" + id + "@example.com");
+        }
+        SuppressionList list = list(1_000);
+
+        list.reload().block();
+
+        assertEquals(12_000, list.size());
+        assertTrue(list.contains("user1@example.com"));
+        assertTrue(list.contains("user12000@example.com"));
+        assertFalse(list.contains("user12001@example.com"));
+    }
+
+    @Test
+    void refreshPicksUpRowsCommittedBelowTheHighestIdSeen() {
+        rows.put(1L, "a@example.com");
+        rows.put(3L, "c@example.com");
+        SuppressionList list = list(1_000);
+        list.reload().block();
+
+        // ID 2 was allocated before 3 but its transaction committed after the load read 3
+        rows.put(2L, "b@example.com");
+        rows.put(4L, "d@example.com");
+        list.refresh().block();
+
+        assertTrue(list.contains("b@example.com"));
+        assertTrue(list.contains("d@example.com"));
+        assertEquals(4, list.size());
+    }
+
+    @Test
+    void refreshWithoutWindowOnlyReadsNewerIds() {
+        rows.put(1L, "a@example.com");
+        rows.put(3L, "c@example.com");
+        SuppressionList list = list(0);
+        list.reload().block();
+
+        rows.put(2L, "b@example.com");
+        rows.put(4L, "d@example.com");
+        list.refresh().block();
+
+        assertFalse(list.contains("b@example.com"));
+        assertTrue(list.contains("d@example.com"));
+
+        list.reload().block();
+        assertTrue(list.contains("b@example.com"));
+    }
+
+    @Test
+    void localChangesApplyImmediatelyAndReloadDropsRemovalsMadeElsewhere() {
+        rows.put(1L, "a@example.com");
+        rows.put(2L, "b@example.com");
+        SuppressionList list = list(1_000);
+        list.reload().block();
+
+        list.add("new@example.com");
+        list.remove("a@example.com");
+        assertTrue(list.contains("new@example.com"));
+        assertFalse(list.contains("a@example.com"));
+
+        // b was removed on another node; a reload drops it, while rows added here survive if committed
+        rows.remove(1L);
+        rows.remove(2L);
+        rows.put(3L, "new@example.com");
+        list.reload().block();
+        assertFalse(list.contains("b@example.com"));
+        assertTrue(list.contains("new@example.com"));
+    }
+
+    @Test
+    void filterGrowsPastItsExpectedSize() {
+        SuppressionList list = list(1_000);
+        list.reload().block();
+
+        for (int i = 0; i < 5_000; i++) {
+            list.add("user" + i + "@example.com");
+        }
+
+        assertEquals(5_000, list.size());
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(list.contains("user" + i + "@example.com"));
+        }
+        assertFalse(list.contains("nobody@example.com"));
+    }
+}
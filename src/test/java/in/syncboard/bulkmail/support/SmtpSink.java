@@ -0,0 +1,132 @@
+package in.syncboard.bulkmail.support;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process SMTP server that discards everything it is sent.
+ * <p>
+ * Each accepted message is acknowledged after {@code replyDelayMillis}, standing in for a slow relay, and a
+ * configurable share of messages is answered with a transient (451) or permanent (550) rejection instead.
+ * Each connection is served on its own virtual thread so the sink itself never limits concurrency.
+ */
+public final class SmtpSink implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final long replyDelayMillis;
+    private final double transientFailureRate;
+    private final double permanentFailureRate;
+    private final Thread acceptor;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedTransient = new LongAdder();
+    private final LongAdder rejectedPermanent = new LongAdder();
+
+    public SmtpSink(long replyDelayMillis) throws IOException {
+        this(replyDelayMillis, 0.0, 0.0);
+    }
+
+    public SmtpSink(long replyDelayMillis, double transientFailureRate, double permanentFailureRate) throws IOException {
+        this.serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        this.replyDelayMillis = replyDelayMillis;
+        this.transientFailureRate = transientFailureRate;
+        this.permanentFailureRate = permanentFailureRate;
+        this.acceptor = Thread.ofPlatform().daemon().name("smtp-sink-acceptor").start(this::acceptLoop);
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long rejectedTransient() {
+        return rejectedTransient.sum();
+    }
+
+    public long rejectedPermanent() {
+        return rejectedPermanent.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        acceptor.interrupt();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 localhost SMTP sink");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+                switch (command) {
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Discard the message
+                        }
+                        if (replyDelayMillis > 0) {
+                            Thread.sleep(replyDelayMillis);
+                        }
+                        reply(out, outcome());
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 2.0.0 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client went away or the sink is shutting down
+        }
+    }
+
+    private String outcome() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < transientFailureRate) {
+            rejectedTransient.increment();
+            return "451 4.3.0 Try again later";
+        }
+        if (roll < transientFailureRate + permanentFailureRate) {
+            rejectedPermanent.increment();
+            return "550 5.1.1 Mailbox unavailable";
+        }
+        accepted.increment();
+        return "250 2.0.0 Queued";
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,49 @@
+package in.syncboard.bulkmail.support;
+
+import in.syncboard.bulkmail.service.DomainResolver;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link DomainResolver} answering from a fixed table instead of DNS. Register it as a {@code @Primary} bean
+ * to keep tests offline. Domains not in the table get the default status; {@link #lookups()} counts calls so
+ * tests can check caching.
+ */
+public class StubDomainResolver implements DomainResolver {
+
+    private final DomainStatus defaultStatus;
+    private final Map<String, DomainStatus> statuses = new ConcurrentHashMap<>();
+    private final AtomicLong lookups = new AtomicLong();
+    private volatile Duration latency = Duration.ZERO;
+
+    public StubDomainResolver(DomainStatus defaultStatus) {
+        this.defaultStatus = defaultStatus;
+    }
+
+    public StubDomainResolver with(String domain, DomainStatus status) {
+        statuses.put(domain, status);
+        return this;
+    }
+
+    public StubDomainResolver withLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public long lookups() {
+        return lookups.get();
+    }
+
+    @Override
+    public Mono<DomainStatus> resolve(String domain) {
+        return Mono.fromSupplier(() -> {
+                    lookups.incrementAndGet();
+                    return statuses.getOrDefault(domain, defaultStatus);
+                })
+                .delayElement(latency);
+    }
+}
@@ -0,0 +1,98 @@
+package in.syncboard.bulkmail.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledTemplateTest {
+
+    private static final CompiledTemplate.MissingVariablePolicy KEEP = CompiledTemplate.MissingVariablePolicy.KEEP_PLACEHOLDER;
+
+    @Test
+    void contentWithoutPlaceholdersIsReturnedAsIs() {
+        String content = "Hello, world } { }} without placeholders";
+        CompiledTemplate template = CompiledTemplate.compile(content);
+
+        assertEquals(0, template.placeholderCount());
+        assertSame(content, template.render(Map.of("name", "Ada"), KEEP, false));
+    }
+
+    @Test
+    void placeholdersAreReplacedInOrder() {
+        CompiledTemplate template = CompiledTemplate.compile("{{greeting}}, {{name}}! You owe {{amount}}{{currency}}.");
+
+        assertEquals(4, template.placeholderCount());
+        assertEquals("Hi, Ada! You owe 42EUR.",
+                template.render(Map.of("greeting", "Hi", "name", "Ada", "amount", 42, "currency", "EUR"), KEEP, false));
+    }
+
+    @Test
+    void samePlaceholderCanRepeat() {
+        CompiledTemplate template = CompiledTemplate.compile("{{name}} and {{name}}");
+
+        assertEquals("Ada and Ada", template.render(Map.of("name", "Ada"), KEEP, false));
+    }
+
+    @Test
+    void unclosedPlaceholderIsLiteral() {
+        CompiledTemplate template = CompiledTemplate.compile("Dear {{name}}, see {{link");
+
+        assertEquals(1, template.placeholderCount());
+        assertEquals("Dear Ada, see {{link", template.render(Map.of("name", "Ada", "link", "x"), KEEP, false));
+    }
+
+    @Test
+    void substitutedValuesAreNotRescanned() {
+        CompiledTemplate template = CompiledTemplate.compile("Hello {{name}}");
+
+        assertEquals("Hello {{secret}}", template.render(Map.of("name", "{{secret}}", "secret", "leaked"), KEEP, false));
+    }
+
+    @Test
+    void nullValueRendersEmpty() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", null);
+        CompiledTemplate template = CompiledTemplate.compile("Hello [{{name}}]");
+
+        assertEquals("Hello []", template.render(variables, CompiledTemplate.MissingVariablePolicy.FAIL, false));
+    }
+
+    @Test
+    void htmlIsEscapedOnlyWhenEnabled() {
+        CompiledTemplate template = CompiledTemplate.compile("<p>{{comment}}</p>");
+        Map<String, Object> variables = Map.of("comment", "<b>Tom & \"Jerry\"</b> 'hi'");
+
+        assertEquals("<p>&lt;b&gt;Tom &amp; &quot;Jerry&quot;&lt;/b&gt; &#39;hi&#39;</p>", template.render(variables, KEEP, true));
+        assertEquals("<p><b>Tom & \"Jerry\"</b> 'hi'</p>", template.render(variables, KEEP, false));
+    }
+
+    @Test
+    void missingVariableKeepsPlaceholder() {
+        CompiledTemplate template = CompiledTemplate.compile("Hello {{name}}, {{missing}}!");
+
+        assertEquals("Hello Ada, {{missing}}!", template.render(Map.of("name", "Ada"), KEEP, false));
+        assertEquals("Hello {{name}}, {{missing}}!", template.render(null, KEEP, false));
+    }
+
+    @Test
+    void missingVariableRendersEmpty() {
+        CompiledTemplate template = CompiledTemplate.compile("Hello {{name}}, {{missing}}!");
+
+        assertEquals("Hello Ada, !",
+                template.render(Map.of("name", "Ada"), CompiledTemplate.MissingVariablePolicy.EMPTY, false));
+    }
+
+    @Test
+    void missingVariableFails() {
+        CompiledTemplate template = CompiledTemplate.compile("Hello {{name}}, {{missing}}!");
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> template.render(Map.of("name", "Ada"), CompiledTemplate.MissingVariablePolicy.FAIL, false));
+        assertEquals("Missing template variable: missing", error.getMessage());
+    }
+}
@@ -0,0 +1,74 @@
+package in.syncboard.bulkmail.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailUtilsTest {
+
+    // The regex domainOffset replaced; it must keep accepting exactly the same addresses
+    private static final Pattern FORMER_PATTERN =
+            Pattern.compile("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$");
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "user@example.com",
+            "User.Name+tag@Mail.Example.COM",
+            "a_b&c*d-e@sub-domain.example.org",
+            "first.last@example.com",
+            // Dots in the local part
+            ".user@example.com",
+            "user.@example.com",
+            "us..er@example.com",
+            // Dots in the domain
+            "user@.example.com",
+            "user@example..com",
+            "user@example.com.",
+            "user@example.",
+            "user@com",
+            "user@a.b.c.d.example.com",
+            // TLD length
+            "user@example.c",
+            "user@example.co",
+            "user@example.museums",
+            "user@example.museumss",
+            // Digits and hyphens in the TLD and other labels
+            "user@example.c0m",
+            "user@example.123",
+            "user@example.co-m",
+            "user@123.example.com",
+            "user@-example-.com",
+            // Multiple or missing '@'
+            "user@@example.com",
+            "user@exa@mple.com",
+            "us@er@example.com",
+            "@example.com",
+            "user@",
+            "userexample.com",
+            // Characters neither side allows
+            "user name@example.com",
+            "user@exam_ple.com",
+            "us\"er@example.com",
+            "üser@example.com",
+            "user@exämple.com"
+    })
+    void domainOffsetAcceptsWhatTheFormerRegexAccepted(String email) {
+        boolean expected = FORMER_PATTERN.matcher(email).matches();
+        int offset = EmailUtils.domainOffset(email);
+
+        assertEquals(expected, offset >= 0, email);
+        if (expected) {
+            assertEquals(email.indexOf('@') + 1, offset, email);
+        }
+    }
+
+    @Test
+    void domainOffsetRejectsNull() {
+        assertEquals(-1, EmailUtils.domainOffset(null));
+    }
+}
@@ -0,0 +1,67 @@
+package in.syncboard.bulkmail.utils;
+
+import in.syncboard.bulkmail.exception.ProfileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryCursorTest {
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void roundTripsThroughAnUrlSafeToken() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_456_000), 9_007_199_254_740_993L);
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(cursor, HistoryCursor.decode(token));
+    }
+
+    @Test
+    void roundTripsWholeMinutes() {
+        // LocalDateTime.toString() drops zero seconds, the parser has to accept that form back
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 5, 1, 10, 15), 42L);
+
+        assertEquals(cursor, HistoryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void missingTokenIsTheFirstPage() {
+        assertNull(HistoryCursor.decode(null));
+        assertNull(HistoryCursor.decode(""));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not base64!", "MnwyMDI0"})
+    void rejectsTokensItDidNotIssue(String token) {
+        ProfileException e = assertThrows(ProfileException.class, () -> HistoryCursor.decode(token));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "1|2024-05-01T10:15:30|42",
+            "2|2024-05-01T10:15:30",
+            "2|2024-05-01T10:15:30|42|7",
+            "2|yesterday|42",
+            "2|2024-05-01T10:15:30|forty-two"
+    })
+    void rejectsMalformedPayloads(String raw) {
+        ProfileException e = assertThrows(ProfileException.class, () -> HistoryCursor.decode(token(raw)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+}
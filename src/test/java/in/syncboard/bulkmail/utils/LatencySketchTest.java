@@ -0,0 +1,110 @@
+package in.syncboard.bulkmail.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LatencySketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+
+    private static void assertWithinAccuracy(List<Long> sorted, LatencySketch sketch) {
+        for (double q : QUANTILES) {
+            long exact = sorted.get((int) Math.floor(q * (sorted.size() - 1)));
+            assertEquals(exact, sketch.quantile(q), exact * LatencySketch.DEFAULT_ACCURACY + 1e-9, "q=" + q);
+        }
+    }
+
+    @Test
+    void emptySketchAnswersZero() {
+        LatencySketch sketch = new LatencySketch();
+
+        assertEquals(0, sketch.count());
+        assertEquals(0, sketch.quantile(0.5));
+    }
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        // Log-normal-ish latencies from 1ms to about a day, added out of order so buckets grow both ways
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            values.add(Math.min(86_400_000L, Math.max(1L, Math.round(Math.exp(random.nextGaussian() * 3 + 6)))));
+        }
+        LatencySketch sketch = new LatencySketch();
+        values.forEach(sketch::add);
+        Collections.sort(values);
+
+        assertEquals(values.size(), sketch.count());
+        assertEquals(values.get(values.size() - 1), sketch.max());
+        assertWithinAccuracy(values, sketch);
+    }
+
+    @Test
+    void subMillisecondValuesCountAsZero() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(250);
+
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(250, sketch.quantile(1), 2.5);
+    }
+
+    @Test
+    void mergeGivesTheSketchOfTheCombinedValues() {
+        LatencySketch all = new LatencySketch();
+        LatencySketch fast = new LatencySketch();
+        LatencySketch slow = new LatencySketch();
+        List<Long> values = new ArrayList<>();
+        for (long v = 0; v < 5_000; v++) {
+            long latency = v < 4_000 ? v : v * 100;
+            values.add(latency);
+            all.add(latency);
+            (v < 4_000 ? fast : slow).add(latency);
+        }
+
+        slow.merge(fast);
+
+        assertEquals(all.count(), slow.count());
+        assertEquals(all.max(), slow.max());
+        assertArrayEquals(all.toBytes(), slow.toBytes());
+        assertWithinAccuracy(values, slow);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        LatencySketch sketch = new LatencySketch();
+        for (long v = 0; v < 1_000; v++) {
+            sketch.add(v * v);
+        }
+
+        LatencySketch read = LatencySketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.count(), read.count());
+        assertEquals(sketch.max(), read.max());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), read.quantile(q));
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        LatencySketch sketch = new LatencySketch();
+
+        assertThrows(IllegalArgumentException.class, () -> new LatencySketch(0));
+        assertThrows(IllegalArgumentException.class, () -> new LatencySketch(1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(-1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(sketch));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new LatencySketch(0.02)));
+    }
+}
@@ -0,0 +1,111 @@
+package in.syncboard.bulkmail.utils;
+
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpErrorClassifierTest {
+
+    private static SMTPAddressFailedException recipientRejected(int code, String reply) throws AddressException {
+        return new SMTPAddressFailedException(new InternetAddress("nobody@example.com"), "RCPT TO:<nobody@example.com>", code, reply);
+    }
+
+    private static SMTPSenderFailedException senderRejected(int code, String reply) throws AddressException {
+        return new SMTPSenderFailedException(new InternetAddress("noreply@example.com"), "MAIL FROM:<noreply@example.com>", code, reply);
+    }
+
+    @Test
+    void unknownMailboxIsPermanentHardBounce() throws AddressException {
+        SMTPAddressFailedException error = recipientRejected(550, "550 5.1.1 <nobody@example.com>: Recipient address rejected");
+
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT, SmtpErrorClassifier.classify(error));
+        assertEquals(550, SmtpErrorClassifier.replyCode(error));
+        assertEquals("5.1.1", SmtpErrorClassifier.enhancedStatus(error));
+        assertTrue(SmtpErrorClassifier.isHardBounce(error));
+        assertFalse(SmtpErrorClassifier.isRelayFault(error));
+    }
+
+    @Test
+    void hardBounceIsFoundBehindAWrappingException() throws AddressException {
+        MessagingException error = new MessagingException("Invalid Addresses",
+                recipientRejected(550, "550-5.1.10 Recipient not found"));
+
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT, SmtpErrorClassifier.classify(error));
+        assertEquals("5.1.10", SmtpErrorClassifier.enhancedStatus(error));
+        assertTrue(SmtpErrorClassifier.isHardBounce(error));
+    }
+
+    @Test
+    void greylistingIsTransient() throws AddressException {
+        SMTPAddressFailedException error = recipientRejected(451, "451 4.7.1 Greylisted, try again later");
+
+        assertEquals(SmtpErrorClassifier.ErrorClass.TRANSIENT, SmtpErrorClassifier.classify(error));
+        assertFalse(SmtpErrorClassifier.isHardBounce(error));
+        assertFalse(SmtpErrorClassifier.isRelayFault(error));
+    }
+
+    @Test
+    void rejectionsThatSayNothingAboutTheMailboxAreNotHardBounces() throws AddressException {
+        assertFalse(SmtpErrorClassifier.isHardBounce(recipientRejected(550, "550 Mailbox unavailable")));
+        assertFalse(SmtpErrorClassifier.isHardBounce(recipientRejected(554, "554 5.2.2 Mailbox full")));
+        assertFalse(SmtpErrorClassifier.isHardBounce(recipientRejected(550, "550 5.1.1.2 Not a status code")));
+    }
+
+    @Test
+    void policyRejectionIsRelayFaultNotHardBounce() throws AddressException {
+        SMTPAddressFailedException error = recipientRejected(550, "550 5.7.1 Relaying denied");
+
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT, SmtpErrorClassifier.classify(error));
+        assertTrue(SmtpErrorClassifier.isRelayFault(error));
+        assertFalse(SmtpErrorClassifier.isHardBounce(error));
+    }
+
+    @Test
+    void authenticationRepliesAreRelayFaults() throws AddressException {
+        assertTrue(SmtpErrorClassifier.isRelayFault(senderRejected(530, "530 Authentication required")));
+        assertTrue(SmtpErrorClassifier.isRelayFault(senderRejected(535, "535 Authentication credentials invalid")));
+        assertFalse(SmtpErrorClassifier.isRelayFault(senderRejected(552, "552 5.3.4 Message size exceeds fixed limit")));
+    }
+
+    @Test
+    void rejectedCredentialsArePermanentRelayFaults() {
+        AuthenticationFailedException error = new AuthenticationFailedException("535 5.7.8 Authentication credentials invalid");
+
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT, SmtpErrorClassifier.classify(error));
+        assertTrue(SmtpErrorClassifier.isRelayFault(error));
+        assertFalse(SmtpErrorClassifier.isHardBounce(error));
+    }
+
+    @Test
+    void failuresWithoutReplyAreTransient() {
+        MessagingException refused = new MessagingException("Connection refused");
+        MessagingException timedOut = new MessagingException("Could not connect", new SocketTimeoutException("Read timed out"));
+
+        assertEquals(SmtpErrorClassifier.ErrorClass.TRANSIENT, SmtpErrorClassifier.classify(refused));
+        assertEquals(SmtpErrorClassifier.ErrorClass.TRANSIENT, SmtpErrorClassifier.classify(timedOut));
+        assertEquals(SmtpErrorClassifier.ErrorClass.TRANSIENT, SmtpErrorClassifier.classify(new IOException("Broken pipe")));
+        assertEquals(-1, SmtpErrorClassifier.replyCode(timedOut));
+        assertNull(SmtpErrorClassifier.enhancedStatus(timedOut));
+        assertFalse(SmtpErrorClassifier.isRelayFault(timedOut));
+    }
+
+    @Test
+    void malformedAddressesAndOtherErrorsArePermanent() {
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT,
+                SmtpErrorClassifier.classify(new MessagingException("Bad address", new AddressException("Illegal address"))));
+        assertEquals(SmtpErrorClassifier.ErrorClass.PERMANENT,
+                SmtpErrorClassifier.classify(new IllegalArgumentException("Missing template variable: name")));
+    }
+}
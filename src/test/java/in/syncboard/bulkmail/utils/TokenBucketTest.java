@@ -0,0 +1,81 @@
+package in.syncboard.bulkmail.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void burstIsAvailableAtOnce() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire());
+        }
+        long wait = bucket.tryAcquire();
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "wait: " + wait);
+    }
+
+    @Test
+    void burstOfZeroStillAllowsOneToken() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void tokenIsAvailableAfterTheReportedWait() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(50, 1);
+        assertEquals(0, bucket.tryAcquire());
+
+        long wait = bucket.tryAcquire();
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(20), "wait: " + wait);
+
+        TimeUnit.NANOSECONDS.sleep(wait);
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    void concurrentCallersNeverTakeMoreThanTheBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    int taken = 0;
+                    for (int i = 0; i < 1_000; i++) {
+                        if (bucket.tryAcquire() == 0) {
+                            taken++;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            assertEquals(100, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(-1, 1));
+    }
+}
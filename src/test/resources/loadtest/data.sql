@@ -0,0 +1,9 @@
+-- Load test user (authenticated by JWT only, so the password is never checked) and template
+
+INSERT INTO roles (role_id, name, description) VALUES (1, 'USER', 'Load test user');
+INSERT INTO users (user_id, username, email, password, enabled) VALUES (1, 'loadtest', 'loadtest@example.com', 'unused', TRUE);
+INSERT INTO user_roles (user_id, role_id) VALUES (1, 1);
+
+INSERT INTO email_templates (template_id, name, subject, content, description, is_active, version)
+VALUES (1, 'loadtest', 'Load test', '<html><body><h1>Hello {{name}}</h1><p>This is message {{n}} of the load test.</p></body></html>',
+        'Template used by MailLoadTest', TRUE, 0);
@@ -0,0 +1,145 @@
+-- Schema for the load test's in-memory H2 database (MySQL mode)
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(100) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    phone VARCHAR(20),
+    power_level INT,
+    account_non_expired BOOLEAN DEFAULT TRUE,
+    account_non_locked BOOLEAN DEFAULT TRUE,
+    credentials_non_expired BOOLEAN DEFAULT TRUE,
+    enabled BOOLEAN DEFAULT TRUE,
+    verification_code VARCHAR(100),
+    verification_code_expiry TIMESTAMP,
+    last_login TIMESTAMP,
+    created_ts TIMESTAMP,
+    updated_ts TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS roles (
+    role_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE,
+    description VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    created_ts TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS email_templates (
+    template_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    content CLOB NOT NULL,
+    description VARCHAR(1000),
+    is_active BOOLEAN DEFAULT TRUE,
+    version BIGINT NOT NULL DEFAULT 0,
+    created_date DATE,
+    last_modified_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS mail_campaigns (
+    campaign_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    template_id BIGINT NOT NULL,
+    variables CLOB,
+    created_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS sent_emails (
+    mail_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255),
+    template_id BIGINT,
+    sender VARCHAR(255),
+    status VARCHAR(20) NOT NULL,
+    error_message VARCHAR(4000),
+    attempts INT,
+    next_attempt_at TIMESTAMP,
+    campaign_id BIGINT,
+    variables CLOB,
+    claim_token VARCHAR(36),
+    claimed_at TIMESTAMP,
+    sent_at TIMESTAMP(3) NOT NULL,
+    sent_date DATE,
+    last_modified_date DATE,
+    accepted_at TIMESTAMP(3),
+    rendered_at TIMESTAMP(3),
+    smtp_handoff_at TIMESTAMP(3),
+    completed_at TIMESTAMP(3)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sent_emails_status ON sent_emails (status, next_attempt_at, mail_id);
+CREATE INDEX IF NOT EXISTS idx_sent_emails_claim ON sent_emails (claim_token);
+CREATE INDEX IF NOT EXISTS idx_sent_emails_recipient ON sent_emails (recipient, sent_at, mail_id);
+CREATE INDEX IF NOT EXISTS idx_sent_emails_sent_at ON sent_emails (sent_at, mail_id);
+
+CREATE TABLE IF NOT EXISTS mail_dead_letters (
+    dead_letter_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    mail_id BIGINT NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    template_id BIGINT,
+    attempts INT,
+    last_error VARCHAR(4000),
+    created_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS mail_jobs (
+    job_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    template_id BIGINT NOT NULL,
+    campaign_id BIGINT,
+    status VARCHAR(20) NOT NULL,
+    recipients CLOB,
+    variables CLOB,
+    total_recipients INT,
+    next_index INT,
+    sent_count BIGINT,
+    failed_count BIGINT,
+    checkpoint_sent_count BIGINT,
+    checkpoint_failed_count BIGINT,
+    error_message VARCHAR(4000),
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    owner_id VARCHAR(36),
+    heartbeat_at TIMESTAMP(3),
+    created_date DATE,
+    last_modified_date DATE
+);
+
+CREATE INDEX IF NOT EXISTS idx_mail_jobs_status ON mail_jobs (status, heartbeat_at);
+
+CREATE TABLE IF NOT EXISTS mail_suppressions (
+    suppression_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    reason VARCHAR(20) NOT NULL,
+    created_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS mail_stats_daily (
+    stat_date DATE NOT NULL,
+    template_id BIGINT NOT NULL,
+    sender_domain VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    message_count BIGINT NOT NULL,
+    PRIMARY KEY (stat_date, template_id, sender_domain, status)
+);
+
+CREATE TABLE IF NOT EXISTS mail_latency_sketches (
+    window_start TIMESTAMP NOT NULL,
+    template_id BIGINT NOT NULL,
+    metric VARCHAR(8) NOT NULL,
+    node_id VARCHAR(36) NOT NULL,
+    value_count BIGINT NOT NULL,
+    sketch VARBINARY(16000) NOT NULL,
+    PRIMARY KEY (window_start, template_id, metric, node_id)
+);
+
+CREATE TABLE IF NOT EXISTS mail_leases (
+    lease_name VARCHAR(64) NOT NULL PRIMARY KEY,
+    owner_id VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);